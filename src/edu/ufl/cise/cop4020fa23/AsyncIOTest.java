@@ -0,0 +1,69 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.ufl.cise.cop4020fa23.runtime.AsyncIO;
+import edu.ufl.cise.cop4020fa23.runtime.FileURLIO;
+import edu.ufl.cise.cop4020fa23.runtime.PLCRuntimeException;
+
+/**
+ * Checks that background reads and writes give the same images as FileURLIO, and that join rethrows
+ * their failures unchanged.
+ */
+class AsyncIOTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void writtenImagesAreReadBack() {
+		Map<String, BufferedImage> images = new LinkedHashMap<>();
+		for (String format : FileURLIOTest.FORMATS) {
+			for (int i = 0; i < 3; i++) {
+				images.put(dir.resolve("image" + i + "." + format).toString(),
+						ImageOpsTest.randomImage(17 + i, 9, BufferedImage.TYPE_INT_RGB, i));
+			}
+		}
+		AsyncIO.join(AsyncIO.writeImages(images));
+		for (Map.Entry<String, BufferedImage> entry : images.entrySet()) {
+			ImageOpsTest.compareImages(entry.getValue(), AsyncIO.join(AsyncIO.readImage(entry.getKey())));
+		}
+		String filename = dir.resolve("level.png").toString();
+		BufferedImage image = ImageOpsTest.randomImage(20, 10, BufferedImage.TYPE_INT_RGB, 5);
+		AsyncIO.join(AsyncIO.writeImage(image, filename, 1));
+		ImageOpsTest.compareImages(image, FileURLIO.readImage(filename));
+		BufferedImage resized = AsyncIO.join(AsyncIO.readImage(filename, 7, 4));
+		ImageOpsTest.compareImages(FileURLIO.readImage(filename, 7, 4), resized);
+	}
+
+	@Test
+	void failedReadIsRethrown() {
+		String missing = dir.resolve("missing.png").toString();
+		assertThrows(PLCRuntimeException.class, () -> AsyncIO.join(AsyncIO.readImage(missing)));
+	}
+
+	@Test
+	void errorIsRethrownUnchanged() {
+		StackOverflowError error = new StackOverflowError();
+		CompletableFuture<Void> result = CompletableFuture.runAsync(() -> {
+			throw error;
+		});
+		assertSame(error, assertThrows(StackOverflowError.class, () -> AsyncIO.join(result)));
+		PLCRuntimeException exception = new PLCRuntimeException("failed");
+		assertEquals(exception, assertThrows(PLCRuntimeException.class,
+				() -> AsyncIO.join(CompletableFuture.supplyAsync(() -> {
+					throw exception;
+				}))));
+	}
+}
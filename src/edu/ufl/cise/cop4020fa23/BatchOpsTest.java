@@ -0,0 +1,103 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.BatchOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+import edu.ufl.cise.cop4020fa23.runtime.PLCRuntimeException;
+import edu.ufl.cise.cop4020fa23.runtime.PixelLUT;
+import edu.ufl.cise.cop4020fa23.runtime.Resampler;
+
+/**
+ * Checks that the batch operations give the same results as the ImageOps operation on each image.
+ */
+class BatchOpsTest {
+
+	static List<BufferedImage> images(int n, long seed) {
+		List<BufferedImage> images = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			int type = ImageOpsTest.TYPES[i % ImageOpsTest.TYPES.length];
+			images.add(ImageOpsTest.randomImage(5 + i % 7, 3 + i % 5, type, seed + i));
+		}
+		return images;
+	}
+
+	static void compareAll(List<BufferedImage> expected, List<BufferedImage> results) {
+		assertEquals(expected.size(), results.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ImageOpsTest.compareImages(expected.get(i), results.get(i));
+		}
+	}
+
+	@Test
+	void batchOpsMatchImageOps() {
+		List<BufferedImage> images = images(100, 1);
+		for (OP op : new OP[] { OP.PLUS, OP.MINUS, OP.TIMES }) {
+			compareAll(images.stream().map(image -> ImageOps.binaryImagePixelOp(op, image, 0x405060)).toList(),
+					BatchOps.binaryImagePixelOp(op, images, 0x405060));
+			compareAll(images.stream().map(image -> ImageOps.binaryImageScalarOp(op, image, 3)).toList(),
+					BatchOps.binaryImageScalarOp(op, images, 3));
+			PixelLUT lut = PixelLUT.scalar(op, 3);
+			compareAll(images.stream().map(image -> ImageOps.applyLUT(image, lut)).toList(),
+					BatchOps.applyLUT(images, lut));
+		}
+		compareAll(images.stream().map(ImageOps::extractRed).toList(), BatchOps.extractRed(images));
+		compareAll(images.stream().map(ImageOps::extractGrn).toList(), BatchOps.extractGrn(images));
+		compareAll(images.stream().map(ImageOps::extractBlu).toList(), BatchOps.extractBlu(images));
+		compareAll(images.stream().map(image -> ImageOps.copyAndResize(image, 4, 9)).toList(),
+				BatchOps.copyAndResize(images, 4, 9));
+		compareAll(images.stream().map(image -> ImageOps.copyAndResize(image, 4, 9, Resampler.Mode.AREA)).toList(),
+				BatchOps.copyAndResize(images, 4, 9, Resampler.Mode.AREA));
+	}
+
+	@Test
+	void nestedBatchDoesNotOverwriteScratch() {
+		List<BufferedImage> outer = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			outer.add(ImageOpsTest.randomImage(8, 8, BufferedImage.TYPE_3BYTE_BGR, i));
+		}
+		List<BufferedImage> inner = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			inner.add(ImageOpsTest.randomImage(8, 8, BufferedImage.TYPE_3BYTE_BGR, 100 + i));
+		}
+		List<BufferedImage> results = BatchOps.map(outer, (image, scratch) -> {
+			int[] pixels = scratch.ints(64);
+			image.getRGB(0, 0, 8, 8, pixels, 0, 8);
+			// a nested batch, whose ranges may run on this thread while it waits
+			BatchOps.binaryImageScalarOp(OP.PLUS, inner, 1);
+			BufferedImage result = ImageOps.makeImage(8, 8);
+			result.setRGB(0, 0, 8, 8, pixels, 0, 8);
+			return result;
+		});
+		compareAll(outer, results);
+	}
+
+	@Test
+	void resultsKeepOrder() {
+		List<BufferedImage> images = images(37, 2);
+		List<BufferedImage> results = BatchOps.map(images, image -> image);
+		assertArrayEquals(images.toArray(), results.toArray());
+		assertEquals(0, BatchOps.map(List.of(), image -> image).size());
+	}
+
+	@Test
+	void exceptionIsRethrown() {
+		List<BufferedImage> images = images(20, 3);
+		BufferedImage failing = images.get(13);
+		assertThrows(PLCRuntimeException.class, () -> BatchOps.map(images, image -> {
+			if (image == failing) {
+				throw new PLCRuntimeException("failed");
+			}
+			return image;
+		}));
+	}
+}
@@ -0,0 +1,75 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+
+/**
+ * Checks the channel images of ImageOps.extractChannels, both full-size and compact channel planes, against
+ * extractRed, extractGrn, and extractBlu, and the operations on channel planes against the same operations on
+ * the full-size channel images.
+ */
+class ChannelPlaneTest {
+
+	static BufferedImage[] images(int type, long seed) {
+		return new BufferedImage[] { ImageOpsTest.randomImage(37, 23, type, seed),
+				ImageOpsTest.randomImage(45, 30, type, seed + 1).getSubimage(4, 5, 37, 23) };
+	}
+
+	static BufferedImage[] extracted(BufferedImage image) {
+		return new BufferedImage[] { ImageOps.extractRed(image), ImageOps.extractGrn(image), ImageOps.extractBlu(image) };
+	}
+
+	@Test
+	void channelsMatchExtractedChannels() {
+		for (int type : ImageOpsTest.TYPES) {
+			for (BufferedImage image : images(type, type)) {
+				BufferedImage[] expected = extracted(image);
+				BufferedImage[] full = ImageOps.extractChannels(image, false);
+				BufferedImage[] planes = ImageOps.extractChannels(image, true);
+				for (int c = 0; c < 3; c++) {
+					assertEquals(BufferedImage.TYPE_INT_RGB, full[c].getType());
+					assertEquals(BufferedImage.TYPE_BYTE_INDEXED, planes[c].getType());
+					ImageOpsTest.compareImages(expected[c], full[c]);
+					ImageOpsTest.compareImages(expected[c], planes[c]);
+				}
+			}
+		}
+	}
+
+	@Test
+	void opsOnPlanesMatchOpsOnChannels() {
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage image = ImageOpsTest.randomImage(37, 23, type, type + 2);
+			BufferedImage other = ImageOpsTest.nonZeroImage(37, 23, BufferedImage.TYPE_INT_RGB, type + 3);
+			BufferedImage[] full = extracted(image);
+			BufferedImage[] planes = ImageOps.extractChannels(image, true);
+			for (int c = 0; c < 3; c++) {
+				for (OP op : OP.values()) {
+					for (int scalar : new int[] { 1, 3, 200, -7 }) {
+						ImageOpsTest.compareImages(ImageOps.binaryImageScalarOp(op, full[c], scalar),
+								ImageOps.binaryImageScalarOp(op, planes[c], scalar));
+					}
+					if (op != OP.DIV && op != OP.MOD) {
+						// the planes have zero components, which DIV and MOD would divide by
+						ImageOpsTest.compareImages(ImageOps.binaryImageImageOp(op, other, full[c]),
+								ImageOps.binaryImageImageOp(op, other, planes[c]));
+						ImageOpsTest.compareImages(ImageOps.binaryImagePixelOp(op, full[c], 0x7f01fe),
+								ImageOps.binaryImagePixelOp(op, planes[c], 0x7f01fe));
+						ImageOpsTest.compareImages(ImageOps.binaryImageImageOp(op, full[c], other),
+								ImageOps.binaryImageImageOp(op, planes[c], other));
+					}
+				}
+			}
+			// recombining the planes gives the image back
+			BufferedImage sum = ImageOps.binaryImageImageOp(OP.PLUS,
+					ImageOps.binaryImageImageOp(OP.PLUS, planes[0], planes[1]), planes[2]);
+			ImageOpsTest.compareImages(ImageOps.binaryImageImageOp(OP.PLUS, image, ImageOps.makeImage(37, 23)), sum);
+		}
+	}
+}
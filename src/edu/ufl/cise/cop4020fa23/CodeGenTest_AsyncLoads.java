@@ -0,0 +1,156 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.ufl.cise.cop4020fa23.DynamicJavaCompileAndExecute.PLCLangExec;
+import edu.ufl.cise.cop4020fa23.ast.AST;
+import edu.ufl.cise.cop4020fa23.runtime.FileURLIO;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.PLCRuntimeException;
+
+/**
+ * Tests of the reads of images declared from string literals, which are started at the beginning of apply
+ * when the declaration is always reached.
+ */
+class CodeGenTest_AsyncLoads {
+
+	String packageName = "edu.ufl.cise.cop4020fa23";
+
+	@TempDir
+	Path dir;
+
+	@AfterEach
+	public void separatingLine() {
+		show("----------------------------------------------");
+	}
+
+	static final boolean VERBOSE = true;
+
+	void show(Object obj) {
+		if (VERBOSE) {
+			System.out.println(obj);
+		}
+	}
+
+	String generate(String source) throws Exception {
+		AST ast = ComponentFactory.makeParser(source).parse();
+		ast.visit(ComponentFactory.makeTypeChecker(), null);
+		return (String) ast.visit(ComponentFactory.makeCodeGenerator(), packageName);
+	}
+
+	String writeImage(String name, long seed) {
+		String filename = dir.resolve(name).toString();
+		FileURLIO.writeImage(ImageOpsTest.randomImage(11, 7, BufferedImage.TYPE_INT_RGB, seed), filename);
+		return filename;
+	}
+
+	void compareImages(BufferedImage image0, BufferedImage image1) {
+		assertEquals(image0.getWidth(), image1.getWidth(), "widths not equal");
+		assertEquals(image0.getHeight(), image1.getHeight(), "heights not equal");
+		for (int y = 0; y < image0.getHeight(); y++)
+			for (int x = 0; x < image0.getWidth(); x++) {
+				int p0 = image0.getRGB(x, y);
+				int p1 = image1.getRGB(x, y);
+				assertEquals(p0, p1, "pixels at [" + x + "," + y + "], expected: " + Integer.toHexString(p0)
+						+ ", but was: " + Integer.toHexString(p1));
+			}
+	}
+
+	@Test
+	void topLevelLoadsAreStartedAtBeginning() throws Exception {
+		String a = writeImage("a.ppm", 1);
+		String b = writeImage("b.ppm", 2);
+		String source = """
+				image f() <:
+				image a = "%s";
+				image b = "%s";
+				^a + b;
+				:>
+				""".formatted(a, b);
+		String code = generate(source);
+		show(code);
+		assertTrue(code.contains("AsyncIO.readImage(\"" + a + "\")"));
+		assertTrue(code.contains("AsyncIO.readImage(\"" + b + "\")"));
+		assertTrue(code.contains("AsyncIO.cancel("));
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source);
+		BufferedImage expected = ImageOps.binaryImageImageOp(ImageOps.OP.PLUS, FileURLIO.readImage(a),
+				FileURLIO.readImage(b));
+		compareImages(expected, result);
+	}
+
+	@Test
+	void loadInBranchIsNotStarted() throws Exception {
+		String missing = dir.resolve("missing.ppm").toString();
+		String source = """
+				int f(int n) <:
+				if n > 1 -> <: image a = "%s"; n = count a; :> fi;
+				^n;
+				:>
+				""".formatted(missing);
+		String code = generate(source);
+		show(code);
+		assertFalse(code.contains("AsyncIO.readImage"));
+		assertEquals(1, (int) PLCLangExec.runCode(packageName, source, 1));
+	}
+
+	@Test
+	void loadAfterReturnIsNotStarted() throws Exception {
+		String missing = dir.resolve("missing.ppm").toString();
+		String source = """
+				int f(int n) <:
+				if n < 5 -> <: ^n; :> fi;
+				image a = "%s";
+				^count a;
+				:>
+				""".formatted(missing);
+		String code = generate(source);
+		show(code);
+		assertFalse(code.contains("AsyncIO.readImage"));
+		assertEquals(3, (int) PLCLangExec.runCode(packageName, source, 3));
+	}
+
+	@Test
+	void failedLoadIsThrownAtDeclaration() throws Exception {
+		String missing = dir.resolve("missing.ppm").toString();
+		String source = """
+				int f() <:
+				image a = "%s";
+				^count a;
+				:>
+				""".formatted(missing);
+		assertTrue(generate(source).contains("AsyncIO.readImage"));
+		Exception e = assertThrows(InvocationTargetException.class, () -> PLCLangExec.runCode(packageName, source));
+		assertTrue(e.getCause() instanceof PLCRuntimeException, String.valueOf(e.getCause()));
+	}
+
+	@Test
+	void numberOfStartedLoadsIsBounded() throws Exception {
+		StringBuilder declarations = new StringBuilder();
+		String last = null;
+		for (int i = 0; i < 8; i++) {
+			last = writeImage("a" + i + ".ppm", i);
+			declarations.append("image a%d = \"%s\";\n".formatted(i, last));
+		}
+		String source = """
+				int f() <:
+				%s^count a7;
+				:>
+				""".formatted(declarations);
+		String code = generate(source);
+		show(code);
+		int started = code.split("AsyncIO\\.readImage", -1).length - 1;
+		assertTrue(started > 0 && started < 8, "started " + started + " reads");
+		assertEquals(ImageOps.count(FileURLIO.readImage(last)), (int) PLCLangExec.runCode(packageName, source));
+	}
+}
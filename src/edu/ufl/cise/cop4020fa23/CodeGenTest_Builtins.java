@@ -0,0 +1,186 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.DynamicJavaCompileAndExecute.PLCLangExec;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+
+/**
+ * Tests of the builtin image operators, and of programs that use their names as ordinary names.
+ */
+class CodeGenTest_Builtins {
+
+	String packageName = "edu.ufl.cise.cop4020fa23";
+
+	@AfterEach
+	public void separatingLine() {
+		show("----------------------------------------------");
+	}
+
+	static final boolean VERBOSE = true;
+
+	void show(Object obj) {
+		if (VERBOSE) {
+			System.out.println(obj);
+		}
+	}
+
+	void compareImages(BufferedImage image0, BufferedImage image1) {
+		assertEquals(image0.getWidth(), image1.getWidth(), "widths not equal");
+		assertEquals(image0.getHeight(), image1.getHeight(), "heights not equal");
+		for (int y = 0; y < image0.getHeight(); y++)
+			for (int x = 0; x < image0.getWidth(); x++) {
+				int p0 = image0.getRGB(x, y);
+				int p1 = image1.getRGB(x, y);
+				assertEquals(p0, p1, "pixels at [" + x + "," + y + "], expected: " + Integer.toHexString(p0)
+						+ ", but was: " + Integer.toHexString(p1));
+			}
+	}
+
+	@Test
+	void blur() throws Exception {
+		String source = """
+				image f(image im) <:
+				^blur im;
+				:>
+				""";
+		BufferedImage image = ImageOpsTest.randomImage(17, 11, BufferedImage.TYPE_INT_RGB, 1);
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, image);
+		compareImages(ImageOps.blur(image), result);
+	}
+
+	@Test
+	void sharpenAndEdges() throws Exception {
+		String source = """
+				image f(image im) <:
+				image s = sharpen im;
+				^edges (s + im);
+				:>
+				""";
+		BufferedImage image = ImageOpsTest.randomImage(9, 14, BufferedImage.TYPE_INT_RGB, 2);
+		BufferedImage expected = ImageOps.edges(ImageOps.binaryImageImageOp(ImageOps.OP.PLUS, ImageOps.sharpen(image), image));
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, image);
+		compareImages(expected, result);
+	}
+
+	@Test
+	void builtinDoesNotModifyOperand() throws Exception {
+		String source = """
+				image f(image im) <:
+				image b = blur im;
+				^im;
+				:>
+				""";
+		BufferedImage image = ImageOpsTest.randomImage(8, 8, BufferedImage.TYPE_INT_RGB, 3);
+		BufferedImage expected = ImageOps.copyAndResize(image, 8, 8);
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, image);
+		compareImages(expected, result);
+	}
+
+	@Test
+	void builtinNamesAsParametersAndVariables() throws Exception {
+		String source = """
+				int f(int blur, int sharpen) <:
+				int edges = blur - sharpen;
+				^edges * (blur + 1);
+				:>
+				""";
+		int result = (int) PLCLangExec.runCode(packageName, source, 7, 3);
+		assertEquals(32, result);
+	}
+
+	@Test
+	void builtinAppliedToImageNamedLikeBuiltin() throws Exception {
+		String source = """
+				image f(image edges) <:
+				image blur = blur edges;
+				blur[2,1] = edges[1,1];
+				^blur;
+				:>
+				""";
+		BufferedImage image = ImageOpsTest.randomImage(6, 5, BufferedImage.TYPE_INT_RGB, 4);
+		BufferedImage expected = ImageOps.blur(image);
+		expected.setRGB(2, 1, image.getRGB(1, 1));
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, image);
+		compareImages(expected, result);
+	}
+
+	@Test
+	void statistics() throws Exception {
+		String source = """
+				pixel f(image im) <:
+				pixel lo = min im;
+				pixel hi = max im;
+				^(mean im) + lo + hi;
+				:>
+				""";
+		BufferedImage image = ImageOpsTest.randomImage(13, 10, BufferedImage.TYPE_INT_RGB, 5);
+		int expected = ImageOps.binaryPackedPixelPixelOp(ImageOps.OP.PLUS,
+				ImageOps.binaryPackedPixelPixelOp(ImageOps.OP.PLUS, ImageOps.mean(image), ImageOps.min(image)),
+				ImageOps.max(image));
+		int result = (int) PLCLangExec.runCode(packageName, source, image);
+		assertEquals(expected, result);
+	}
+
+	@Test
+	void countOfEdges() throws Exception {
+		String source = """
+				int f(image im) <:
+				^count edges im;
+				:>
+				""";
+		BufferedImage image = ImageOpsTest.randomImage(12, 12, BufferedImage.TYPE_INT_RGB, 6);
+		int result = (int) PLCLangExec.runCode(packageName, source, image);
+		assertEquals(ImageOps.count(ImageOps.edges(image)), result);
+	}
+
+	@Test
+	void statisticNamesAsVariables() throws Exception {
+		String source = """
+				int f(int max) <:
+				int count = 1;
+				int min = 2;
+				if count < max -> <: count = count + min; :> fi;
+				^count * max;
+				:>
+				""";
+		int result = (int) PLCLangExec.runCode(packageName, source, 9);
+		assertEquals(27, result);
+	}
+
+	@Test
+	void builtinOfImageExpression() throws Exception {
+		String source = """
+				image f(image a, image b) <:
+				^blur (a + b);
+				:>
+				""";
+		BufferedImage a = ImageOpsTest.randomImage(10, 9, BufferedImage.TYPE_INT_RGB, 7);
+		BufferedImage b = ImageOpsTest.randomImage(10, 9, BufferedImage.TYPE_INT_RGB, 8);
+		BufferedImage expected = ImageOps.blur(ImageOps.binaryImageImageOp(ImageOps.OP.PLUS, a, b));
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, a, b);
+		compareImages(expected, result);
+	}
+
+	@Test
+	void builtinResultsAsOperands() throws Exception {
+		String source = """
+				int f(image a, image b) <:
+				image c = blur a - sharpen b;
+				^count (edges blur c) + count (c * 2);
+				:>
+				""";
+		BufferedImage a = ImageOpsTest.randomImage(10, 9, BufferedImage.TYPE_INT_RGB, 9);
+		BufferedImage b = ImageOpsTest.randomImage(10, 9, BufferedImage.TYPE_INT_RGB, 10);
+		BufferedImage c = ImageOps.binaryImageImageOp(ImageOps.OP.MINUS, ImageOps.blur(a), ImageOps.sharpen(b));
+		int expected = ImageOps.count(ImageOps.edges(ImageOps.blur(c)))
+				+ ImageOps.count(ImageOps.binaryImageScalarOp(ImageOps.OP.TIMES, c, 2));
+		int result = (int) PLCLangExec.runCode(packageName, source, a, b);
+		assertEquals(expected, result);
+	}
+}
@@ -0,0 +1,127 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.DynamicJavaCompileAndExecute.PLCLangExec;
+import edu.ufl.cise.cop4020fa23.ast.AST;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+
+/**
+ * Tests of the code generated for image-valued binary expressions, which builds an ImageExpr for the whole
+ * expression and materializes it once.
+ */
+class CodeGenTest_ImageExpr {
+
+	String packageName = "edu.ufl.cise.cop4020fa23";
+
+	@AfterEach
+	public void separatingLine() {
+		show("----------------------------------------------");
+	}
+
+	static final boolean VERBOSE = true;
+
+	void show(Object obj) {
+		if (VERBOSE) {
+			System.out.println(obj);
+		}
+	}
+
+	String generate(String source) throws Exception {
+		AST ast = ComponentFactory.makeParser(source).parse();
+		ast.visit(ComponentFactory.makeTypeChecker(), null);
+		return (String) ast.visit(ComponentFactory.makeCodeGenerator(), packageName);
+	}
+
+	static int occurrences(String code, String s) {
+		return code.split(Pattern.quote(s), -1).length - 1;
+	}
+
+	@Test
+	void nestedExpressionIsMaterializedOnce() throws Exception {
+		String source = """
+				image f(image a, image b, image c, image d) <:
+				^(a + b) * c - d;
+				:>
+				""";
+		String code = generate(source);
+		show(code);
+		assertEquals(1, occurrences(code, ".materialize()"));
+		assertEquals(3, occurrences(code, "ImageExpr.binary("));
+		assertFalse(code.contains("binaryImageImageOp"));
+		BufferedImage a = ImageOpsTest.randomImage(13, 9, BufferedImage.TYPE_INT_RGB, 1);
+		BufferedImage b = ImageOpsTest.randomImage(13, 9, BufferedImage.TYPE_INT_RGB, 2);
+		BufferedImage c = ImageOpsTest.randomImage(13, 9, BufferedImage.TYPE_3BYTE_BGR, 3);
+		BufferedImage d = ImageOpsTest.randomImage(13, 9, BufferedImage.TYPE_INT_ARGB, 4);
+		BufferedImage expected = ImageOpsTest.referenceImageImageOp(OP.MINUS,
+				ImageOpsTest.referenceImageImageOp(OP.TIMES, ImageOpsTest.referenceImageImageOp(OP.PLUS, a, b), c), d);
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, a, b, c, d);
+		ImageOpsTest.compareImages(expected, result);
+	}
+
+	@Test
+	void scalarOperandsAreFolded() throws Exception {
+		String source = """
+				image f(image a, image b, int k) <:
+				^(a * k - b) / 2;
+				:>
+				""";
+		String code = generate(source);
+		show(code);
+		assertEquals(1, occurrences(code, ".materialize()"));
+		assertEquals(2, occurrences(code, "ImageExpr.binaryScalar("));
+		BufferedImage a = ImageOpsTest.randomImage(10, 7, BufferedImage.TYPE_INT_RGB, 5);
+		BufferedImage b = ImageOpsTest.randomImage(10, 7, BufferedImage.TYPE_INT_RGB, 6);
+		BufferedImage expected = ImageOpsTest.referenceImageScalarOp(OP.DIV,
+				ImageOpsTest.referenceImageImageOp(OP.MINUS, ImageOpsTest.referenceImageScalarOp(OP.TIMES, a, 3), b), 2);
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, a, b, 3);
+		ImageOpsTest.compareImages(expected, result);
+	}
+
+	@Test
+	void operandsAreNotModified() throws Exception {
+		String source = """
+				image f(image a, image b) <:
+				image c = a + b;
+				c = c - a;
+				^c;
+				:>
+				""";
+		String code = generate(source);
+		show(code);
+		assertEquals(2, occurrences(code, ".materialize()"));
+		BufferedImage a = ImageOpsTest.randomImage(10, 7, BufferedImage.TYPE_INT_RGB, 7);
+		BufferedImage b = ImageOpsTest.randomImage(10, 7, BufferedImage.TYPE_INT_RGB, 8);
+		BufferedImage aCopy = ImageOps.copyAndResize(a, 10, 7);
+		BufferedImage bCopy = ImageOps.copyAndResize(b, 10, 7);
+		BufferedImage expected = ImageOpsTest.referenceImageImageOp(OP.MINUS,
+				ImageOpsTest.referenceImageImageOp(OP.PLUS, a, b), a);
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, a, b);
+		ImageOpsTest.compareImages(expected, result);
+		ImageOpsTest.compareImages(aCopy, a);
+		ImageOpsTest.compareImages(bCopy, b);
+	}
+
+	@Test
+	void nonImageExpressionsAreNotWrapped() throws Exception {
+		String source = """
+				int f(int x, int y) <:
+				^(x + y) * 2;
+				:>
+				""";
+		String code = generate(source);
+		show(code);
+		assertFalse(code.contains("ImageExpr."));
+		assertTrue(code.contains("*"));
+		assertEquals(14, (int) PLCLangExec.runCode(packageName, source, 3, 4));
+	}
+}
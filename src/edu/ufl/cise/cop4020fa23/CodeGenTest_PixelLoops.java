@@ -0,0 +1,228 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.DynamicJavaCompileAndExecute.PLCLangExec;
+import edu.ufl.cise.cop4020fa23.ast.AST;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.PixelOps;
+
+/**
+ * Tests of assignments to pixels of images, including the implicit loops generated for
+ * pixel selectors whose coordinates are implicitly declared variables.
+ */
+class CodeGenTest_PixelLoops {
+
+	String packageName = "edu.ufl.cise.cop4020fa23";
+
+	@AfterEach
+	public void separatingLine() {
+		show("----------------------------------------------");
+	}
+
+	static final boolean VERBOSE = true;
+
+	void show(Object obj) {
+		if (VERBOSE) {
+			System.out.println(obj);
+		}
+	}
+
+	String generate(String source) throws Exception {
+		AST ast = ComponentFactory.makeParser(source).parse();
+		ast.visit(ComponentFactory.makeTypeChecker(), null);
+		return (String) ast.visit(ComponentFactory.makeCodeGenerator(), packageName);
+	}
+
+	static BufferedImage makeImage(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, PixelOps.pack(10 * x + 1, 10 * y + 1, x + y + 1));
+			}
+		}
+		return image;
+	}
+
+	void compareImages(BufferedImage image0, BufferedImage image1) {
+		assertEquals(image0.getWidth(), image1.getWidth(), "widths not equal");
+		assertEquals(image0.getHeight(), image1.getHeight(), "heights not equal");
+		for (int y = 0; y < image0.getHeight(); y++)
+			for (int x = 0; x < image0.getWidth(); x++) {
+				int p0 = image0.getRGB(x, y);
+				int p1 = image1.getRGB(x, y);
+				assertEquals(p0, p1, "pixels at [" + x + "," + y + "], expected: " + Integer.toHexString(p0)
+						+ ", but was: " + Integer.toHexString(p1));
+			}
+	}
+
+	@Test
+	void loopOverAllPixels() throws Exception {
+		String source = """
+				image f(image im) <:
+				im[x,y] = [x, y, 7];
+				^im;
+				:>
+				""";
+		BufferedImage image = makeImage(7, 5);
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, image);
+		BufferedImage expected = new BufferedImage(7, 5, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 5; y++)
+			for (int x = 0; x < 7; x++)
+				expected.setRGB(x, y, PixelOps.pack(x, y, 7));
+		compareImages(expected, result);
+	}
+
+	@Test
+	void loopReadsOtherPixelsOfImage() throws Exception {
+		String source = """
+				image f(image a, image b) <:
+				a[x,y] = b[x,y] + a[x,y];
+				^a;
+				:>
+				""";
+		BufferedImage a = makeImage(6, 4);
+		BufferedImage b = makeImage(6, 4);
+		BufferedImage expected = new BufferedImage(6, 4, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 4; y++)
+			for (int x = 0; x < 6; x++) {
+				int p = a.getRGB(x, y);
+				expected.setRGB(x, y, PixelOps.pack(2 * PixelOps.red(p), 2 * PixelOps.green(p), 2 * PixelOps.blue(p)));
+			}
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, a, b);
+		compareImages(expected, result);
+	}
+
+	/**
+	 * Each pixel is assigned the pixel above and to the right of it, which has already been assigned if the
+	 * loops visit the rows from top to bottom and each row from left to right.
+	 */
+	@Test
+	void loopIsRowMajor() throws Exception {
+		String source = """
+				image f(image im) <:
+				im[x,y] = im[x+1,y-1];
+				^im;
+				:>
+				""";
+		BufferedImage image = makeImage(6, 5);
+		BufferedImage expected = makeImage(6, 5);
+		for (int y = 0; y < 5; y++)
+			for (int x = 0; x < 6; x++)
+				expected.setRGB(x, y, x + 1 < 6 && y > 0 ? expected.getRGB(x + 1, y - 1) : PixelOps.pack(0, 0, 0));
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, image);
+		compareImages(expected, result);
+	}
+
+	@Test
+	void loopAssignsChannel() throws Exception {
+		String source = """
+				image f(image im) <:
+				im[x,y]:red = 200;
+				^im;
+				:>
+				""";
+		BufferedImage image = makeImage(5, 3);
+		BufferedImage expected = makeImage(5, 3);
+		for (int y = 0; y < 3; y++)
+			for (int x = 0; x < 5; x++)
+				expected.setRGB(x, y, PixelOps.setRed(expected.getRGB(x, y), 200));
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, image);
+		compareImages(expected, result);
+	}
+
+	@Test
+	void loopOverOneCoordinate() throws Exception {
+		String source = """
+				image f(image im) <:
+				im[x,2] = BLUE;
+				^im;
+				:>
+				""";
+		BufferedImage image = makeImage(5, 4);
+		BufferedImage expected = makeImage(5, 4);
+		for (int x = 0; x < 5; x++)
+			expected.setRGB(x, 2, Color.BLUE.getRGB());
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, image);
+		compareImages(expected, result);
+	}
+
+	@Test
+	void assignSinglePixel() throws Exception {
+		String source = """
+				image f(image im) <:
+				im[1,2] = RED;
+				im[50,50] = GREEN;
+				^im;
+				:>
+				""";
+		BufferedImage image = makeImage(4, 4);
+		BufferedImage expected = makeImage(4, 4);
+		expected.setRGB(1, 2, Color.RED.getRGB());
+		BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, image);
+		compareImages(expected, result);
+	}
+
+	@Test
+	void pixelSelectorHasPixelType() throws Exception {
+		String source = """
+				pixel f(image im) <:
+				pixel p = im[2,1];
+				^p;
+				:>
+				""";
+		BufferedImage image = makeImage(4, 4);
+		int result = (int) PLCLangExec.runCode(packageName, source, image);
+		assertEquals(image.getRGB(2, 1), result);
+	}
+
+	/**
+	 * In-bounds accesses in an implicit loop index the raster that the loop looks up once, and fall back to
+	 * getRGB/setRGB for images without an int raster.
+	 */
+	@Test
+	void loopIndexesRasterDirectly() throws Exception {
+		String source = """
+				image f(image a, image b) <:
+				a[x,y] = b[x,y] + a[x,y];
+				a[x,y]:green = a[x,y]:red;
+				^a;
+				:>
+				""";
+		String code = generate(source);
+		show(code);
+		assertEquals(2, code.split("ImageOps.uncheckedRaster\\(", -1).length - 1);
+		assertFalse(code.contains("ImageOps.getRGBUnchecked(a, x, y)"));
+		assertFalse(code.contains("ImageOps.setRGBUnchecked(a, x, y"));
+		BufferedImage b = makeImage(6, 4);
+		BufferedImage rgb = makeImage(6, 4);
+		BufferedImage bgr = new BufferedImage(6, 4, BufferedImage.TYPE_3BYTE_BGR);
+		bgr.getGraphics().drawImage(rgb, 0, 0, null);
+		BufferedImage subimage = new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB);
+		subimage.getGraphics().drawImage(rgb, 1, 1, null);
+		subimage = subimage.getSubimage(1, 1, 6, 4);
+		assertNotNull(ImageOps.uncheckedRaster(rgb));
+		assertNull(ImageOps.uncheckedRaster(bgr));
+		assertNull(ImageOps.uncheckedRaster(subimage));
+		BufferedImage expected = new BufferedImage(6, 4, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 4; y++)
+			for (int x = 0; x < 6; x++) {
+				int p = rgb.getRGB(x, y);
+				int red = Math.min(255, 2 * PixelOps.red(p));
+				expected.setRGB(x, y, PixelOps.pack(red, red, Math.min(255, 2 * PixelOps.blue(p))));
+			}
+		for (BufferedImage a : new BufferedImage[] { rgb, bgr, subimage }) {
+			BufferedImage result = (BufferedImage) PLCLangExec.runCode(packageName, source, a, b);
+			compareImages(expected, result);
+		}
+	}
+}
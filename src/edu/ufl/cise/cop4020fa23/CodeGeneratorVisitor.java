@@ -2,6 +2,8 @@ package edu.ufl.cise.cop4020fa23;
 
 import java.util.Map;
 import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
 import java.util.Set;
 
 
@@ -27,6 +29,16 @@ public class CodeGeneratorVisitor implements ASTVisitor {
     private Map<String, Integer> variableCounts = new HashMap<>();
     private SymbolTable symbolTable = new SymbolTable();
 
+    // Sources of the first MAX_HOISTED_LOADS images declared from string literals in the top-level block of the
+    // program before any return statement, so that the declarations are always reached unless a statement throws.
+    // Reading them is started at the beginning of apply with AsyncIO, and each declaration joins its read, so the
+    // reads overlap each other and the statements before the declarations. Reads that have not been joined when
+    // apply exits with an exception are cancelled. Other declarations read their image where they are.
+    private static final int MAX_HOISTED_LOADS = 4;
+    private List<String> hoistedLoads = new ArrayList<>();
+    private int blockDepth = 0;
+    private boolean returnSeen = false;
+
 
   /* ================================= MOKSH  ================================= */
 
@@ -36,6 +48,9 @@ public class CodeGeneratorVisitor implements ASTVisitor {
     @Override
     public Object visitProgram(Program program, Object arg) throws PLCCompilerException {
         StringBuilder code = new StringBuilder();
+        hoistedLoads.clear();
+        blockDepth = 0;
+        returnSeen = false;
         String className = program.getName();
         Type returnType = program.getType();
         String javaReturnType = getJavaType(returnType);
@@ -45,8 +60,10 @@ public class CodeGeneratorVisitor implements ASTVisitor {
         code.append("import edu.ufl.cise.cop4020fa23.runtime.ConsoleIO;\n");
         code.append("import edu.ufl.cise.cop4020fa23.runtime.PixelOps;\n");
         code.append("import edu.ufl.cise.cop4020fa23.runtime.ImageOps;\n");
+        code.append("import edu.ufl.cise.cop4020fa23.runtime.ImageExpr;\n");
         code.append("import java.awt.image.BufferedImage;\n");
         code.append("import edu.ufl.cise.cop4020fa23.runtime.FileURLIO;\n");
+        code.append("import edu.ufl.cise.cop4020fa23.runtime.AsyncIO;\n");
 
         StringBuilder params = new StringBuilder();
         Map<String, String> paramMap = new HashMap<>();
@@ -64,7 +81,18 @@ public class CodeGeneratorVisitor implements ASTVisitor {
 
         code.append(String.format("public class %s {\n", className));
         code.append(String.format("    public static %s apply(%s) {\n", javaReturnType, params));
-        code.append(blockCode);
+        if (hoistedLoads.isEmpty()) {
+            code.append(blockCode);
+        } else {
+            StringBuilder loads = new StringBuilder();
+            for (int i = 0; i < hoistedLoads.size(); i++) {
+                code.append(String.format("java.util.concurrent.CompletableFuture<BufferedImage> %s = AsyncIO.readImage(%s);\n",
+                        loadName(i), hoistedLoads.get(i)));
+                loads.append(i > 0 ? ", " : "").append(loadName(i));
+            }
+            code.append("try ").append(blockCode);
+            code.append(String.format("finally {\nAsyncIO.cancel(%s);\n}\n", loads));
+        }
         code.append("    }\n");
         code.append("}\n");
 
@@ -108,10 +136,12 @@ public class CodeGeneratorVisitor implements ASTVisitor {
     public Object visitBlock(Block block, Object arg) throws PLCCompilerException {
         StringBuilder code = new StringBuilder();
         code.append("{\n");
+        blockDepth++;
         for (Block.BlockElem blockElem : block.getElems()) {
             String blockElemCode = (String) blockElem.visit(this, arg);
             code.append(blockElemCode);
         }
+        blockDepth--;
         code.append("}\n");
         return code.toString();
     }
@@ -177,7 +207,11 @@ public class CodeGeneratorVisitor implements ASTVisitor {
                     code.append(" = ImageOps.copyAndResize(").append(exprCode)
                             .append(", ").append(dimension.getWidth().visit(this, arg))
                             .append(", ").append(dimension.getHeight().visit(this, arg)).append(")");
-                } else if (initializer.getType() == Type.STRING) {
+                } else if (initializer instanceof StringLitExpr && blockDepth == 1 && !returnSeen
+                        && hoistedLoads.size() < MAX_HOISTED_LOADS) {
+                    code.append(" = AsyncIO.join(").append(loadName(hoistedLoads.size())).append(")");
+                    hoistedLoads.add(exprCode);
+                } else if (initializer instanceof StringLitExpr || initializer.getType() == Type.STRING) {
                     code.append(" = FileURLIO.readImage(").append(exprCode).append(")");
                 } else {
                     code.append(" = ").append(exprCode);
@@ -191,6 +225,12 @@ public class CodeGeneratorVisitor implements ASTVisitor {
     }
 
 
+    // name of the future of the i'th hoisted load; '$' cannot occur in PLC identifiers
+    private String loadName(int i) {
+        return "load$" + i;
+    }
+
+
     // helper method to generate unique var names
     private String generateUniqueName(String originalName) {
         int count = variableCounts.getOrDefault(originalName, 0);
@@ -227,6 +267,10 @@ public class CodeGeneratorVisitor implements ASTVisitor {
         LValue lValue = assignmentStatement.getlValue();
         Expr expr = assignmentStatement.getE();
 
+        if (lValue.getPixelSelector() != null) {
+            return pixelAssignment(lValue, lValue.getPixelSelector(), expr, arg);
+        }
+
         Object lValueCode = lValue.visit(this, arg);
         Object exprCode = expr.visit(this, arg);
 
@@ -263,6 +307,91 @@ public class CodeGeneratorVisitor implements ASTVisitor {
 
 
 
+    // Image assigned by the innermost enclosing implicit pixel loop and its loop variables, or null outside
+    // such loops. Pixel selectors on this image whose coordinates are exactly the loop variables are within
+    // its bounds, so they can use the unchecked ImageOps accessors, with the raster and width that the loop
+    // looks up once before it starts.
+    private String loopImage;
+    private String loopX;
+    private String loopY;
+
+    // names of the raster and width of loopImage; '$' cannot occur in PLC identifiers
+    private static final String LOOP_RASTER = "raster$";
+    private static final String LOOP_WIDTH = "width$";
+
+    /**
+     * Generates an assignment to a pixel of an image. Coordinates that are implicitly declared
+     * variables become loops over the width and height of the image.
+     */
+    private String pixelAssignment(LValue lValue, PixelSelector pixelSelector, Expr expr, Object arg) throws PLCCompilerException {
+        String image = (String) lValue.visit(this, arg);
+        String xCode = (String) pixelSelector.xExpr().visit(this, arg);
+        String yCode = (String) pixelSelector.yExpr().visit(this, arg);
+        boolean xLoop = isSynthetic(pixelSelector.xExpr());
+        boolean yLoop = isSynthetic(pixelSelector.yExpr()) && !(xLoop && xCode.equals(yCode));
+        boolean inBounds = xLoop && yLoop;
+
+        String savedImage = loopImage;
+        String savedX = loopX;
+        String savedY = loopY;
+        if (inBounds) {
+            loopImage = image;
+            loopX = xCode;
+            loopY = yCode;
+        }
+        String exprCode;
+        try {
+            exprCode = (String) expr.visit(this, arg);
+        } finally {
+            loopImage = savedImage;
+            loopX = savedX;
+            loopY = savedY;
+        }
+
+        String target = image + ", " + xCode + ", " + yCode;
+        String uncheckedTarget = image + ", " + LOOP_RASTER + ", " + LOOP_WIDTH + ", " + xCode + ", " + yCode;
+        String pixelCode = exprCode;
+        ChannelSelector channelSelector = lValue.getChannelSelector();
+        if (channelSelector != null) {
+            String setter = switch (channelSelector.color()) {
+                case RES_red -> "setRed";
+                case RES_green -> "setGreen";
+                case RES_blue -> "setBlue";
+                default -> throw new PLCCompilerException("Unsupported channel selector: " + channelSelector.color());
+            };
+            pixelCode = "PixelOps." + setter + "(" + (inBounds ? "ImageOps.getRGBUnchecked(" + uncheckedTarget
+                    : "ImageOps.getRGB(" + target) + "), " + exprCode + ")";
+        }
+        String code = (inBounds ? "ImageOps.setRGBUnchecked(" + uncheckedTarget : "ImageOps.setRGB(" + target) + ", "
+                + pixelCode + ");\n";
+        // y outermost, so that the loops visit the pixels in the row-major order of the raster
+        if (xLoop) {
+            String width = inBounds ? LOOP_WIDTH : image + ".getWidth()";
+            code = "for (int " + xCode + " = 0; " + xCode + " < " + width + "; " + xCode + "++) {\n" + code + "}\n";
+        }
+        if (yLoop) {
+            code = "for (int " + yCode + " = 0; " + yCode + " < " + image + ".getHeight(); " + yCode + "++) {\n" + code + "}\n";
+        }
+        if (inBounds) {
+            code = "{\nint[] " + LOOP_RASTER + " = ImageOps.uncheckedRaster(" + image + ");\nint " + LOOP_WIDTH + " = "
+                    + image + ".getWidth();\n" + code + "}\n";
+        }
+        return code;
+    }
+
+    private boolean isSynthetic(Expr expr) {
+        return expr instanceof IdentExpr identExpr && identExpr.getNameDef() instanceof SyntheticNameDef;
+    }
+
+    /**
+     * @return true if the pixel selector applied to the image with the given code is known to be within its bounds
+     */
+    private boolean isInBounds(String imageCode, PixelSelector pixelSelector, Object arg) throws PLCCompilerException {
+        return loopImage != null && loopImage.equals(imageCode)
+                && isSynthetic(pixelSelector.xExpr()) && loopX.equals(pixelSelector.xExpr().visit(this, arg))
+                && isSynthetic(pixelSelector.yExpr()) && loopY.equals(pixelSelector.yExpr().visit(this, arg));
+    }
+
     @Override
     public Object visitIdentExpr(IdentExpr identExpr, Object arg) throws PLCCompilerException {
         if (arg instanceof Map) {
@@ -314,29 +443,17 @@ public class CodeGeneratorVisitor implements ASTVisitor {
     @Override
     public Object visitBinaryExpr(BinaryExpr binaryExpr, Object arg) throws PLCCompilerException {
         StringBuilder sb = new StringBuilder();
+        if (binaryExpr.getType() == Type.IMAGE) {
+            sb.append(imageExpr(binaryExpr, arg)).append(".materialize()");
+            return sb.toString();
+        }
         Object leftExprCode = binaryExpr.getLeftExpr().visit(this, arg);
         Type leftExprType = binaryExpr.getLeftExpr().getType();
         Object rightExprCode = binaryExpr.getRightExpr().visit(this, arg);
         Type rightExprType = binaryExpr.getRightExpr().getType();
         Kind opKind = binaryExpr.getOpKind();
 
-        if (leftExprType == Type.IMAGE && rightExprType == Type.IMAGE) {
-            sb.append("ImageOps.binaryImageImageOp(ImageOps.OP.")
-                    .append(opKind.name()).append(", ")
-                    .append(leftExprCode).append(", ").append(rightExprCode).append(")");
-        }
-        else if (leftExprType == Type.IMAGE && rightExprType == Type.PIXEL ||
-                leftExprType == Type.PIXEL && rightExprType == Type.IMAGE) {
-            sb.append("ImageOps.binaryImagePixelOp(ImageOps.OP.")
-                    .append(opKind.name()).append(", ")
-                    .append(leftExprCode).append(", ").append(rightExprCode).append(")");
-        }
-        else if (leftExprType == Type.IMAGE && rightExprType == Type.INT) {
-            sb.append("ImageOps.binaryImageScalarOp(ImageOps.OP.")
-                    .append(opKind.name()).append(", ")
-                    .append(leftExprCode).append(", ").append(rightExprCode).append(")");
-        }
-        else if (leftExprType == Type.PIXEL && rightExprType == Type.PIXEL) {
+        if (leftExprType == Type.PIXEL && rightExprType == Type.PIXEL) {
             sb.append("ImageOps.binaryPackedPixelPixelOp(ImageOps.OP.")
                     .append(opKind.name()).append(", ")
                     .append(leftExprCode).append(", ").append(rightExprCode).append(")");
@@ -369,6 +486,46 @@ public class CodeGeneratorVisitor implements ASTVisitor {
     }
 
 
+    // builds an ImageExpr for an image-valued expression, folding nested image-valued binary
+    // expressions into it so the whole expression is evaluated in a single pass when materialized.
+    // Results of builtins are only used by the enclosing expression, so they are marked temporary
+    // and returned to the ImagePool once the expression has read them
+    private String imageExpr(Expr expr, Object arg) throws PLCCompilerException {
+        if (isTemporaryImage(expr)) {
+            return "ImageExpr.temporary(" + expr.visit(this, arg) + ")";
+        }
+        if (!(expr instanceof BinaryExpr binaryExpr) || expr.getType() != Type.IMAGE) {
+            return "ImageExpr.of(" + expr.visit(this, arg) + ")";
+        }
+        Expr leftExpr = binaryExpr.getLeftExpr();
+        Expr rightExpr = binaryExpr.getRightExpr();
+        String op = "ImageOps.OP." + binaryExpr.getOpKind().name();
+
+        if (leftExpr.getType() == Type.IMAGE && rightExpr.getType() == Type.IMAGE) {
+            return "ImageExpr.binary(" + op + ", " + imageExpr(leftExpr, arg) + ", " + imageExpr(rightExpr, arg) + ")";
+        }
+        else if (leftExpr.getType() == Type.IMAGE && rightExpr.getType() == Type.PIXEL) {
+            return "ImageExpr.binary(" + op + ", " + imageExpr(leftExpr, arg) + ", " + rightExpr.visit(this, arg) + ")";
+        }
+        else if (leftExpr.getType() == Type.PIXEL && rightExpr.getType() == Type.IMAGE) {
+            return "ImageExpr.binary(" + op + ", " + leftExpr.visit(this, arg) + ", " + imageExpr(rightExpr, arg) + ")";
+        }
+        else if (leftExpr.getType() == Type.IMAGE && rightExpr.getType() == Type.INT) {
+            return "ImageExpr.binaryScalar(" + op + ", " + imageExpr(leftExpr, arg) + ", " + rightExpr.visit(this, arg) + ")";
+        }
+        throw new PLCCompilerException("Unsupported image operation: " + leftExpr.getType() + " " + binaryExpr.getOpKind() + " " + rightExpr.getType());
+    }
+
+
+    // true for image-valued builtins, whose results are new images not referenced by any variable
+    private boolean isTemporaryImage(Expr expr) {
+        return expr instanceof UnaryExpr unaryExpr && switch (unaryExpr.getOp()) {
+            case RES_blur, RES_sharpen, RES_edges -> true;
+            default -> false;
+        };
+    }
+
+
 
     /* ================================= *************8  ================================= */
 
@@ -382,8 +539,27 @@ public class CodeGeneratorVisitor implements ASTVisitor {
     @Override
     public Object visitUnaryExpr(UnaryExpr unaryExpr, Object arg) throws PLCCompilerException {
         StringBuilder sb = new StringBuilder();
-        Object exprCode = unaryExpr.getExpr().visit(this, arg);
         Kind opKind = unaryExpr.getOp();
+        String builtin = switch (opKind) {
+            case RES_blur -> "blur";
+            case RES_sharpen -> "sharpen";
+            case RES_edges -> "edges";
+            case RES_mean -> "mean";
+            case RES_min -> "min";
+            case RES_max -> "max";
+            case RES_count -> "count";
+            default -> null;
+        };
+        if (builtin != null) {
+            Expr operand = unaryExpr.getExpr();
+            if (isTemporaryImage(operand) || (operand instanceof BinaryExpr && operand.getType() == Type.IMAGE)) {
+                // the operand is a new image that is dead once the builtin has read it
+                String apply = unaryExpr.getType() == Type.IMAGE ? "apply" : "applyAsInt";
+                return imageExpr(operand, arg) + "." + apply + "(ImageOps::" + builtin + ")";
+            }
+            return "ImageOps." + builtin + "(" + operand.visit(this, arg) + ")";
+        }
+        Object exprCode = unaryExpr.getExpr().visit(this, arg);
         String operator = switch (opKind) {
             case PLUS -> "+";
             case MINUS -> "-";
@@ -440,6 +616,7 @@ public class CodeGeneratorVisitor implements ASTVisitor {
         StringBuilder code = new StringBuilder();
         Expr expr = returnStatement.getE();
         String exprCode;
+        returnSeen = true;
 
         if (expr instanceof PostfixExpr) {
             PostfixExpr postfixExpr = (PostfixExpr) expr;
@@ -569,8 +746,11 @@ public class CodeGeneratorVisitor implements ASTVisitor {
                 sb.append(primaryExprCode);
             }
         } else if (primaryExprType == Type.IMAGE) {
+            String getRGB = pixelSelector != null && isInBounds((String) primaryExprCode, pixelSelector, arg)
+                    ? "ImageOps.getRGBUnchecked(" + primaryExprCode + ", " + LOOP_RASTER + ", " + LOOP_WIDTH + ", "
+                    : "ImageOps.getRGB(" + primaryExprCode + ", ";
             if (pixelSelector != null && channelSelector == null) {
-                sb.append("ImageOps.getRGB(").append(primaryExprCode).append(", ").append(pixelSelector.visit(this, arg)).append(")");
+                sb.append(getRGB).append(pixelSelector.visit(this, arg)).append(")");
             } else if (pixelSelector != null && channelSelector != null) {
                 Kind color = channelSelector.color();
                 String channelMethod = switch (color) {
@@ -579,7 +759,7 @@ public class CodeGeneratorVisitor implements ASTVisitor {
                     case RES_blue -> "blue";
                     default -> throw new PLCCompilerException("Unsupported channel selector: " + color);
                 };
-                sb.append("PixelOps.").append(channelMethod).append("(ImageOps.getRGB(").append(primaryExprCode).append(", ").append(pixelSelector.visit(this, arg)).append("))");
+                sb.append("PixelOps.").append(channelMethod).append("(").append(getRGB).append(pixelSelector.visit(this, arg)).append("))");
             } else if (channelSelector != null) {
                 Kind color = channelSelector.color();
                 String extractMethod = switch (color) {
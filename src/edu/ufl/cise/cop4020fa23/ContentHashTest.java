@@ -0,0 +1,117 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ParallelOps;
+
+/**
+ * Checks that ImageOps.contentHash and ImageOps.equals depend only on the size and the pixels of images,
+ * not on their type or layout, and that they tell apart images whose pixels differ.
+ */
+class ContentHashTest {
+
+	/**
+	 * @return images of each type, and subimages of larger images of each type, all with the opaque pixels of
+	 *         pixels
+	 */
+	static List<BufferedImage> copies(BufferedImage pixels) {
+		int w = pixels.getWidth();
+		int h = pixels.getHeight();
+		List<BufferedImage> copies = new ArrayList<>();
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage image = new BufferedImage(w, h, type);
+			image.getGraphics().drawImage(pixels, 0, 0, null);
+			copies.add(image);
+			BufferedImage larger = ImageOpsTest.randomImage(w + 5, h + 3, type, type);
+			larger.getGraphics().drawImage(pixels, 2, 1, null);
+			copies.add(larger.getSubimage(2, 1, w, h));
+		}
+		return copies;
+	}
+
+	@Test
+	void equalContentHasEqualHash() {
+		BufferedImage pixels = ImageOpsTest.randomImage(37, 23, BufferedImage.TYPE_INT_RGB, 1);
+		List<BufferedImage> copies = copies(pixels);
+		long hash = ImageOps.contentHash(pixels);
+		for (BufferedImage image0 : copies) {
+			assertEquals(hash, ImageOps.contentHash(image0), "type " + image0.getType());
+			for (BufferedImage image1 : copies) {
+				assertTrue(ImageOps.equals(image0, image1), "types " + image0.getType() + " and " + image1.getType());
+			}
+		}
+	}
+
+	@Test
+	void hashIgnoresAlpha() {
+		BufferedImage opaque = ImageOpsTest.randomImage(37, 23, BufferedImage.TYPE_INT_RGB, 2);
+		BufferedImage translucent = new BufferedImage(37, 23, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < 23; y++)
+			for (int x = 0; x < 37; x++)
+				translucent.setRGB(x, y, (x + y) << 24 | (opaque.getRGB(x, y) & 0xffffff));
+		assertEquals(ImageOps.contentHash(opaque), ImageOps.contentHash(translucent));
+	}
+
+	@Test
+	void differentContentIsDistinguished() {
+		BufferedImage pixels = ImageOpsTest.randomImage(37, 23, BufferedImage.TYPE_INT_RGB, 3);
+		long hash = ImageOps.contentHash(pixels);
+		// the first and last pixel of the image, and the odd last pixel of a row
+		int[][] positions = { { 0, 0 }, { 36, 22 }, { 36, 5 }, { 17, 11 } };
+		for (int[] position : positions) {
+			for (int component : new int[] { 0x010000, 0x000100, 0x000001 }) {
+				BufferedImage changed = ImageOps.cloneImage(pixels);
+				changed.setRGB(position[0], position[1], pixels.getRGB(position[0], position[1]) ^ component);
+				for (BufferedImage copy : copies(changed)) {
+					assertNotEquals(hash, ImageOps.contentHash(copy), "type " + copy.getType());
+					assertFalse(ImageOps.equals(pixels, copy), "type " + copy.getType());
+					assertFalse(ImageOps.equals(copy, pixels), "type " + copy.getType());
+				}
+			}
+		}
+		// swapping two pixels keeps the multiset of pixels but changes the image
+		BufferedImage swapped = ImageOps.cloneImage(pixels);
+		swapped.setRGB(0, 0, pixels.getRGB(1, 0));
+		swapped.setRGB(1, 0, pixels.getRGB(0, 0));
+		assertNotEquals(hash, ImageOps.contentHash(swapped));
+		assertFalse(ImageOps.equals(pixels, swapped));
+	}
+
+	@Test
+	void hashDependsOnSize() {
+		BufferedImage wide = new BufferedImage(6, 4, BufferedImage.TYPE_INT_RGB);
+		BufferedImage tall = new BufferedImage(4, 6, BufferedImage.TYPE_INT_RGB);
+		BufferedImage larger = new BufferedImage(6, 5, BufferedImage.TYPE_INT_RGB);
+		assertNotEquals(ImageOps.contentHash(wide), ImageOps.contentHash(tall));
+		assertNotEquals(ImageOps.contentHash(wide), ImageOps.contentHash(larger));
+		assertFalse(ImageOps.equals(wide, larger));
+	}
+
+	@Test
+	void hashDoesNotDependOnParallelism() {
+		boolean parallel = ParallelOps.PARALLEL;
+		int threshold = ParallelOps.PARALLEL_THRESHOLD;
+		try {
+			BufferedImage image = ImageOpsTest.randomImage(301, 257, BufferedImage.TYPE_INT_RGB, 4);
+			ParallelOps.PARALLEL = false;
+			long sequential = ImageOps.contentHash(image);
+			ParallelOps.PARALLEL = true;
+			ParallelOps.PARALLEL_THRESHOLD = 0;
+			assertEquals(sequential, ImageOps.contentHash(image));
+			assertTrue(ImageOps.equals(image, ImageOps.cloneImage(image)));
+		} finally {
+			ParallelOps.PARALLEL = parallel;
+			ParallelOps.PARALLEL_THRESHOLD = threshold;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.Convolution;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+
+/**
+ * Checks Convolution against a direct convolution computed with getRGB.
+ */
+class ConvolutionTest {
+
+	static final double[] BLUR = weights(new double[] { 1, 4, 6, 4, 1 }, 1.0 / 256);
+	static final double[] SHARPEN = { 0, -1, 0, -1, 5, -1, 0, -1, 0 };
+	static final double[] EDGES = { -1, -1, -1, -1, 8, -1, -1, -1, -1 };
+
+	static double[] weights(double[] taps, double scale) {
+		double[] weights = new double[taps.length * taps.length];
+		for (int j = 0; j < taps.length; j++)
+			for (int i = 0; i < taps.length; i++)
+				weights[j * taps.length + i] = taps[i] * taps[j] * scale;
+		return weights;
+	}
+
+	static int borderPixel(BufferedImage image, int x, int y, Convolution.Border border) {
+		int w = image.getWidth();
+		int h = image.getHeight();
+		switch (border) {
+		case BLACK:
+			return x < 0 || y < 0 || x >= w || y >= h ? 0 : image.getRGB(x, y);
+		case CLAMP:
+			return image.getRGB(Math.min(w - 1, Math.max(0, x)), Math.min(h - 1, Math.max(0, y)));
+		default:
+			return image.getRGB(Math.floorMod(x, w), Math.floorMod(y, h));
+		}
+	}
+
+	static BufferedImage reference(BufferedImage image, double[] weights, int size, Convolution.Border border) {
+		BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < image.getHeight(); y++)
+			for (int x = 0; x < image.getWidth(); x++) {
+				int pixel = 0;
+				for (int shift = 16; shift >= 0; shift -= 8) {
+					double sum = 0;
+					for (int j = 0; j < size; j++)
+						for (int i = 0; i < size; i++) {
+							int p = borderPixel(image, x + i - size / 2, y + j - size / 2, border);
+							sum += weights[j * size + i] * (p >> shift & 0xff);
+						}
+					pixel |= Math.min(255, Math.max(0, (int) Math.round(sum))) << shift;
+				}
+				result.setRGB(x, y, pixel);
+			}
+		return result;
+	}
+
+	static void assertClose(BufferedImage expected, BufferedImage actual, int tolerance) {
+		for (int y = 0; y < expected.getHeight(); y++)
+			for (int x = 0; x < expected.getWidth(); x++) {
+				int p0 = expected.getRGB(x, y);
+				int p1 = actual.getRGB(x, y);
+				for (int shift = 16; shift >= 0; shift -= 8) {
+					int diff = Math.abs((p0 >> shift & 0xff) - (p1 >> shift & 0xff));
+					assertTrue(diff <= tolerance, "pixels at [" + x + "," + y + "], expected: " + Integer.toHexString(p0)
+							+ ", but was: " + Integer.toHexString(p1));
+				}
+			}
+	}
+
+	@Test
+	void generalKernelsAreExact() {
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage image = ImageOpsTest.randomImage(23, 17, type, type);
+			for (Convolution.Border border : Convolution.Border.values()) {
+				assertClose(reference(image, SHARPEN, 3, border),
+						ImageOps.convolve(image, Convolution.SHARPEN, border), 0);
+				assertClose(reference(image, EDGES, 3, border), ImageOps.convolve(image, Convolution.EDGES, border), 0);
+			}
+		}
+	}
+
+	@Test
+	void separableKernelIsWithinRounding() {
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage image = ImageOpsTest.randomImage(31, 12, type, type);
+			for (Convolution.Border border : Convolution.Border.values()) {
+				assertClose(reference(image, BLUR, 5, border), ImageOps.convolve(image, Convolution.BLUR, border), 1);
+			}
+		}
+	}
+
+	@Test
+	void tiledColumnsMatchUntiled() {
+		BufferedImage image = ImageOpsTest.randomImage(70, 9, BufferedImage.TYPE_INT_RGB, 5);
+		BufferedImage untiled = ImageOps.convolve(image, Convolution.BLUR, Convolution.Border.CLAMP);
+		int tileColumns = Convolution.TILE_COLUMNS;
+		try {
+			Convolution.TILE_COLUMNS = 16;
+			assertClose(untiled, ImageOps.convolve(image, Convolution.BLUR, Convolution.Border.CLAMP), 0);
+		} finally {
+			Convolution.TILE_COLUMNS = tileColumns;
+		}
+	}
+
+	@Test
+	void builtinsUseBuiltinBorder() {
+		BufferedImage image = ImageOpsTest.randomImage(12, 12, BufferedImage.TYPE_INT_RGB, 6);
+		assertClose(reference(image, BLUR, 5, Convolution.BUILTIN_BORDER), ImageOps.blur(image), 1);
+		assertClose(reference(image, SHARPEN, 3, Convolution.BUILTIN_BORDER), ImageOps.sharpen(image), 0);
+		assertClose(reference(image, EDGES, 3, Convolution.BUILTIN_BORDER), ImageOps.edges(image), 0);
+	}
+}
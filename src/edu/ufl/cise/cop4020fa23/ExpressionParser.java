@@ -69,6 +69,7 @@ public class ExpressionParser implements IParser {
 	
 	final ILexer lexer;
 	private IToken token;
+	private IToken lookahead; // the token after token, once isBuiltinOp has read it
 
 
 	/**
@@ -108,7 +109,8 @@ public class ExpressionParser implements IParser {
 	private void match(Kind expectedKind) throws LexicalException, SyntaxException {
 		if (token.kind() == expectedKind) {
 			try {
-				token = lexer.next();
+				token = lookahead != null ? lookahead : lexer.next();
+				lookahead = null;
 			} catch (LexicalException e) {
 				throw new LexicalException(token.sourceLocation(), "Lexical error while trying to match " + expectedKind);
 			}
@@ -244,7 +246,7 @@ public class ExpressionParser implements IParser {
 		return left;
 	}
 
-	// UnaryExpr ::=  ( ! | - | length | width) UnaryExpr  |  UnaryExprPostfix
+	// UnaryExpr ::=  ( ! | - | length | width | blur | sharpen | edges | mean | min | max | count) UnaryExpr  |  UnaryExprPostfix
 	private Expr unaryExpr() throws PLCCompilerException {
 		if (token.kind() == Kind.BANG || token.kind() == Kind.MINUS ||
 				token.kind() == Kind.RES_width || token.kind() == Kind.RES_height) {
@@ -252,11 +254,35 @@ public class ExpressionParser implements IParser {
 			match(token.kind());
 			Expr expression = unaryExpr();
 			return new UnaryExpr(token, opToken, expression);
+		} else if (isBuiltinOp()) {
+			IToken opToken = new Token(Lexer.BUILTINS.get(token.text()), 0, token.text().length(),
+					token.text().toCharArray(), token.sourceLocation());
+			match(IDENT);
+			Expr expression = unaryExpr();
+			return new UnaryExpr(token, opToken, expression);
 		} else {
 			return postfixExpr();
 		}
 	}
 
+	/**
+	 * The names of builtin operators are not reserved. One is an operator if it is followed by something that
+	 * can start its operand but cannot follow a name, as in blur im or blur (a + b); otherwise it is a name.
+	 * A following [ or - is read as a pixel selector or binary minus, so that existing programs keep their meaning.
+	 */
+	private boolean isBuiltinOp() throws LexicalException {
+		if (token.kind() != IDENT || !Lexer.BUILTINS.containsKey(token.text())) {
+			return false;
+		}
+		if (lookahead == null) {
+			lookahead = lexer.next();
+		}
+		return switch (lookahead.kind()) {
+			case IDENT, NUM_LIT, STRING_LIT, BOOLEAN_LIT, CONST, LPAREN, BANG, RES_width, RES_height -> true;
+			default -> false;
+		};
+	}
+
 	/* *****************************  Moksh  ***************************** */
 
 	// UnaryExprPostfix::= PrimaryExpr (PixelSelector | ε ) (ChannelSelector | ε )
@@ -0,0 +1,243 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.ufl.cise.cop4020fa23.runtime.FileURLIO;
+import edu.ufl.cise.cop4020fa23.runtime.ImageCache;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.PLCRuntimeException;
+
+/**
+ * Checks reading and writing images in the formats FileURLIO supports against the images written.
+ */
+class FileURLIOTest {
+
+	static final String[] FORMATS = { "png", "bmp", "raw", "ppm" };
+
+	@TempDir
+	Path dir;
+
+	void compareImages(BufferedImage image0, BufferedImage image1) {
+		assertEquals(image0.getWidth(), image1.getWidth(), "widths not equal");
+		assertEquals(image0.getHeight(), image1.getHeight(), "heights not equal");
+		for (int y = 0; y < image0.getHeight(); y++)
+			for (int x = 0; x < image0.getWidth(); x++) {
+				int p0 = image0.getRGB(x, y);
+				int p1 = image1.getRGB(x, y);
+				assertEquals(p0, p1, "pixels at [" + x + "," + y + "], expected: " + Integer.toHexString(p0)
+						+ ", but was: " + Integer.toHexString(p1));
+			}
+	}
+
+	String write(BufferedImage image, String name) {
+		String filename = dir.resolve(name).toString();
+		FileURLIO.writeImage(image, filename);
+		return filename;
+	}
+
+	@Test
+	void writtenImageIsReadBack() {
+		BufferedImage pixels = ImageOpsTest.randomImage(37, 23, BufferedImage.TYPE_INT_RGB, 8);
+		for (int type : ImageOpsTest.TYPES) {
+			// the formats store opaque pixels
+			BufferedImage image = new BufferedImage(37, 23, type);
+			image.getGraphics().drawImage(pixels, 0, 0, null);
+			for (String format : FORMATS) {
+				ImageCache.clear();
+				compareImages(image, FileURLIO.readImage(write(image, "written." + format)));
+			}
+		}
+	}
+
+	@Test
+	void pngCompressionLevelIsApplied() {
+		BufferedImage image = ImageOpsTest.randomImage(64, 64, BufferedImage.TYPE_INT_RGB, 7);
+		for (int y = 0; y < 32; y++)
+			for (int x = 0; x < 64; x++)
+				image.setRGB(x, y, 0xff102030);
+		String stored = dir.resolve("stored.png").toString();
+		String compressed = dir.resolve("compressed.png").toString();
+		FileURLIO.writeImage(image, stored, 0);
+		FileURLIO.writeImage(image, compressed, 9);
+		assertTrue(new File(stored).length() > new File(compressed).length());
+		compareImages(image, FileURLIO.readImage(stored));
+		compareImages(image, FileURLIO.readImage(compressed));
+	}
+
+	@Test
+	void regionMatchesCopyOfRegion() {
+		BufferedImage image = ImageOpsTest.randomImage(37, 23, BufferedImage.TYPE_INT_RGB, 1);
+		for (String format : FORMATS) {
+			String filename = write(image, "region." + format);
+			int[][] regions = { { 0, 0, 37, 23 }, { 5, 3, 10, 7 }, { 36, 22, 1, 1 }, { 0, 10, 37, 4 } };
+			for (int[] r : regions) {
+				BufferedImage expected = image.getSubimage(r[0], r[1], r[2], r[3]);
+				compareImages(expected, FileURLIO.readImageRegion(filename, r[0], r[1], r[2], r[3]));
+			}
+		}
+	}
+
+	@Test
+	void regionOutsideImageIsRejected() {
+		BufferedImage image = ImageOpsTest.randomImage(10, 10, BufferedImage.TYPE_INT_RGB, 2);
+		for (String format : FORMATS) {
+			String filename = write(image, "outside." + format);
+			assertThrows(PLCRuntimeException.class, () -> FileURLIO.readImageRegion(filename, 5, 5, 6, 2));
+			assertThrows(PLCRuntimeException.class, () -> FileURLIO.readImageRegion(filename, -1, 0, 2, 2));
+		}
+	}
+
+	@Test
+	void resizedReadMatchesCopyAndResize() {
+		BufferedImage image = ImageOpsTest.randomImage(90, 60, BufferedImage.TYPE_INT_RGB, 3);
+		boolean subsample = FileURLIO.SUBSAMPLE;
+		try {
+			FileURLIO.SUBSAMPLE = false;
+			for (String format : FORMATS) {
+				String filename = write(image, "resize." + format);
+				ImageCache.clear();
+				compareImages(ImageOps.copyAndResize(image, 20, 25), FileURLIO.readImage(filename, 20, 25));
+				// again, now that the resized image is cached
+				compareImages(ImageOps.copyAndResize(image, 20, 25), FileURLIO.readImage(filename, 20, 25));
+			}
+		} finally {
+			FileURLIO.SUBSAMPLE = subsample;
+		}
+	}
+
+	@Test
+	void resizedReadCachesOnlyRequestedSize() {
+		BufferedImage image = ImageOpsTest.randomImage(90, 60, BufferedImage.TYPE_INT_RGB, 5);
+		String filename = write(image, "cached.ppm");
+		ImageCache.clear();
+		BufferedImage resized = FileURLIO.readImage(filename, 20, 25);
+		assertEquals(resized.getWidth() * resized.getHeight() * 4, ImageCache.cachedBytes());
+		FileURLIO.readImage(filename, 20, 25);
+		assertEquals(1, ImageCache.hits());
+	}
+
+	@Test
+	void modifyingReadImageDoesNotChangeCache() {
+		BufferedImage image = ImageOpsTest.randomImage(30, 20, BufferedImage.TYPE_INT_RGB, 6);
+		String filename = write(image, "modified.ppm");
+		ImageCache.clear();
+		BufferedImage first = FileURLIO.readImage(filename);
+		first.setRGB(3, 4, 0xff123456);
+		BufferedImage second = FileURLIO.readImage(filename);
+		assertEquals(1, ImageCache.hits());
+		assertNotSame(first, second);
+		second.setRGB(5, 6, 0xff654321);
+		compareImages(image, FileURLIO.readImage(filename));
+	}
+
+	@Test
+	void subsampledReadHasRequestedSize() {
+		BufferedImage image = ImageOpsTest.randomImage(90, 60, BufferedImage.TYPE_INT_RGB, 4);
+		boolean subsample = FileURLIO.SUBSAMPLE;
+		try {
+			FileURLIO.SUBSAMPLE = true;
+			for (String format : FORMATS) {
+				String filename = write(image, "subsample." + format);
+				ImageCache.clear();
+				BufferedImage subsampled = FileURLIO.readImage(filename, 20, 25);
+				BufferedImage expected = ImageOps.copyAndResize(image, 20, 25);
+				assertEquals(expected.getWidth(), subsampled.getWidth());
+				assertEquals(expected.getHeight(), subsampled.getHeight());
+				// the result does not depend on whether the full image was decoded and cached first
+				ImageCache.clear();
+				FileURLIO.readImage(filename);
+				compareImages(subsampled, FileURLIO.readImage(filename, 20, 25));
+			}
+		} finally {
+			FileURLIO.SUBSAMPLE = subsample;
+		}
+	}
+
+	/**
+	 * Each pixel of the image holds its own coordinates, so the pixels of a subsampled read show which pixel
+	 * of the original image they were taken from.
+	 */
+	@Test
+	void subsampledPixelsAreNearResizedPixels() {
+		assertTrue(FileURLIO.SUBSAMPLE, "subsampling is on by default");
+		BufferedImage image = new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 400; y++)
+			for (int x = 0; x < 600; x++)
+				image.setRGB(x, y, x << 12 | y);
+		BufferedImage expected = ImageOps.copyAndResize(image, 30, 20);
+		int xStep = 600 / 30;
+		int yStep = 400 / 20;
+		for (String format : FORMATS) {
+			String filename = write(image, "coordinates." + format);
+			ImageCache.clear();
+			BufferedImage subsampled = FileURLIO.readImage(filename, 30, 20);
+			assertEquals(expected.getWidth(), subsampled.getWidth());
+			assertEquals(expected.getHeight(), subsampled.getHeight());
+			int differences = 0;
+			for (int y = 0; y < expected.getHeight(); y++)
+				for (int x = 0; x < expected.getWidth(); x++) {
+					int p0 = expected.getRGB(x, y);
+					int p1 = subsampled.getRGB(x, y);
+					String message = format + " pixel [" + x + "," + y + "]";
+					assertTrue(Math.abs((p0 >> 12 & 0xfff) - (p1 >> 12 & 0xfff)) <= xStep, message);
+					assertTrue(Math.abs((p0 & 0xfff) - (p1 & 0xfff)) <= yStep, message);
+					differences += p0 != p1 ? 1 : 0;
+				}
+			// the image was subsampled rather than resized in full
+			assertTrue(differences > 0, format);
+		}
+	}
+
+	/**
+	 * Images that ImageIO decodes to other types are converted to TYPE_INT_RGB without changing their pixels.
+	 */
+	@Test
+	void decodedImagesAreNormalized() throws Exception {
+		BufferedImage pixels = ImageOpsTest.randomImage(37, 23, BufferedImage.TYPE_INT_RGB, 9);
+		Object[][] files = { { "bgr.bmp", BufferedImage.TYPE_3BYTE_BGR, "bmp" },
+				{ "gray.png", BufferedImage.TYPE_BYTE_GRAY, "png" }, { "indexed.png", BufferedImage.TYPE_BYTE_INDEXED, "png" },
+				{ "photo.jpg", BufferedImage.TYPE_INT_RGB, "jpg" } };
+		boolean normalize = FileURLIO.NORMALIZE;
+		try {
+			for (Object[] file : files) {
+				BufferedImage image = new BufferedImage(37, 23, (Integer) file[1]);
+				image.getGraphics().drawImage(pixels, 0, 0, null);
+				File output = dir.resolve((String) file[0]).toFile();
+				assertTrue(ImageIO.write(image, (String) file[2], output));
+				BufferedImage decoded = ImageIO.read(output);
+				assertTrue(decoded.getType() != BufferedImage.TYPE_INT_RGB, file[0] + " decodes to TYPE_INT_RGB");
+
+				FileURLIO.NORMALIZE = true;
+				FileURLIO.resetNormalizationCounts();
+				ImageCache.clear();
+				BufferedImage normalized = FileURLIO.readImage(output.getPath());
+				assertEquals(BufferedImage.TYPE_INT_RGB, normalized.getType(), (String) file[0]);
+				compareImages(decoded, normalized);
+				Map<String, Long> counts = FileURLIO.normalizationCounts();
+				assertEquals(1, counts.values().stream().mapToLong(Long::longValue).sum(), counts.toString());
+
+				FileURLIO.NORMALIZE = false;
+				ImageCache.clear();
+				BufferedImage unchanged = FileURLIO.readImage(output.getPath());
+				assertEquals(decoded.getType(), unchanged.getType(), (String) file[0]);
+				compareImages(decoded, unchanged);
+			}
+		} finally {
+			FileURLIO.NORMALIZE = normalize;
+			ImageCache.clear();
+		}
+	}
+}
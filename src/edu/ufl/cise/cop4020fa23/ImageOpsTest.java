@@ -0,0 +1,200 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+
+/**
+ * Checks the ImageOps fast paths against the BufferedImage getRGB/setRGB reference.
+ */
+class ImageOpsTest {
+
+	static final int[] TYPES = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR };
+
+	static BufferedImage randomImage(int width, int height, int type, long seed) {
+		Random random = new Random(seed);
+		BufferedImage image = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				image.setRGB(x, y, random.nextInt());
+		return image;
+	}
+
+	/**
+	 * Random image without zero color components, which can be the right operand of DIV and MOD.
+	 */
+	static BufferedImage nonZeroImage(int width, int height, int type, long seed) {
+		Random random = new Random(seed);
+		BufferedImage image = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				image.setRGB(x, y, (1 + random.nextInt(255)) << 16 | (1 + random.nextInt(255)) << 8 | (1 + random.nextInt(255)));
+		return image;
+	}
+
+	static int clamp(int v) {
+		return Math.max(0, Math.min(255, v));
+	}
+
+	static int channelOp(OP op, int l, int r) {
+		return switch (op) {
+		case PLUS -> clamp(l + r);
+		case MINUS -> clamp(l - r);
+		case TIMES -> clamp(l * r);
+		case DIV -> clamp(l / r);
+		case MOD -> clamp(l % r);
+		};
+	}
+
+	/**
+	 * Reference for the binary operations on two pixels, computed channel by channel. The green channel of DIV
+	 * and MOD divides the left component by itself, as the original implementation of the operations does.
+	 */
+	static int referencePixelOp(OP op, int left, int right) {
+		int lgrn = left >> 8 & 0xff;
+		int rgrn = op == OP.DIV || op == OP.MOD ? lgrn : right >> 8 & 0xff;
+		return 0xff000000 | channelOp(op, left >> 16 & 0xff, right >> 16 & 0xff) << 16 | channelOp(op, lgrn, rgrn) << 8
+				| channelOp(op, left & 0xff, right & 0xff);
+	}
+
+	static int referenceScalarOp(OP op, int left, int scalar) {
+		return 0xff000000 | channelOp(op, left >> 16 & 0xff, scalar) << 16 | channelOp(op, left >> 8 & 0xff, scalar) << 8
+				| channelOp(op, left & 0xff, scalar);
+	}
+
+	static BufferedImage referenceImageImageOp(OP op, BufferedImage left, BufferedImage right) {
+		BufferedImage result = new BufferedImage(left.getWidth(), left.getHeight(), BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < left.getHeight(); y++)
+			for (int x = 0; x < left.getWidth(); x++)
+				result.setRGB(x, y, referencePixelOp(op, left.getRGB(x, y), right.getRGB(x, y)));
+		return result;
+	}
+
+	static BufferedImage referenceImagePixelOp(OP op, BufferedImage left, int right) {
+		BufferedImage result = new BufferedImage(left.getWidth(), left.getHeight(), BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < left.getHeight(); y++)
+			for (int x = 0; x < left.getWidth(); x++)
+				result.setRGB(x, y, referencePixelOp(op, left.getRGB(x, y), right));
+		return result;
+	}
+
+	static BufferedImage referenceImageScalarOp(OP op, BufferedImage left, int scalar) {
+		BufferedImage result = new BufferedImage(left.getWidth(), left.getHeight(), BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < left.getHeight(); y++)
+			for (int x = 0; x < left.getWidth(); x++)
+				result.setRGB(x, y, referenceScalarOp(op, left.getRGB(x, y), scalar));
+		return result;
+	}
+
+	static void compareImages(BufferedImage image0, BufferedImage image1) {
+		assertEquals(image0.getWidth(), image1.getWidth(), "widths not equal");
+		assertEquals(image0.getHeight(), image1.getHeight(), "heights not equal");
+		for (int y = 0; y < image0.getHeight(); y++)
+			for (int x = 0; x < image0.getWidth(); x++) {
+				int p0 = image0.getRGB(x, y);
+				int p1 = image1.getRGB(x, y);
+				assertEquals(p0, p1, "pixels at [" + x + "," + y + "], expected: " + Integer.toHexString(p0)
+						+ ", but was: " + Integer.toHexString(p1));
+			}
+	}
+
+	@Test
+	void uncheckedAccessorsMatchGetRGB() {
+		for (int type : TYPES) {
+			BufferedImage image = randomImage(13, 7, type, type);
+			BufferedImage subimage = randomImage(20, 10, type, type).getSubimage(3, 2, 13, 7);
+			for (BufferedImage im : new BufferedImage[] { image, subimage }) {
+				for (int y = 0; y < im.getHeight(); y++)
+					for (int x = 0; x < im.getWidth(); x++)
+						assertEquals(im.getRGB(x, y), ImageOps.getRGBUnchecked(im, x, y), "type " + type);
+			}
+		}
+	}
+
+	@Test
+	void uncheckedSetterMatchesSetRGB() {
+		Random random = new Random(1);
+		for (int type : TYPES) {
+			BufferedImage expected = new BufferedImage(9, 6, type);
+			BufferedImage actual = new BufferedImage(9, 6, type);
+			for (int y = 0; y < 6; y++)
+				for (int x = 0; x < 9; x++) {
+					int pixel = random.nextInt();
+					expected.setRGB(x, y, pixel);
+					ImageOps.setRGBUnchecked(actual, x, y, pixel);
+				}
+			compareImages(expected, actual);
+		}
+	}
+
+	@Test
+	void rasterAccessorsMatchGetRGBAndSetRGB() {
+		Random random = new Random(2);
+		for (int type : TYPES) {
+			for (BufferedImage im : new BufferedImage[] { randomImage(13, 7, type, type),
+					randomImage(20, 10, type, type).getSubimage(3, 2, 13, 7) }) {
+				BufferedImage expected = ImageOps.cloneImage(im);
+				int[] raster = ImageOps.uncheckedRaster(im);
+				int width = im.getWidth();
+				for (int y = 0; y < im.getHeight(); y++)
+					for (int x = 0; x < width; x++) {
+						assertEquals(im.getRGB(x, y), ImageOps.getRGBUnchecked(im, raster, width, x, y), "type " + type);
+						int pixel = random.nextInt();
+						expected.setRGB(x, y, pixel);
+						ImageOps.setRGBUnchecked(im, raster, width, x, y, pixel);
+					}
+				compareImages(expected, im);
+			}
+		}
+	}
+
+	/**
+	 * The raster accessors used by the generated pixel loops are much faster than the checked ones, so
+	 * this only fails if they regress to doing per-pixel work comparable to getRGB/setRGB.
+	 */
+	@Test
+	void rasterAccessorsAreFasterThanChecked() {
+		BufferedImage im = randomImage(1000, 1000, BufferedImage.TYPE_INT_RGB, 3);
+		long checked = Long.MAX_VALUE;
+		long unchecked = Long.MAX_VALUE;
+		for (int run = 0; run < 5; run++) {
+			long t0 = System.nanoTime();
+			for (int y = 0; y < 1000; y++)
+				for (int x = 0; x < 1000; x++)
+					ImageOps.setRGB(im, x, y, ImageOps.getRGB(im, x, y) ^ 1);
+			long t1 = System.nanoTime();
+			int[] raster = ImageOps.uncheckedRaster(im);
+			int width = im.getWidth();
+			for (int y = 0; y < 1000; y++)
+				for (int x = 0; x < width; x++)
+					ImageOps.setRGBUnchecked(im, raster, width, x, y, ImageOps.getRGBUnchecked(im, raster, width, x, y) ^ 1);
+			long t2 = System.nanoTime();
+			checked = Math.min(checked, t1 - t0);
+			unchecked = Math.min(unchecked, t2 - t1);
+		}
+		assertTrue(unchecked < checked, "unchecked " + unchecked + " ns, checked " + checked + " ns");
+	}
+
+	@Test
+	void binaryOpsMatchReference() {
+		for (int type : TYPES) {
+			BufferedImage right = nonZeroImage(19, 11, type, 2);
+			for (OP op : OP.values()) {
+				// the green channel of DIV and MOD divides by the left component
+				BufferedImage left = op == OP.DIV || op == OP.MOD ? nonZeroImage(19, 11, type, 1) : randomImage(19, 11, type, 1);
+				compareImages(referenceImageImageOp(op, left, right), ImageOps.binaryImageImageOp(op, left, right));
+				compareImages(referenceImagePixelOp(op, left, 0x123456), ImageOps.binaryImagePixelOp(op, left, 0x123456));
+				for (int scalar : new int[] { 1, 3, 200, -7 }) {
+					compareImages(referenceImageScalarOp(op, left, scalar), ImageOps.binaryImageScalarOp(op, left, scalar));
+				}
+			}
+		}
+	}
+}
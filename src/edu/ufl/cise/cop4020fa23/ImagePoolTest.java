@@ -0,0 +1,98 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageExpr;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImagePool;
+
+/**
+ * Tests of ImagePool and of the images ImageExpr acquires from it and releases to it.
+ */
+class ImagePoolTest {
+
+	long budget;
+
+	@BeforeEach
+	void clearPool() {
+		budget = ImagePool.BYTE_BUDGET;
+		ImagePool.clear();
+	}
+
+	@AfterEach
+	void restorePool() {
+		ImagePool.BYTE_BUDGET = budget;
+		ImagePool.clear();
+	}
+
+	@Test
+	void releasedImageIsAcquiredAgain() {
+		BufferedImage image = ImagePool.acquire(10, 10);
+		ImagePool.release(image);
+		assertEquals(400, ImagePool.pooledBytes());
+		assertSame(image, ImagePool.acquire(10, 10));
+		assertEquals(0, ImagePool.pooledBytes());
+		assertNotSame(image, ImagePool.acquire(10, 10));
+	}
+
+	@Test
+	void imageIsPooledOnce() {
+		BufferedImage image = ImageOps.makeImage(10, 10);
+		ImagePool.release(image);
+		ImagePool.release(image);
+		assertEquals(400, ImagePool.pooledBytes());
+		assertSame(image, ImagePool.acquire(10, 10));
+		assertNotSame(image, ImagePool.acquire(10, 10));
+	}
+
+	@Test
+	void oldestImagesAreEvicted() {
+		ImagePool.BYTE_BUDGET = 850;
+		BufferedImage first = ImageOps.makeImage(10, 10);
+		BufferedImage second = ImageOps.makeImage(10, 10);
+		ImagePool.release(first);
+		ImagePool.release(second);
+		ImagePool.release(ImageOps.makeImage(5, 5));
+		assertEquals(500, ImagePool.pooledBytes());
+		assertSame(second, ImagePool.acquire(10, 10));
+		assertNotSame(first, ImagePool.acquire(10, 10));
+	}
+
+	@Test
+	void otherImageTypesAreIgnored() {
+		ImagePool.release(new BufferedImage(10, 10, BufferedImage.TYPE_3BYTE_BGR));
+		assertEquals(0, ImagePool.pooledBytes());
+	}
+
+	@Test
+	void materializeReleasesTemporaries() {
+		BufferedImage a = ImageOpsTest.randomImage(8, 6, BufferedImage.TYPE_INT_RGB, 1);
+		BufferedImage temporary = ImageOps.blur(a);
+		BufferedImage expected = ImageOps.binaryImageImageOp(ImageOps.OP.PLUS, temporary, a);
+		BufferedImage result = ImageExpr.binary(ImageOps.OP.PLUS, ImageExpr.temporary(temporary), ImageExpr.of(a))
+				.materialize();
+		assertEquals(8 * 6 * 4, ImagePool.pooledBytes());
+		for (int y = 0; y < 6; y++)
+			for (int x = 0; x < 8; x++)
+				assertEquals(expected.getRGB(x, y), result.getRGB(x, y));
+		assertSame(temporary, ImagePool.acquire(8, 6));
+	}
+
+	@Test
+	void applyReleasesOnlyNewImages() {
+		BufferedImage a = ImageOpsTest.randomImage(8, 6, BufferedImage.TYPE_INT_RGB, 2);
+		assertEquals(ImageOps.count(a), ImageExpr.of(a).applyAsInt(ImageOps::count));
+		assertEquals(0, ImagePool.pooledBytes());
+		BufferedImage edges = ImageExpr.binaryScalar(ImageOps.OP.TIMES, ImageExpr.of(a), 2).apply(ImageOps::edges);
+		assertEquals(8 * 6 * 4, ImagePool.pooledBytes());
+		assertNotSame(edges, ImagePool.acquire(8, 6));
+	}
+}
@@ -0,0 +1,106 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageStats;
+import edu.ufl.cise.cop4020fa23.runtime.ParallelOps;
+import edu.ufl.cise.cop4020fa23.runtime.PixelOps;
+
+/**
+ * Checks ImageStats and the mean, min, max, and count builtins against statistics computed with getRGB.
+ */
+class ImageStatsTest {
+
+	static BufferedImage imageWithBlackPixels(int width, int height, int type, long seed) {
+		Random random = new Random(seed);
+		BufferedImage image = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				image.setRGB(x, y, random.nextInt(4) == 0 ? 0xff000000 : random.nextInt() & 0xff7f3fff);
+		return image;
+	}
+
+	void checkStats(BufferedImage image) {
+		long[][] histograms = new long[3][256];
+		long[] sums = new long[3];
+		int nonBlack = 0;
+		for (int y = 0; y < image.getHeight(); y++)
+			for (int x = 0; x < image.getWidth(); x++) {
+				int p = image.getRGB(x, y);
+				int[] c = { PixelOps.red(p), PixelOps.green(p), PixelOps.blue(p) };
+				for (int k = 0; k < 3; k++) {
+					histograms[k][c[k]]++;
+					sums[k] += c[k];
+				}
+				if ((p & 0xffffff) != 0)
+					nonBlack++;
+			}
+		int[] min = new int[3];
+		int[] max = new int[3];
+		int[] mean = new int[3];
+		long n = (long) image.getWidth() * image.getHeight();
+		for (int k = 0; k < 3; k++) {
+			while (histograms[k][min[k]] == 0)
+				min[k]++;
+			max[k] = 255;
+			while (histograms[k][max[k]] == 0)
+				max[k]--;
+			mean[k] = (int) Math.round((double) sums[k] / n);
+		}
+		ImageStats stats = ImageOps.statistics(image);
+		assertEquals(n, stats.getPixelCount());
+		assertArrayEquals(histograms[0], stats.getRedHistogram());
+		assertArrayEquals(histograms[1], stats.getGrnHistogram());
+		assertArrayEquals(histograms[2], stats.getBluHistogram());
+		assertEquals(sums[0], stats.getRedSum());
+		assertEquals(sums[1], stats.getGrnSum());
+		assertEquals(sums[2], stats.getBluSum());
+		assertEquals(PixelOps.pack(min[0], min[1], min[2]), ImageOps.min(image));
+		assertEquals(PixelOps.pack(max[0], max[1], max[2]), ImageOps.max(image));
+		assertEquals(PixelOps.pack(mean[0], mean[1], mean[2]), ImageOps.mean(image));
+		assertEquals(nonBlack, ImageOps.count(image));
+	}
+
+	@Test
+	void statsMatchGetRGB() {
+		for (int type : ImageOpsTest.TYPES) {
+			checkStats(imageWithBlackPixels(1, 1, type, type));
+			checkStats(imageWithBlackPixels(17, 9, type, type));
+			checkStats(imageWithBlackPixels(300, 200, type, type));
+		}
+	}
+
+	@Test
+	void parallelStatsMatchGetRGB() {
+		boolean parallel = ParallelOps.PARALLEL;
+		int threshold = ParallelOps.PARALLEL_THRESHOLD;
+		try {
+			ParallelOps.PARALLEL = true;
+			ParallelOps.PARALLEL_THRESHOLD = 1;
+			for (int type : ImageOpsTest.TYPES) {
+				checkStats(imageWithBlackPixels(300, 200, type, type));
+			}
+		} finally {
+			ParallelOps.PARALLEL = parallel;
+			ParallelOps.PARALLEL_THRESHOLD = threshold;
+		}
+	}
+
+	@Test
+	void countWithPredicate() {
+		BufferedImage image = imageWithBlackPixels(40, 30, BufferedImage.TYPE_INT_RGB, 7);
+		long expected = 0;
+		for (int y = 0; y < 30; y++)
+			for (int x = 0; x < 40; x++)
+				if (PixelOps.red(image.getRGB(x, y)) > 100)
+					expected++;
+		assertEquals(expected, ImageOps.count(image, p -> PixelOps.red(p) > 100));
+	}
+}
@@ -33,6 +33,13 @@ public enum Kind {
 	RES_red,
 	RES_green,
 	RES_blue,
+	RES_blur,
+	RES_sharpen,
+	RES_edges,
+	RES_mean,
+	RES_min,
+	RES_max,
+	RES_count,
 	CONST, // Z | BLACK | BLUE | CYAN | DARK_GRAY | GRAY | GREEN | LIGHT_GRAY | MAGENTA | ORANGE | PINK | RED | WHITE | YELLOW
 	BOOLEAN_LIT,// TRUE, FALSE
 	COMMA, // ,
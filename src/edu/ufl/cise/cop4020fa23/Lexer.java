@@ -76,6 +76,20 @@ public class Lexer implements ILexer {
         RESERVED_WORDS = Collections.unmodifiableMap(map);
     }
 
+    /**
+     * Names of the builtin image operators. They are not reserved: the lexer returns them as IDENT tokens,
+     * and the parsers only treat them as operators in the position of a unary operator, so programs can
+     * still use them as names.
+     */
+    static final Map<String, Kind> BUILTINS = Map.of(
+            "blur", Kind.RES_blur,
+            "sharpen", Kind.RES_sharpen,
+            "edges", Kind.RES_edges,
+            "mean", Kind.RES_mean,
+            "min", Kind.RES_min,
+            "max", Kind.RES_max,
+            "count", Kind.RES_count);
+
 
     public Lexer(String input) {
         this.chars = (input + "\0").toCharArray();
@@ -0,0 +1,177 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+import edu.ufl.cise.cop4020fa23.runtime.OffHeapImage;
+import edu.ufl.cise.cop4020fa23.runtime.PLCRuntimeException;
+import edu.ufl.cise.cop4020fa23.runtime.PNMImageIO;
+import edu.ufl.cise.cop4020fa23.runtime.RawImageIO;
+
+/**
+ * Checks raw image files and off-heap images against the images written, and the operations on off-heap
+ * images against the getRGB/setRGB reference in ImageOpsTest. The chunks of the off-heap images only hold a
+ * few rows, so that most images span several chunks.
+ */
+class OffHeapImageTest {
+
+	int chunkBytes;
+
+	@BeforeEach
+	void shrinkChunks() {
+		chunkBytes = OffHeapImage.CHUNK_BYTES;
+		OffHeapImage.CHUNK_BYTES = 4 * 64 * Integer.BYTES;
+	}
+
+	@AfterEach
+	void restoreChunks() {
+		OffHeapImage.CHUNK_BYTES = chunkBytes;
+	}
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * @return an image of the given type with the opaque pixels of a random image, as the file formats store them
+	 */
+	static BufferedImage opaqueImage(int w, int h, int type, long seed) {
+		BufferedImage image = new BufferedImage(w, h, type);
+		image.getGraphics().drawImage(ImageOpsTest.randomImage(w, h, BufferedImage.TYPE_INT_RGB, seed), 0, 0, null);
+		return image;
+	}
+
+	static void compareImages(BufferedImage expected, OffHeapImage image) {
+		assertEquals(expected.getWidth(), image.getWidth(), "widths not equal");
+		assertEquals(expected.getHeight(), image.getHeight(), "heights not equal");
+		for (int y = 0; y < expected.getHeight(); y++)
+			for (int x = 0; x < expected.getWidth(); x++)
+				assertEquals(expected.getRGB(x, y), image.getRGB(x, y), "pixels at [" + x + "," + y + "]");
+	}
+
+	@Test
+	void rawFilesAreReadBack() {
+		int[][] sizes = { { 1, 1 }, { 37, 23 }, { 64, 9 }, { 3, 100 } };
+		for (int type : ImageOpsTest.TYPES) {
+			for (int[] size : sizes) {
+				BufferedImage image = opaqueImage(size[0], size[1], type, type + size[0]);
+				String filename = dir.resolve("image.raw").toString();
+				RawImageIO.write(image, filename);
+				assertTrue(RawImageIO.isRawImage(filename));
+				ImageOpsTest.compareImages(image, RawImageIO.read(filename));
+				try (OffHeapImage mapped = OffHeapImage.map(filename)) {
+					compareImages(image, mapped);
+				}
+			}
+		}
+		assertFalse(RawImageIO.isRawImage(dir.resolve("missing.raw").toString()));
+	}
+
+	@Test
+	void invalidRawFilesAreRejected() throws Exception {
+		Path ppm = dir.resolve("image.ppm");
+		PNMImageIO.write(opaqueImage(5, 4, BufferedImage.TYPE_INT_RGB, 1), ppm.toString());
+		assertFalse(RawImageIO.isRawImage(ppm.toString()));
+		assertThrows(PLCRuntimeException.class, () -> RawImageIO.read(ppm.toString()));
+		Path raw = dir.resolve("truncated.raw");
+		RawImageIO.write(opaqueImage(5, 4, BufferedImage.TYPE_INT_RGB, 2), raw.toString());
+		byte[] bytes = Files.readAllBytes(raw);
+		Files.write(raw, Arrays.copyOf(bytes, bytes.length - 1));
+		assertTrue(RawImageIO.isRawImage(raw.toString()));
+		assertThrows(PLCRuntimeException.class, () -> RawImageIO.read(raw.toString()));
+	}
+
+	@Test
+	void modifyingMappedImageDoesNotChangeFile() throws Exception {
+		BufferedImage image = opaqueImage(37, 23, BufferedImage.TYPE_INT_RGB, 3);
+		Path raw = dir.resolve("image.raw");
+		RawImageIO.write(image, raw.toString());
+		try (OffHeapImage mapped = OffHeapImage.map(raw.toString())) {
+			mapped.setRGB(0, 0, 0x123456);
+			mapped.setRGB(36, 22, 0x654321);
+			assertEquals(0xff123456, mapped.getRGB(0, 0));
+			assertEquals(0xff654321, mapped.getRGB(36, 22));
+		}
+		ImageOpsTest.compareImages(image, RawImageIO.read(raw.toString()));
+		assertTrue(raw.toFile().setReadOnly());
+		try (OffHeapImage mapped = OffHeapImage.map(raw.toString())) {
+			compareImages(image, mapped);
+			// a user that ignores permissions, such as root, can still write the file and map it copy-on-write
+			if (!Files.isWritable(raw)) {
+				assertThrows(PLCRuntimeException.class, () -> mapped.setRGB(0, 0, 0));
+			}
+		}
+	}
+
+	@Test
+	void copiesMatchBufferedImage() {
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage image = opaqueImage(37, 23, type, type);
+			try (OffHeapImage copy = OffHeapImage.of(image)) {
+				compareImages(image, copy);
+				ImageOpsTest.compareImages(image, copy.toBufferedImage());
+				copy.setRGB(5, 6, 0xff00ff);
+				copy.setRGB(-1, 0, 0);
+				copy.setRGB(0, 23, 0);
+				assertEquals(0xffff00ff, copy.getRGB(5, 6));
+				assertEquals(0xff000000, copy.getRGB(37, 0));
+			}
+		}
+		OffHeapImage image = OffHeapImage.of(opaqueImage(4, 4, BufferedImage.TYPE_INT_RGB, 4));
+		image.close();
+		image.close();
+		assertTrue(image.isClosed());
+	}
+
+	@Test
+	void opsMatchReference() {
+		BufferedImage right = ImageOpsTest.nonZeroImage(37, 23, BufferedImage.TYPE_INT_RGB, 5);
+		for (OP op : OP.values()) {
+			BufferedImage left = op == OP.DIV || op == OP.MOD
+					? ImageOpsTest.nonZeroImage(37, 23, BufferedImage.TYPE_INT_RGB, 6)
+					: ImageOpsTest.randomImage(37, 23, BufferedImage.TYPE_INT_RGB, 6);
+			try (OffHeapImage l = OffHeapImage.of(left); OffHeapImage r = OffHeapImage.of(right)) {
+				try (OffHeapImage result = ImageOps.binaryImageImageOp(op, l, r)) {
+					compareImages(ImageOpsTest.referenceImageImageOp(op, left, right), result);
+				}
+				try (OffHeapImage result = ImageOps.binaryImagePixelOp(op, l, 0x7f01fe)) {
+					compareImages(ImageOpsTest.referenceImagePixelOp(op, left, 0x7f01fe), result);
+				}
+				try (OffHeapImage result = ImageOps.binaryImageScalarOp(op, l, 3)) {
+					compareImages(ImageOpsTest.referenceImageScalarOp(op, left, 3), result);
+				}
+			}
+		}
+		BufferedImage image = ImageOpsTest.randomImage(37, 23, BufferedImage.TYPE_INT_RGB, 7);
+		try (OffHeapImage copy = OffHeapImage.of(image); OffHeapImage red = ImageOps.extractRed(copy)) {
+			compareImages(ImageOps.extractRed(image), red);
+		}
+	}
+
+	@Test
+	void offHeapImagesAreWritten() {
+		BufferedImage image = opaqueImage(37, 23, BufferedImage.TYPE_INT_RGB, 8);
+		String raw = dir.resolve("image.raw").toString();
+		String ppm = dir.resolve("image.ppm").toString();
+		try (OffHeapImage copy = OffHeapImage.of(image)) {
+			RawImageIO.write(copy, raw);
+			PNMImageIO.write(copy, ppm);
+		}
+		ImageOpsTest.compareImages(image, RawImageIO.read(raw));
+		assertTrue(PNMImageIO.isPNMImage(ppm));
+		ImageOpsTest.compareImages(image, PNMImageIO.read(ppm));
+	}
+}
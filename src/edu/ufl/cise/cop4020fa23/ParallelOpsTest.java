@@ -0,0 +1,110 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.Convolution;
+import edu.ufl.cise.cop4020fa23.runtime.ImageExpr;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+import edu.ufl.cise.cop4020fa23.runtime.ParallelOps;
+
+/**
+ * Checks the kernels run by ParallelOps against the getRGB/setRGB reference in ImageOpsTest, with every
+ * image large enough to be split into bands.
+ */
+class ParallelOpsTest {
+
+	boolean parallel;
+	int threshold;
+
+	@BeforeEach
+	void enableParallel() {
+		parallel = ParallelOps.PARALLEL;
+		threshold = ParallelOps.PARALLEL_THRESHOLD;
+		ParallelOps.PARALLEL = true;
+		ParallelOps.PARALLEL_THRESHOLD = 1;
+	}
+
+	@AfterEach
+	void restoreParallel() {
+		ParallelOps.PARALLEL = parallel;
+		ParallelOps.PARALLEL_THRESHOLD = threshold;
+	}
+
+	@Test
+	void binaryOpsMatchReference() {
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage right = ImageOpsTest.nonZeroImage(131, 97, type, 2);
+			for (OP op : OP.values()) {
+				BufferedImage left = op == OP.DIV || op == OP.MOD ? ImageOpsTest.nonZeroImage(131, 97, type, 1)
+						: ImageOpsTest.randomImage(131, 97, type, 1);
+				ImageOpsTest.compareImages(ImageOpsTest.referenceImageImageOp(op, left, right),
+						ImageOps.binaryImageImageOp(op, left, right));
+				ImageOpsTest.compareImages(ImageOpsTest.referenceImagePixelOp(op, left, 0x123456),
+						ImageOps.binaryImagePixelOp(op, left, 0x123456));
+				ImageOpsTest.compareImages(ImageOpsTest.referenceImageScalarOp(op, left, 3),
+						ImageOps.binaryImageScalarOp(op, left, 3));
+			}
+		}
+	}
+
+	@Test
+	void materializeMatchesReference() {
+		BufferedImage a = ImageOpsTest.randomImage(131, 97, BufferedImage.TYPE_INT_RGB, 3);
+		BufferedImage b = ImageOpsTest.randomImage(131, 97, BufferedImage.TYPE_INT_RGB, 4);
+		BufferedImage expected = ImageOpsTest.referenceImageScalarOp(OP.TIMES,
+				ImageOpsTest.referenceImageImageOp(OP.MINUS, a, b), 2);
+		BufferedImage result = ImageExpr
+				.binaryScalar(OP.TIMES, ImageExpr.binary(OP.MINUS, ImageExpr.of(a), ImageExpr.of(b)), 2).materialize();
+		ImageOpsTest.compareImages(expected, result);
+	}
+
+	@Test
+	void convolveMatchesSequential() {
+		BufferedImage a = ImageOpsTest.randomImage(131, 97, BufferedImage.TYPE_INT_RGB, 5);
+		BufferedImage result = ImageOps.convolve(a, Convolution.BLUR, Convolution.Border.CLAMP);
+		ParallelOps.PARALLEL = false;
+		ImageOpsTest.compareImages(ImageOps.convolve(a, Convolution.BLUR, Convolution.Border.CLAMP), result);
+	}
+
+	@Test
+	void parallelismChangesWhileKernelsRun() throws Exception {
+		BufferedImage left = ImageOpsTest.randomImage(131, 97, BufferedImage.TYPE_INT_RGB, 6);
+		BufferedImage right = ImageOpsTest.randomImage(131, 97, BufferedImage.TYPE_INT_RGB, 7);
+		BufferedImage expected = ImageOpsTest.referenceImageImageOp(OP.PLUS, left, right);
+		int parallelism = ParallelOps.getParallelism();
+		ExecutorService callers = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				results.add(callers.submit(() -> {
+					for (int j = 0; j < 200; j++) {
+						ImageOpsTest.compareImages(expected, ImageOps.binaryImageImageOp(OP.PLUS, left, right));
+					}
+				}));
+			}
+			for (int i = 0; i < 2000; i++) {
+				ParallelOps.setParallelism(1 + i % 3);
+			}
+			for (Future<?> result : results) {
+				// rethrows a RejectedExecutionException from a pool that was shut down under a running kernel
+				result.get();
+			}
+		} finally {
+			callers.shutdown();
+			ParallelOps.setParallelism(parallelism);
+		}
+		assertEquals(parallelism, ParallelOps.getParallelism());
+	}
+}
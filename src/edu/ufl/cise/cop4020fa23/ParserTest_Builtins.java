@@ -0,0 +1,137 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.ast.AST;
+import edu.ufl.cise.cop4020fa23.ast.BinaryExpr;
+import edu.ufl.cise.cop4020fa23.ast.IdentExpr;
+import edu.ufl.cise.cop4020fa23.ast.PostfixExpr;
+import edu.ufl.cise.cop4020fa23.ast.Program;
+import edu.ufl.cise.cop4020fa23.ast.UnaryExpr;
+import edu.ufl.cise.cop4020fa23.exceptions.PLCCompilerException;
+
+/**
+ * The names of the builtin image operators are only operators in the position of a unary operator, so
+ * programs that use them as names still parse.
+ */
+class ParserTest_Builtins {
+
+	AST getExpr(String input) throws PLCCompilerException {
+		return ComponentFactory.makeExpressionParser(input).parse();
+	}
+
+	AST getAST(String input) throws PLCCompilerException {
+		return ComponentFactory.makeParser(input).parse();
+	}
+
+	UnaryExpr checkUnaryExpr(AST e, Kind op) {
+		assertThat("", e, instanceOf(UnaryExpr.class));
+		assertEquals(op, ((UnaryExpr) e).getOp());
+		return (UnaryExpr) e;
+	}
+
+	IdentExpr checkIdentExpr(AST e, String name) {
+		assertThat("", e, instanceOf(IdentExpr.class));
+		assertEquals(name, ((IdentExpr) e).getName());
+		return (IdentExpr) e;
+	}
+
+	@Test
+	void builtinBeforeOperand() throws PLCCompilerException {
+		checkIdentExpr(checkUnaryExpr(getExpr("blur im"), Kind.RES_blur).getExpr(), "im");
+		checkIdentExpr(checkUnaryExpr(getExpr("sharpen im"), Kind.RES_sharpen).getExpr(), "im");
+		checkIdentExpr(checkUnaryExpr(getExpr("edges im"), Kind.RES_edges).getExpr(), "im");
+		checkIdentExpr(checkUnaryExpr(getExpr("mean im"), Kind.RES_mean).getExpr(), "im");
+		checkIdentExpr(checkUnaryExpr(getExpr("min im"), Kind.RES_min).getExpr(), "im");
+		checkIdentExpr(checkUnaryExpr(getExpr("max im"), Kind.RES_max).getExpr(), "im");
+		checkIdentExpr(checkUnaryExpr(getExpr("count im"), Kind.RES_count).getExpr(), "im");
+	}
+
+	@Test
+	void builtinBeforeParenthesizedOperand() throws PLCCompilerException {
+		UnaryExpr e = checkUnaryExpr(getExpr("blur (a + b)"), Kind.RES_blur);
+		assertThat("", e.getExpr(), instanceOf(BinaryExpr.class));
+	}
+
+	@Test
+	void nestedBuiltins() throws PLCCompilerException {
+		UnaryExpr e = checkUnaryExpr(getExpr("edges blur im"), Kind.RES_edges);
+		checkIdentExpr(checkUnaryExpr(e.getExpr(), Kind.RES_blur).getExpr(), "im");
+	}
+
+	@Test
+	void builtinOperandMayBeNamedLikeBuiltin() throws PLCCompilerException {
+		checkIdentExpr(checkUnaryExpr(getExpr("blur edges"), Kind.RES_blur).getExpr(), "edges");
+	}
+
+	@Test
+	void builtinNameAsOperand() throws PLCCompilerException {
+		BinaryExpr e = (BinaryExpr) getExpr("blur + sharpen");
+		checkIdentExpr(e.getLeftExpr(), "blur");
+		checkIdentExpr(e.getRightExpr(), "sharpen");
+		checkIdentExpr(getExpr("edges"), "edges");
+	}
+
+	@Test
+	void countOfBuiltinResult() throws PLCCompilerException {
+		UnaryExpr e = checkUnaryExpr(getExpr("count edges im"), Kind.RES_count);
+		checkIdentExpr(checkUnaryExpr(e.getExpr(), Kind.RES_edges).getExpr(), "im");
+	}
+
+	@Test
+	void builtinNamesInArithmetic() throws PLCCompilerException {
+		BinaryExpr e = (BinaryExpr) getExpr("(max - min) / count");
+		assertEquals(Kind.DIV, e.getOp().kind());
+		BinaryExpr range = (BinaryExpr) e.getLeftExpr();
+		checkIdentExpr(range.getLeftExpr(), "max");
+		checkIdentExpr(range.getRightExpr(), "min");
+		checkIdentExpr(e.getRightExpr(), "count");
+	}
+
+	@Test
+	void builtinNameFollowedByMinus() throws PLCCompilerException {
+		BinaryExpr e = (BinaryExpr) getExpr("blur - 1");
+		assertEquals(Kind.MINUS, e.getOp().kind());
+		checkIdentExpr(e.getLeftExpr(), "blur");
+	}
+
+	@Test
+	void builtinNameWithPixelSelector() throws PLCCompilerException {
+		AST e = getExpr("edges[1,2]:red");
+		assertThat("", e, instanceOf(PostfixExpr.class));
+		checkIdentExpr(((PostfixExpr) e).primary(), "edges");
+	}
+
+	@Test
+	void programUsingBuiltinNamesAsNames() throws PLCCompilerException {
+		String input = """
+				int f(int blur, image edges) <:
+				int sharpen = blur * 2;
+				edges[1,2] = [sharpen, blur, 5];
+				sharpen = sharpen + edges[1,1]:red;
+				^sharpen - blur;
+				:>
+				""";
+		Program program = (Program) getAST(input);
+		assertEquals("blur", program.getParams().get(0).getName());
+		assertEquals("edges", program.getParams().get(1).getName());
+	}
+
+	@Test
+	void loopUsingStatisticNamesAsNames() throws PLCCompilerException {
+		String input = """
+				int f(int max) <:
+				int count = 1;
+				int min = 1;
+				do count < max -> <: count = count + min; :> od;
+				^count;
+				:>
+				""";
+		Program program = (Program) getAST(input);
+		assertEquals("max", program.getParams().get(0).getName());
+	}
+}
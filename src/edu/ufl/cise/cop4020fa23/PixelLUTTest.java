@@ -0,0 +1,83 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageExpr;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+import edu.ufl.cise.cop4020fa23.runtime.PixelLUT;
+
+/**
+ * Checks lookup tables, their composition, and the image operations that use them, against the
+ * getRGB/setRGB reference in ImageOpsTest.
+ */
+class PixelLUTTest {
+
+	static final int[] SCALARS = { 1, 2, 3, 7, 255, 256, -1, -100, 1 << 24 | 3 };
+
+	@Test
+	void scalarTablesMatchReference() {
+		BufferedImage image = ImageOpsTest.randomImage(31, 17, BufferedImage.TYPE_INT_RGB, 1);
+		for (OP op : OP.values()) {
+			for (int scalar : SCALARS) {
+				PixelLUT lut = PixelLUT.scalar(op, scalar);
+				for (int v = 0; v < 256; v++) {
+					int pixel = v << 16 | (255 - v) << 8 | v / 2;
+					assertEquals(ImageOpsTest.referenceScalarOp(op, pixel, scalar), lut.apply(pixel), op + " " + scalar);
+				}
+				ImageOpsTest.compareImages(ImageOpsTest.referenceImageScalarOp(op, image, scalar),
+						ImageOps.applyLUT(image, lut));
+			}
+		}
+	}
+
+	@Test
+	void pixelTablesMatchReference() {
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage image = ImageOpsTest.randomImage(31, 17, type, type);
+			for (OP op : new OP[] { OP.PLUS, OP.MINUS, OP.TIMES }) {
+				ImageOpsTest.compareImages(ImageOpsTest.referenceImagePixelOp(op, image, 0x03807f),
+						ImageOps.applyLUT(image, PixelLUT.pixel(op, 0x03807f)));
+			}
+		}
+		assertThrows(IllegalArgumentException.class, () -> PixelLUT.pixel(OP.DIV, 0x010101));
+		assertThrows(ArithmeticException.class, () -> PixelLUT.scalar(OP.MOD, 0));
+	}
+
+	@Test
+	void composedTablesMatchSuccessiveOps() {
+		BufferedImage image = ImageOpsTest.randomImage(31, 17, BufferedImage.TYPE_INT_RGB, 2);
+		// (image * 3 + 10) / 2 - [1,2,3] % 5
+		BufferedImage expected = ImageOpsTest.referenceImageScalarOp(OP.MOD,
+				ImageOpsTest.referenceImagePixelOp(OP.MINUS, ImageOpsTest.referenceImageScalarOp(OP.DIV,
+						ImageOpsTest.referenceImageScalarOp(OP.PLUS, ImageOpsTest.referenceImageScalarOp(OP.TIMES, image, 3), 10),
+						2), 0x010203),
+				5);
+		PixelLUT lut = PixelLUT.scalar(OP.TIMES, 3).then(PixelLUT.scalar(OP.PLUS, 10)).then(PixelLUT.scalar(OP.DIV, 2))
+				.then(PixelLUT.pixel(OP.MINUS, 0x010203)).then(PixelLUT.scalar(OP.MOD, 5));
+		ImageOpsTest.compareImages(expected, ImageOps.applyLUT(image, lut));
+		ImageExpr expr = ImageExpr.binaryScalar(OP.MOD, ImageExpr.binary(OP.MINUS, ImageExpr.binaryScalar(OP.DIV,
+				ImageExpr.binaryScalar(OP.PLUS, ImageExpr.binaryScalar(OP.TIMES, ImageExpr.of(image), 3), 10), 2),
+				0x010203), 5);
+		ImageOpsTest.compareImages(expected, expr.materialize());
+		ImageOpsTest.compareImages(image, ImageOps.applyLUT(image, PixelLUT.identity()));
+	}
+
+	@Test
+	void imageOpsWithConstantsMatchReference() {
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage image = ImageOpsTest.randomImage(31, 17, type, type + 3);
+			for (OP op : OP.values()) {
+				for (int scalar : SCALARS) {
+					ImageOpsTest.compareImages(ImageOpsTest.referenceImageScalarOp(op, image, scalar),
+							ImageOps.binaryImageScalarOp(op, image, scalar));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.PixelOps;
+
+/**
+ * Checks the methods of PixelOps that operate on all channels of a packed pixel at once against the
+ * same operations on the channels one at a time.
+ */
+class PixelOpsTest {
+
+	/** Channel values at the edges of the carries and saturation */
+	static final int[] EDGES = { 0, 1, 2, 126, 127, 128, 129, 253, 254, 255 };
+
+	static int clampedPack(int red, int grn, int blu) {
+		return 0xff000000 | ImageOpsTest.clamp(red) << 16 | ImageOpsTest.clamp(grn) << 8 | ImageOpsTest.clamp(blu);
+	}
+
+	/**
+	 * Pixels with every combination of channel values in EDGES, and random pixels, all with random alpha
+	 */
+	static int[] pixels() {
+		Random random = new Random(1);
+		int[] pixels = new int[EDGES.length * EDGES.length * EDGES.length + 1000];
+		int i = 0;
+		for (int r : EDGES)
+			for (int g : EDGES)
+				for (int b : EDGES)
+					pixels[i++] = random.nextInt(256) << 24 | r << 16 | g << 8 | b;
+		while (i < pixels.length) {
+			pixels[i++] = random.nextInt();
+		}
+		return pixels;
+	}
+
+	@Test
+	void addAndSubtractMatchChannels() {
+		int[] pixels = pixels();
+		for (int p0 : pixels) {
+			for (int k = 0; k < pixels.length; k += 37) {
+				int p1 = pixels[k];
+				int r0 = PixelOps.red(p0), g0 = PixelOps.green(p0), b0 = PixelOps.blue(p0);
+				int r1 = PixelOps.red(p1), g1 = PixelOps.green(p1), b1 = PixelOps.blue(p1);
+				assertEquals(clampedPack(r0 + r1, g0 + g1, b0 + b1), PixelOps.addSaturated(p0, p1));
+				assertEquals(clampedPack(r0 - r1, g0 - g1, b0 - b1), PixelOps.subtractSaturated(p0, p1));
+			}
+		}
+	}
+
+	@Test
+	void scalarOpsMatchChannels() {
+		int[] scalars = { 0, 1, 2, 3, 127, 128, 255, 256, 257, 1000, Integer.MAX_VALUE, -1, -2, -255, -256, -1000,
+				Integer.MIN_VALUE };
+		for (int p : pixels()) {
+			int r = PixelOps.red(p), g = PixelOps.green(p), b = PixelOps.blue(p);
+			for (int s : scalars) {
+				long lr = (long) r + s, lg = (long) g + s, lb = (long) b + s;
+				assertEquals(clampedPack((int) Math.max(-1, Math.min(lr, 256)), (int) Math.max(-1, Math.min(lg, 256)),
+						(int) Math.max(-1, Math.min(lb, 256))), PixelOps.addScalarSaturated(p, s), "+" + s);
+				long pr = (long) r * s, pg = (long) g * s, pb = (long) b * s;
+				assertEquals(clampedPack((int) Math.max(-1, Math.min(pr, 256)), (int) Math.max(-1, Math.min(pg, 256)),
+						(int) Math.max(-1, Math.min(pb, 256))), PixelOps.scaleSaturated(p, s), "*" + s);
+			}
+		}
+	}
+
+	@Test
+	void packAndSetMatchChannels() {
+		int[] values = { Integer.MIN_VALUE, -256, -255, -1, 0, 1, 127, 128, 254, 255, 256, 1000, Integer.MAX_VALUE };
+		for (int p : pixels()) {
+			int r = PixelOps.red(p), g = PixelOps.green(p), b = PixelOps.blue(p);
+			for (int v : values) {
+				assertEquals(clampedPack(v, g, b), PixelOps.setRed(p, v));
+				assertEquals(clampedPack(r, v, b), PixelOps.setGreen(p, v));
+				assertEquals(clampedPack(r, g, v), PixelOps.setBlue(p, v));
+				assertEquals(clampedPack(v, g, v), PixelOps.pack(v, g, v));
+			}
+		}
+	}
+}
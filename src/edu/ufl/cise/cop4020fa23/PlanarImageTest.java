@@ -0,0 +1,118 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+import edu.ufl.cise.cop4020fa23.runtime.PLCRuntimeException;
+import edu.ufl.cise.cop4020fa23.runtime.PlanarImage;
+
+/**
+ * Checks planar images and the ImageOps overloads for them against the same operations on BufferedImages,
+ * and against the getRGB/setRGB reference in ImageOpsTest.
+ */
+class PlanarImageTest {
+
+	static final int[] SCALARS = { 1, 3, 200, -7, 1 << 24 | 5 };
+
+	static void compareImages(BufferedImage expected, PlanarImage image) {
+		assertEquals(expected.getWidth(), image.getWidth(), "widths not equal");
+		assertEquals(expected.getHeight(), image.getHeight(), "heights not equal");
+		for (int y = 0; y < expected.getHeight(); y++)
+			for (int x = 0; x < expected.getWidth(); x++)
+				assertEquals(expected.getRGB(x, y) | 0xff000000, image.getRGB(x, y), "pixels at [" + x + "," + y + "]");
+	}
+
+	@Test
+	void copiesMatchBufferedImage() {
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage image = ImageOpsTest.randomImage(37, 23, type, type);
+			BufferedImage subimage = ImageOpsTest.randomImage(45, 30, type, type + 1).getSubimage(4, 5, 37, 23);
+			for (BufferedImage im : new BufferedImage[] { image, subimage }) {
+				PlanarImage planar = PlanarImage.of(im);
+				compareImages(im, planar);
+				BufferedImage back = planar.toBufferedImage();
+				assertEquals(BufferedImage.TYPE_INT_RGB, back.getType());
+				compareImages(back, planar);
+				assertEquals(planar, PlanarImage.of(back));
+			}
+		}
+	}
+
+	@Test
+	void accessorsMatchBufferedImage() {
+		BufferedImage image = ImageOpsTest.randomImage(9, 6, BufferedImage.TYPE_INT_RGB, 2);
+		PlanarImage planar = PlanarImage.of(image);
+		PlanarImage copy = planar.copy();
+		planar.setRGB(3, 4, 0x123456);
+		image.setRGB(3, 4, 0xff123456);
+		planar.setRGB(-1, 0, 0);
+		planar.setRGB(9, 0, 0);
+		compareImages(image, planar);
+		assertEquals(0xff000000, planar.getRGB(0, 6));
+		assertNotEquals(planar, copy);
+		copy.setRGB(3, 4, 0x123456);
+		assertEquals(planar, copy);
+		assertEquals(planar.hashCode(), copy.hashCode());
+		copy.setAllPixels(0x0a0b0c);
+		assertEquals(0xff0a0b0c, copy.getRGB(8, 5));
+		assertThrows(PLCRuntimeException.class, () -> new PlanarImage(0, 5));
+	}
+
+	@Test
+	void opsMatchBufferedImageOps() {
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage right = ImageOpsTest.nonZeroImage(19, 11, type, 3);
+			for (OP op : OP.values()) {
+				// the green channel of DIV and MOD divides by the left component
+				BufferedImage left = op == OP.DIV || op == OP.MOD ? ImageOpsTest.nonZeroImage(19, 11, type, 4)
+						: ImageOpsTest.randomImage(19, 11, type, 4);
+				PlanarImage l = PlanarImage.of(left);
+				PlanarImage r = PlanarImage.of(right);
+				compareImages(ImageOps.binaryImageImageOp(op, left, right), ImageOps.binaryImageImageOp(op, l, r));
+				compareImages(ImageOpsTest.referenceImageImageOp(op, left, right), ImageOps.binaryImageImageOp(op, l, r));
+				for (int pixel : new int[] { 0x123456, 0x7f01fe, 0xffffff }) {
+					compareImages(ImageOps.binaryImagePixelOp(op, left, pixel), ImageOps.binaryImagePixelOp(op, l, pixel));
+					compareImages(ImageOpsTest.referenceImagePixelOp(op, left, pixel),
+							ImageOps.binaryImagePixelOp(op, l, pixel));
+				}
+				for (int scalar : SCALARS) {
+					compareImages(ImageOps.binaryImageScalarOp(op, left, scalar), ImageOps.binaryImageScalarOp(op, l, scalar));
+					compareImages(ImageOpsTest.referenceImageScalarOp(op, left, scalar),
+							ImageOps.binaryImageScalarOp(op, l, scalar));
+				}
+			}
+		}
+	}
+
+	@Test
+	void resultCanBeOperand() {
+		BufferedImage left = ImageOpsTest.randomImage(19, 11, BufferedImage.TYPE_INT_RGB, 5);
+		BufferedImage right = ImageOpsTest.randomImage(19, 11, BufferedImage.TYPE_INT_RGB, 6);
+		PlanarImage l = PlanarImage.of(left);
+		ImageOps.binaryImageImageOp(OP.PLUS, l, PlanarImage.of(right), l);
+		ImageOps.binaryImageScalarOp(OP.TIMES, l, 2, l);
+		compareImages(ImageOps.binaryImageScalarOp(OP.TIMES, ImageOps.binaryImageImageOp(OP.PLUS, left, right), 2), l);
+		assertThrows(PLCRuntimeException.class,
+				() -> ImageOps.binaryImageImageOp(OP.PLUS, l, new PlanarImage(19, 10)));
+		assertThrows(PLCRuntimeException.class,
+				() -> ImageOps.binaryImageScalarOp(OP.PLUS, l, 1, new PlanarImage(18, 11)));
+	}
+
+	@Test
+	void extractedChannelsMatchBufferedImage() {
+		BufferedImage image = ImageOpsTest.randomImage(19, 11, BufferedImage.TYPE_3BYTE_BGR, 7);
+		PlanarImage planar = PlanarImage.of(image);
+		compareImages(ImageOps.extractRed(image), ImageOps.extractRed(planar));
+		compareImages(ImageOps.extractGrn(image), ImageOps.extractGrn(planar));
+		compareImages(ImageOps.extractBlu(image), ImageOps.extractBlu(planar));
+		assertTrue(ImageOps.equals(planar, PlanarImage.of(image)));
+	}
+}
@@ -0,0 +1,164 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ParallelOps;
+import edu.ufl.cise.cop4020fa23.runtime.PixelOps;
+import edu.ufl.cise.cop4020fa23.runtime.Resampler;
+import edu.ufl.cise.cop4020fa23.runtime.Resampler.Mode;
+
+/**
+ * Checks Resampler against AffineTransformOp for NEAREST, and against interpolation and area averaging
+ * computed with doubles and getRGB for BILINEAR and AREA.
+ */
+class ResamplerTest {
+
+	static final int[][] SIZES = { { 40, 30 }, { 13, 7 }, { 97, 61 }, { 1, 1 }, { 40, 1 } };
+
+	static BufferedImage copy(BufferedImage image) {
+		return new BufferedImage(image.getColorModel(), image.copyData(null), image.isAlphaPremultiplied(), null);
+	}
+
+	static int channel(int pixel, int k) {
+		return pixel >> (16 - 8 * k) & 0xff;
+	}
+
+	static double bilinearChannel(BufferedImage image, double x, double y, int k) {
+		int w = image.getWidth();
+		int h = image.getHeight();
+		double cx = Math.min(Math.max(x, 0), w - 1);
+		double cy = Math.min(Math.max(y, 0), h - 1);
+		int x0 = (int) cx;
+		int y0 = (int) cy;
+		int x1 = Math.min(x0 + 1, w - 1);
+		int y1 = Math.min(y0 + 1, h - 1);
+		double fx = cx - x0;
+		double fy = cy - y0;
+		double top = (1 - fx) * channel(image.getRGB(x0, y0), k) + fx * channel(image.getRGB(x1, y0), k);
+		double bottom = (1 - fx) * channel(image.getRGB(x0, y1), k) + fx * channel(image.getRGB(x1, y1), k);
+		return (1 - fy) * top + fy * bottom;
+	}
+
+	static double areaChannel(BufferedImage image, double x0, double y0, double x1, double y1, int k) {
+		double sum = 0;
+		for (int y = (int) y0; y < Math.min(Math.ceil(y1), image.getHeight()); y++)
+			for (int x = (int) x0; x < Math.min(Math.ceil(x1), image.getWidth()); x++) {
+				double covered = (Math.min(x1, x + 1) - Math.max(x0, x)) * (Math.min(y1, y + 1) - Math.max(y0, y));
+				sum += covered * channel(image.getRGB(x, y), k);
+			}
+		return sum / ((x1 - x0) * (y1 - y0));
+	}
+
+	/**
+	 * Checks that every channel of result is within 1 of the value computed with doubles.
+	 */
+	static void checkResampled(BufferedImage image, BufferedImage result, Mode mode) {
+		int w = image.getWidth();
+		int h = image.getHeight();
+		int rw = result.getWidth();
+		int rh = result.getHeight();
+		double sx = (double) w / rw;
+		double sy = (double) h / rh;
+		for (int y = 0; y < rh; y++)
+			for (int x = 0; x < rw; x++) {
+				int pixel = result.getRGB(x, y);
+				for (int k = 0; k < 3; k++) {
+					double expected = mode == Mode.BILINEAR
+							? bilinearChannel(image, (x + 0.5) * sx - 0.5, (y + 0.5) * sy - 0.5, k)
+							: areaChannel(image, x * sx, y * sy, (x + 1) * sx, (y + 1) * sy, k);
+					assertTrue(Math.abs(channel(pixel, k) - expected) <= 1, mode + " pixel at [" + x + "," + y
+							+ "] channel " + k + ", expected: " + expected + ", but was: " + channel(pixel, k));
+				}
+			}
+	}
+
+	@Test
+	void nearestMatchesAffineTransformOp() {
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage image = ImageOpsTest.randomImage(50, 35, type, type);
+			for (int[] size : SIZES) {
+				// the transform of the original implementation of copyAndResize
+				BufferedImage expected = new AffineTransformOp(
+						AffineTransform.getScaleInstance((float) size[0] / 50, (float) size[1] / 35),
+						AffineTransformOp.TYPE_NEAREST_NEIGHBOR).filter(image, null);
+				ImageOpsTest.compareImages(expected, Resampler.resize(image, size[0], size[1], Mode.NEAREST));
+			}
+		}
+	}
+
+	@Test
+	void bilinearAndAreaMatchReference() {
+		for (int type : ImageOpsTest.TYPES) {
+			BufferedImage image = ImageOpsTest.randomImage(50, 35, type, type);
+			for (Mode mode : new Mode[] { Mode.BILINEAR, Mode.AREA }) {
+				for (int[] size : SIZES) {
+					BufferedImage result = Resampler.resize(image, size[0], size[1], mode);
+					assertEquals(size[0], result.getWidth());
+					assertEquals(size[1], result.getHeight());
+					checkResampled(image, result, mode);
+				}
+			}
+		}
+	}
+
+	@Test
+	void parallelResizeMatchesSequential() {
+		BufferedImage image = ImageOpsTest.randomImage(300, 200, BufferedImage.TYPE_INT_RGB, 5);
+		boolean parallel = ParallelOps.PARALLEL;
+		int threshold = ParallelOps.PARALLEL_THRESHOLD;
+		for (Mode mode : Mode.values()) {
+			BufferedImage expected = Resampler.resize(image, 77, 333, mode);
+			try {
+				ParallelOps.PARALLEL = true;
+				ParallelOps.PARALLEL_THRESHOLD = 1;
+				ImageOpsTest.compareImages(expected, Resampler.resize(image, 77, 333, mode));
+			} finally {
+				ParallelOps.PARALLEL = parallel;
+				ParallelOps.PARALLEL_THRESHOLD = threshold;
+			}
+		}
+	}
+
+	@Test
+	void resizeIntoSubimageOfSource() {
+		for (Mode mode : Mode.values()) {
+			BufferedImage image = ImageOpsTest.randomImage(40, 30, BufferedImage.TYPE_INT_RGB, 6);
+			BufferedImage expected = new BufferedImage(20, 15, BufferedImage.TYPE_INT_RGB);
+			Resampler.resizeInto(copy(image), expected, mode);
+			// the lower left quarter of the image, which is read after the rows of it are written
+			BufferedImage dest = image.getSubimage(0, 15, 20, 15);
+			Resampler.resizeInto(image, dest, mode);
+			ImageOpsTest.compareImages(expected, dest);
+		}
+	}
+
+	@Test
+	void resizeIntoSameImage() {
+		for (Mode mode : Mode.values()) {
+			BufferedImage image = ImageOpsTest.randomImage(40, 30, BufferedImage.TYPE_INT_RGB, 7);
+			BufferedImage expected = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+			Resampler.resizeInto(copy(image), expected, mode);
+			Resampler.resizeInto(image, image, mode);
+			ImageOpsTest.compareImages(expected, image);
+		}
+	}
+
+	@Test
+	void resultsAreOpaque() {
+		BufferedImage image = ImageOpsTest.randomImage(20, 10, BufferedImage.TYPE_INT_ARGB, 8);
+		for (Mode mode : new Mode[] { Mode.BILINEAR, Mode.AREA }) {
+			BufferedImage result = ImageOps.copyAndResize(image, 7, 5, mode);
+			for (int y = 0; y < 5; y++)
+				for (int x = 0; x < 7; x++)
+					assertEquals(PixelOps.SELECT_ALPHA, result.getRGB(x, y) & PixelOps.SELECT_ALPHA);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+import edu.ufl.cise.cop4020fa23.runtime.PLCRuntimeException;
+import edu.ufl.cise.cop4020fa23.runtime.PNMImageIO;
+import edu.ufl.cise.cop4020fa23.runtime.PixelLUT;
+import edu.ufl.cise.cop4020fa23.runtime.RawImageIO;
+import edu.ufl.cise.cop4020fa23.runtime.StreamOps;
+import edu.ufl.cise.cop4020fa23.runtime.StreamOps.Format;
+import edu.ufl.cise.cop4020fa23.runtime.StripReader;
+import edu.ufl.cise.cop4020fa23.runtime.StripWriter;
+
+/**
+ * Checks streaming transforms against the same operations on the whole image, and the strips read and
+ * written against the images in the files. The strips only hold a few rows, so that images are processed
+ * as several strips and a shorter last one.
+ */
+class StreamOpsTest {
+
+	int stripRows;
+
+	@BeforeEach
+	void shrinkStrips() {
+		stripRows = StreamOps.STRIP_ROWS;
+		StreamOps.STRIP_ROWS = 5;
+	}
+
+	@AfterEach
+	void restoreStrips() {
+		StreamOps.STRIP_ROWS = stripRows;
+	}
+
+	@TempDir
+	Path dir;
+
+	String file(String name) {
+		return dir.resolve(name).toString();
+	}
+
+	/**
+	 * @return the pixels of image as read back from a PGM file, with all components equal to the luma
+	 */
+	static BufferedImage gray(BufferedImage image) {
+		BufferedImage result = ImageOps.makeImage(image.getWidth(), image.getHeight());
+		for (int y = 0; y < image.getHeight(); y++)
+			for (int x = 0; x < image.getWidth(); x++) {
+				int p = image.getRGB(x, y);
+				int luma = (77 * (p >> 16 & 0xff) + 150 * (p >> 8 & 0xff) + 29 * (p & 0xff) + 128) >> 8;
+				result.setRGB(x, y, 0xff000000 | luma * 0x010101);
+			}
+		return result;
+	}
+
+	@Test
+	void transformMatchesWholeImageOp() {
+		BufferedImage image = ImageOpsTest.randomImage(37, 23, BufferedImage.TYPE_INT_RGB, 1);
+		PixelLUT lut = PixelLUT.scalar(OP.TIMES, 3).then(PixelLUT.pixel(OP.MINUS, 0x102030));
+		BufferedImage expected = ImageOps.applyLUT(image, lut);
+		PNMImageIO.write(image, file("source.ppm"));
+		RawImageIO.write(image, file("source.raw"));
+		for (int rows : new int[] { 1, 5, 23, 100 }) {
+			StreamOps.STRIP_ROWS = rows;
+			for (String source : new String[] { "source.ppm", "source.raw" }) {
+				StreamOps.transform(file(source), file("result.ppm"), strip -> ImageOps.applyLUT(strip, lut));
+				ImageOpsTest.compareImages(expected, PNMImageIO.read(file("result.ppm")));
+				StreamOps.transform(file(source), file("result.raw"), strip -> ImageOps.applyLUT(strip, lut));
+				ImageOpsTest.compareImages(expected, RawImageIO.read(file("result.raw")));
+				StreamOps.transform(file(source), file("result.pgm"), strip -> ImageOps.applyLUT(strip, lut));
+				ImageOpsTest.compareImages(gray(expected), PNMImageIO.read(file("result.pgm")));
+			}
+		}
+	}
+
+	@Test
+	void stripModifiedInPlaceIsWritten() {
+		BufferedImage image = ImageOpsTest.randomImage(17, 12, BufferedImage.TYPE_INT_RGB, 2);
+		RawImageIO.write(image, file("source.raw"));
+		StreamOps.transform(file("source.raw"), file("result.raw"), strip -> {
+			strip.setRGB(0, 0, 0xff123456);
+			return strip;
+		});
+		for (int y = 0; y < 12; y += 5) {
+			image.setRGB(0, y, 0xff123456);
+		}
+		ImageOpsTest.compareImages(image, RawImageIO.read(file("result.raw")));
+	}
+
+	@Test
+	void grayFilesAreReadAsEqualComponents() {
+		BufferedImage image = ImageOpsTest.randomImage(19, 11, BufferedImage.TYPE_INT_RGB, 3);
+		StreamOps.transform(writePPM(image), file("gray.pgm"), strip -> strip);
+		ImageOpsTest.compareImages(gray(image), PNMImageIO.read(file("gray.pgm")));
+		StreamOps.transform(file("gray.pgm"), file("gray.ppm"), strip -> strip);
+		ImageOpsTest.compareImages(gray(image), PNMImageIO.read(file("gray.ppm")));
+	}
+
+	String writePPM(BufferedImage image) {
+		String filename = file("image.ppm");
+		PNMImageIO.write(image, filename);
+		return filename;
+	}
+
+	@Test
+	void sixteenBitSamplesAreScaled() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write("P6\n# sixteen bit samples\n2 1\n65535\n".getBytes(StandardCharsets.US_ASCII));
+		for (int sample : new int[] { 0, 65535, 32768, 257, 514, 65534 }) {
+			out.write(sample >> 8);
+			out.write(sample & 0xff);
+		}
+		Files.write(dir.resolve("wide.ppm"), out.toByteArray());
+		try (StripReader in = StripReader.open(file("wide.ppm"))) {
+			int[] pixels = new int[2];
+			in.read(pixels, 1);
+			assertEquals(0x00ff80, pixels[0]);
+			assertEquals(0x0102ff, pixels[1]);
+		}
+	}
+
+	@Test
+	void readerReadsAndSkipsRows() {
+		BufferedImage image = ImageOpsTest.randomImage(9, 10, BufferedImage.TYPE_INT_RGB, 4);
+		RawImageIO.write(image, file("image.raw"));
+		for (String filename : new String[] { writePPM(image), file("image.raw") }) {
+			try (StripReader in = StripReader.open(filename)) {
+				assertEquals(9, in.getWidth());
+				assertEquals(10, in.getHeight());
+				in.skip(3);
+				int[] pixels = new int[9 * 4];
+				in.read(pixels, 4);
+				assertEquals(7, in.getRow());
+				for (int y = 0; y < 4; y++)
+					for (int x = 0; x < 9; x++)
+						assertEquals(image.getRGB(x, y + 3) & 0xffffff, pixels[y * 9 + x]);
+				assertThrows(PLCRuntimeException.class, () -> in.read(new int[9 * 4], 4));
+				assertThrows(PLCRuntimeException.class, () -> in.skip(4));
+			}
+		}
+		assertThrows(PLCRuntimeException.class, () -> StripReader.open(file("missing.ppm")));
+	}
+
+	@Test
+	void writerChecksRows() {
+		StripWriter out = StripWriter.open(file("short.raw"), 4, 3);
+		out.write(new int[4 * 2], 2);
+		assertThrows(PLCRuntimeException.class, () -> out.write(new int[4 * 2], 2));
+		assertThrows(PLCRuntimeException.class, () -> out.write(ImageOps.makeImage(5, 1)));
+		assertThrows(PLCRuntimeException.class, out::close);
+		assertThrows(PLCRuntimeException.class, () -> StripWriter.open(file("image.png"), 4, 3));
+		assertThrows(PLCRuntimeException.class, () -> StripWriter.open(file("image.ppm"), 0, 3));
+	}
+
+	@Test
+	void sizeChangingOpIsRejected() {
+		writePPM(ImageOpsTest.randomImage(9, 10, BufferedImage.TYPE_INT_RGB, 5));
+		assertThrows(PLCRuntimeException.class,
+				() -> StreamOps.transform(file("image.ppm"), file("result.ppm"), strip -> ImageOps.makeImage(9, 1)));
+	}
+
+	@Test
+	void formatsAreGivenByExtension() {
+		assertEquals(Format.PPM, Format.of("a/b.ppm"));
+		assertEquals(Format.PGM, Format.of("b.PGM"));
+		assertEquals(Format.RAW, Format.of("c.d.raw"));
+		assertNull(Format.of("e.png"));
+		assertNull(Format.of("raw"));
+	}
+}
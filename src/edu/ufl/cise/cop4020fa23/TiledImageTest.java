@@ -0,0 +1,142 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+import edu.ufl.cise.cop4020fa23.runtime.TiledImage;
+
+/**
+ * Checks tiled images against the same operations on BufferedImages, with a cache that only holds a few
+ * tiles so that tiles are evicted and spilled.
+ */
+class TiledImageTest {
+
+	long cacheBytes;
+
+	@BeforeEach
+	void shrinkCache() {
+		cacheBytes = TiledImage.CACHE_BYTES;
+		TiledImage.CACHE_BYTES = 4 * 16 * 16 * Integer.BYTES;
+	}
+
+	@AfterEach
+	void restoreCache() {
+		TiledImage.CACHE_BYTES = cacheBytes;
+	}
+
+	static TiledImage tiled(BufferedImage image) {
+		return new TiledImage(image.getWidth(), image.getHeight(), 16,
+				(x, y, w, h, pixels) -> image.getRGB(x, y, w, h, pixels, 0, w));
+	}
+
+	@Test
+	void pipelineMatchesBufferedImageOps() {
+		BufferedImage a = ImageOpsTest.randomImage(70, 45, BufferedImage.TYPE_INT_RGB, 1);
+		BufferedImage b = ImageOpsTest.randomImage(70, 45, BufferedImage.TYPE_INT_RGB, 2);
+		BufferedImage expected = ImageOps.extractGrn(
+				ImageOps.binaryImageScalarOp(OP.TIMES, ImageOps.binaryImageImageOp(OP.PLUS, a, b), 3));
+		try (TiledImage result = ImageOps.extractGrn(
+				ImageOps.binaryImageScalarOp(OP.TIMES, ImageOps.binaryImageImageOp(OP.PLUS, tiled(a), tiled(b)), 3))) {
+			ImageOpsTest.compareImages(expected, result.toBufferedImage());
+		}
+	}
+
+	@Test
+	void writtenAndMaterializedTilesSurviveEviction() {
+		BufferedImage a = ImageOpsTest.randomImage(70, 45, BufferedImage.TYPE_INT_RGB, 3);
+		BufferedImage expected = ImageOps.binaryImagePixelOp(OP.MINUS, a, 0x102030);
+		try (TiledImage image = ImageOps.binaryImagePixelOp(OP.MINUS, tiled(a), 0x102030)) {
+			image.setRGB(3, 4, 0x123456);
+			expected.setRGB(3, 4, 0x123456);
+			image.materialize();
+			// the source no longer matters
+			a.setRGB(0, 0, 0);
+			ImageOpsTest.compareImages(expected, image.toBufferedImage());
+			image.setRGB(69, 44, 0x654321);
+			expected.setRGB(69, 44, 0x654321);
+			image.materialize();
+			ImageOpsTest.compareImages(expected, image.toBufferedImage());
+		}
+	}
+
+	/**
+	 * Alternating between the pixels of two images evicts the tile each image accessed last, since the cache
+	 * only holds a few tiles and repeated access to the same tile does not move it in the cache.
+	 */
+	@Test
+	void pixelAccessSurvivesEvictionOfLastTile() {
+		BufferedImage a = ImageOpsTest.randomImage(70, 45, BufferedImage.TYPE_INT_RGB, 6);
+		BufferedImage b = ImageOpsTest.randomImage(70, 45, BufferedImage.TYPE_INT_RGB, 7);
+		try (TiledImage image = new TiledImage(70, 45, 16, null); TiledImage other = tiled(b)) {
+			image.setRGB(3, 4, 0x123456);
+			ImageOpsTest.compareImages(b, other.toBufferedImage());
+			assertEquals(0xff123456, image.getRGB(3, 4));
+			for (int y = 0; y < 45; y++)
+				for (int x = 0; x < 70; x++) {
+					image.setRGB(x, y, a.getRGB(x, y));
+					assertEquals(b.getRGB(69 - x, 44 - y), other.getRGB(69 - x, 44 - y));
+				}
+			for (int y = 0; y < 45; y++)
+				for (int x = 0; x < 70; x++) {
+					assertEquals(a.getRGB(x, y), image.getRGB(x, y));
+					assertEquals(b.getRGB(x, 44 - y), other.getRGB(x, 44 - y));
+				}
+			ImageOpsTest.compareImages(a, image.toBufferedImage());
+		}
+	}
+
+	@Test
+	void scaledCopyFitsRequestedSize() {
+		BufferedImage a = ImageOpsTest.randomImage(70, 45, BufferedImage.TYPE_INT_RGB, 4);
+		try (TiledImage image = tiled(a)) {
+			BufferedImage scaled = image.toBufferedImage(35, 35);
+			assertEquals(35, scaled.getWidth());
+			assertEquals(22, scaled.getHeight());
+			for (int y = 0; y < 22; y++)
+				for (int x = 0; x < 35; x++)
+					assertEquals(a.getRGB(x * 70 / 35, y * 45 / 22), scaled.getRGB(x, y));
+			ImageOpsTest.compareImages(a, image.toBufferedImage(100, 100));
+		}
+	}
+
+	@Test
+	void imagesAreUsedConcurrently() {
+		assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+			BufferedImage a = ImageOpsTest.randomImage(70, 45, BufferedImage.TYPE_INT_RGB, 5);
+			BufferedImage expected = ImageOps.binaryImageScalarOp(OP.PLUS, a, 7);
+			ExecutorService threads = Executors.newFixedThreadPool(4);
+			try {
+				List<Future<?>> results = new ArrayList<>();
+				TiledImage shared = tiled(a);
+				for (int i = 0; i < 4; i++) {
+					results.add(threads.submit(() -> {
+						for (int j = 0; j < 20; j++) {
+							try (TiledImage image = ImageOps.binaryImageScalarOp(OP.PLUS, shared, 7)) {
+								ImageOpsTest.compareImages(expected, image.toBufferedImage());
+							}
+						}
+					}));
+				}
+				for (Future<?> result : results) {
+					result.get();
+				}
+			} finally {
+				threads.shutdown();
+			}
+		});
+	}
+}
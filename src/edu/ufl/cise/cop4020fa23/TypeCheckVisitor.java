@@ -228,6 +228,31 @@ public class TypeCheckVisitor implements ASTVisitor {
                     throw new TypeCheckException("not valid op type for unary " + unaryExpr.getOp());
                 }
                 break;
+            case RES_blur:
+            case RES_sharpen:
+            case RES_edges:
+                if (operandType == Type.IMAGE) {
+                    resultType = Type.IMAGE;
+                } else {
+                    throw new TypeCheckException("not valid op type for unary " + unaryExpr.getOp());
+                }
+                break;
+            case RES_mean:
+            case RES_min:
+            case RES_max:
+                if (operandType == Type.IMAGE) {
+                    resultType = Type.PIXEL;
+                } else {
+                    throw new TypeCheckException("not valid op type for unary " + unaryExpr.getOp());
+                }
+                break;
+            case RES_count:
+                if (operandType == Type.IMAGE) {
+                    resultType = Type.INT;
+                } else {
+                    throw new TypeCheckException("not valid op type for unary " + unaryExpr.getOp());
+                }
+                break;
             default:
                 throw new TypeCheckException("unrecognized unary operator");
         }
@@ -261,7 +286,7 @@ public class TypeCheckVisitor implements ASTVisitor {
             throw new TypeCheckException("not valid combo in PostfixExpr.");
         }
 
-        return primaryType;
+        return postfixExpr.getType();
     }
 
 
@@ -291,6 +316,7 @@ public class TypeCheckVisitor implements ASTVisitor {
             if (IN_LVALUE_CONTEXT.equals(arg)) {
                 SyntheticNameDef syntheticNameDef = new SyntheticNameDef(name);
                 symbolTable.insert(syntheticNameDef);
+                identExpr.setNameDef(syntheticNameDef);
                 identExpr.setType(Type.INT);
                 return Type.INT;
             } else {
@@ -298,6 +324,7 @@ public class TypeCheckVisitor implements ASTVisitor {
             }
         }
 
+        identExpr.setNameDef(nameDef);
         identExpr.setType(nameDef.getType());
         return nameDef.getType();
     }
@@ -0,0 +1,70 @@
+package edu.ufl.cise.cop4020fa23;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps;
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+import edu.ufl.cise.cop4020fa23.runtime.VectorOps;
+
+/**
+ * Checks the vectorized kernels, and the scalar loops used without them, against the getRGB/setRGB
+ * reference in ImageOpsTest. The vectorized kernels are only checked if the JVM was started with
+ * --add-modules jdk.incubator.vector.
+ */
+class VectorOpsTest {
+
+	/** Widths that are not multiples of the vector length, so that the scalar tail loops are used too */
+	static final int[] WIDTHS = { 1, 7, 33, 101 };
+
+	static final int[] SCALARS = { 1, 2, 255, -3, 1 << 24 | 5 };
+
+	boolean vectorize;
+
+	@BeforeEach
+	void saveVectorize() {
+		vectorize = VectorOps.VECTORIZE;
+	}
+
+	@AfterEach
+	void restoreVectorize() {
+		VectorOps.VECTORIZE = vectorize;
+	}
+
+	void checkKernels() {
+		for (int width : WIDTHS) {
+			BufferedImage right = ImageOpsTest.nonZeroImage(width, 5, BufferedImage.TYPE_INT_RGB, width);
+			for (OP op : OP.values()) {
+				BufferedImage left = op == OP.DIV || op == OP.MOD
+						? ImageOpsTest.nonZeroImage(width, 5, BufferedImage.TYPE_INT_RGB, width + 1)
+						: ImageOpsTest.randomImage(width, 5, BufferedImage.TYPE_INT_RGB, width + 1);
+				ImageOpsTest.compareImages(ImageOpsTest.referenceImageImageOp(op, left, right),
+						ImageOps.binaryImageImageOp(op, left, right));
+				ImageOpsTest.compareImages(ImageOpsTest.referenceImagePixelOp(op, left, 0x7f01fe),
+						ImageOps.binaryImagePixelOp(op, left, 0x7f01fe));
+				for (int scalar : SCALARS) {
+					ImageOpsTest.compareImages(ImageOpsTest.referenceImageScalarOp(op, left, scalar),
+							ImageOps.binaryImageScalarOp(op, left, scalar));
+				}
+			}
+		}
+	}
+
+	@Test
+	void vectorKernelsMatchReference() {
+		assumeTrue(VectorOps.isAvailable(), "jdk.incubator.vector is not available");
+		VectorOps.VECTORIZE = true;
+		checkKernels();
+	}
+
+	@Test
+	void scalarKernelsMatchReference() {
+		VectorOps.VECTORIZE = false;
+		checkKernels();
+	}
+}
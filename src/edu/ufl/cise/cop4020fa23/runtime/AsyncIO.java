@@ -0,0 +1,133 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads and writes images in the background, so that programs can overlap loading and saving their
+ * images with each other and with computation.
+ *
+ * The reads and writes run on a small pool of daemon threads that is separate from the ParallelOps pool,
+ * since they mostly wait for I/O. Each read is an ordinary FileURLIO.readImage call and goes through the
+ * ImageCache like any other read. The generated code starts the reads of the first few images declared
+ * from string literals in the top-level block of the program at the beginning of apply, joins each one
+ * where the image is declared, and cancels the ones that were not joined when apply exits.
+ */
+public class AsyncIO {
+
+	/**
+	 * Number of threads used for background reads and writes. It is read once, when the first read or write
+	 * is started, so later changes have no effect.
+	 */
+	public static int IO_THREADS = 4;
+
+	private static volatile ExecutorService executor;
+
+	/**
+	 * Starts reading the image from source, as FileURLIO.readImage(source).
+	 */
+	public static CompletableFuture<BufferedImage> readImage(String source) {
+		return CompletableFuture.supplyAsync(() -> FileURLIO.readImage(source), getExecutor());
+	}
+
+	/**
+	 * Starts reading the image from source with the given size, as FileURLIO.readImage(source, w, h).
+	 */
+	public static CompletableFuture<BufferedImage> readImage(String source, Integer w, Integer h) {
+		return CompletableFuture.supplyAsync(() -> FileURLIO.readImage(source, w, h), getExecutor());
+	}
+
+	/**
+	 * Starts writing image to the named file, as FileURLIO.writeImage(image, filename). The image must not
+	 * be modified until the write has completed.
+	 */
+	public static CompletableFuture<Void> writeImage(BufferedImage image, String filename) {
+		return CompletableFuture.runAsync(() -> FileURLIO.writeImage(image, filename), getExecutor());
+	}
+
+	/**
+	 * Starts writing image to the named file, as FileURLIO.writeImage(image, filename, pngCompressionLevel).
+	 * The image must not be modified until the write has completed.
+	 */
+	public static CompletableFuture<Void> writeImage(BufferedImage image, String filename, int pngCompressionLevel) {
+		return CompletableFuture.runAsync(() -> FileURLIO.writeImage(image, filename, pngCompressionLevel),
+				getExecutor());
+	}
+
+	/**
+	 * Starts writing each of the images to the file it is mapped from, so that up to IO_THREADS images
+	 * are encoded at the same time.
+	 *
+	 * @return a future that completes when all images have been written
+	 */
+	public static CompletableFuture<Void> writeImages(Map<String, BufferedImage> images) {
+		return CompletableFuture.allOf(images.entrySet().stream()
+				.map(entry -> writeImage(entry.getValue(), entry.getKey()))
+				.toArray(CompletableFuture[]::new));
+	}
+
+	/**
+	 * Waits for a read or write started by this class and returns its result. If it failed, the exception
+	 * or error thrown by FileURLIO is rethrown unchanged.
+	 */
+	public static <T> T join(CompletableFuture<T> result) {
+		try {
+			return result.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof Error error) {
+				throw error;
+			}
+			throw new PLCRuntimeException(String.valueOf(e.getCause()));
+		}
+	}
+
+	/**
+	 * Cancels the reads or writes that have not completed yet. A read or write that is already running is
+	 * not interrupted, but its result is dropped. The generated code calls this when apply exits, so that
+	 * reads started for declarations that were not reached because a statement threw are not left behind.
+	 */
+	public static void cancel(CompletableFuture<?>... results) {
+		for (CompletableFuture<?> result : results) {
+			result.cancel(false);
+		}
+	}
+
+	static ExecutorService getExecutor() {
+		ExecutorService e = executor;
+		if (e == null) {
+			synchronized (AsyncIO.class) {
+				if (executor == null) {
+					AtomicInteger count = new AtomicInteger();
+					executor = new ThreadPoolExecutor(IO_THREADS, IO_THREADS, 0, TimeUnit.MILLISECONDS,
+							new LinkedBlockingQueue<>(), r -> {
+								Thread t = new Thread(r, "AsyncIO-" + count.incrementAndGet());
+								t.setDaemon(true);
+								return t;
+							});
+				}
+				e = executor;
+			}
+		}
+		return e;
+	}
+}
@@ -0,0 +1,199 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.UnaryOperator;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+
+/**
+ * Applies the same operation to each image of a collection, for workloads with many small images,
+ * where splitting a single image into bands does not pay off.
+ *
+ * The images are divided into ranges that are processed as tasks on the fork/join pool used by
+ * ParallelOps, regardless of ParallelOps.PARALLEL, so idle workers steal ranges from busy ones.
+ * Each range has its own Scratch buffer that is reused for the images of the range and dropped when the
+ * range is done, so a range that a worker runs while it waits inside the operation for a nested batch
+ * does not overwrite the buffer of the range it interrupted, and large buffers are not retained. The results
+ * are returned in the order of the images in the collection. If the operation throws an exception
+ * for any image, the exception is rethrown by the batch method.
+ *
+ * The batch versions of the ImageOps operations give the same results as calling the operation on each image.
+ */
+public class BatchOps {
+
+	/** Number of ranges each worker thread gets, so that uneven ranges can be balanced by work-stealing */
+	private static final int RANGES_PER_THREAD = 4;
+
+	/**
+	 * Scratch storage of a range of images, for operations that need a temporary buffer for each image.
+	 */
+	public static final class Scratch {
+		private int[] ints = new int[0];
+
+		/**
+		 * Returns an array with at least length elements, with unspecified contents. The array is
+		 * reused for the later images of the same range, so it must not be retained.
+		 */
+		public int[] ints(int length) {
+			if (ints.length < length) {
+				ints = new int[length];
+			}
+			return ints;
+		}
+	}
+
+	/**
+	 * An operation on one image of a batch.
+	 */
+	@FunctionalInterface
+	public interface ImageOp {
+		BufferedImage apply(BufferedImage image, Scratch scratch);
+	}
+
+	/**
+	 * Returns the results of applying op to each of the images, in the same order.
+	 */
+	public static List<BufferedImage> map(Collection<BufferedImage> images, ImageOp op) {
+		BufferedImage[] sources = images.toArray(new BufferedImage[0]);
+		BufferedImage[] results = new BufferedImage[sources.length];
+		if (sources.length > 0) {
+			ForkJoinPool pool = ParallelOps.getPool();
+			int ranges = pool.getParallelism() * RANGES_PER_THREAD;
+			int rangeSize = Math.max(1, (sources.length + ranges - 1) / ranges);
+			pool.invoke(new RangeTask(op, sources, results, 0, sources.length, rangeSize));
+		}
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Returns the results of applying op to each of the images, in the same order.
+	 */
+	public static List<BufferedImage> map(Collection<BufferedImage> images, UnaryOperator<BufferedImage> op) {
+		return map(images, (image, scratch) -> op.apply(image));
+	}
+
+	public static List<BufferedImage> binaryImagePixelOp(OP op, Collection<BufferedImage> images, int right) {
+		return map(images, (image, scratch) -> {
+			BufferedImage result = ImageOps.makeImage(image.getWidth(), image.getHeight());
+			ImageOps.pixelConstantOp(op, pixels(image, scratch), right, ImageOps.rgbRaster(result), 0, size(image));
+			return result;
+		});
+	}
+
+	public static List<BufferedImage> binaryImageScalarOp(OP op, Collection<BufferedImage> images, int right) {
+		return map(images, (image, scratch) -> {
+			BufferedImage result = ImageOps.makeImage(image.getWidth(), image.getHeight());
+			ImageOps.pixelScalarOp(op, pixels(image, scratch), right, ImageOps.rgbRaster(result), 0, size(image));
+			return result;
+		});
+	}
+
+	public static List<BufferedImage> applyLUT(Collection<BufferedImage> images, PixelLUT lut) {
+		return map(images, (image, scratch) -> {
+			BufferedImage result = ImageOps.makeImage(image.getWidth(), image.getHeight());
+			int[] dst = ImageOps.rgbRaster(result);
+			lut.apply(pixels(image, scratch), dst, 0, size(image));
+			return result;
+		});
+	}
+
+	public static List<BufferedImage> extractRed(Collection<BufferedImage> images) {
+		return extractChannel(images, PixelOps.SELECT_RED);
+	}
+
+	public static List<BufferedImage> extractGrn(Collection<BufferedImage> images) {
+		return extractChannel(images, PixelOps.SELECT_GREEN);
+	}
+
+	public static List<BufferedImage> extractBlu(Collection<BufferedImage> images) {
+		return extractChannel(images, PixelOps.SELECT_BLUE);
+	}
+
+	public static List<BufferedImage> copyAndResize(Collection<BufferedImage> images, int maxX, int maxY) {
+		return map(images, image -> ImageOps.copyAndResize(image, maxX, maxY));
+	}
+
+	public static List<BufferedImage> copyAndResize(Collection<BufferedImage> images, int maxX, int maxY,
+			Resampler.Mode mode) {
+		return map(images, image -> ImageOps.copyAndResize(image, maxX, maxY, mode));
+	}
+
+	private static List<BufferedImage> extractChannel(Collection<BufferedImage> images, int select) {
+		return map(images, (image, scratch) -> {
+			BufferedImage result = ImageOps.makeImage(image.getWidth(), image.getHeight());
+			int[] src = pixels(image, scratch);
+			int[] dst = ImageOps.rgbRaster(result);
+			for (int i = 0; i < dst.length; i++) {
+				dst[i] = src[i] & select;
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * Returns the int raster of image if it has one, otherwise the pixels of the image, read into
+	 * the scratch buffer with a single call to getRGB.
+	 */
+	private static int[] pixels(BufferedImage image, Scratch scratch) {
+		int[] pixels = ImageOps.intRaster(image);
+		if (pixels != null) {
+			return pixels;
+		}
+		int width = image.getWidth();
+		int[] buffer = scratch.ints(size(image));
+		image.getRGB(0, 0, width, image.getHeight(), buffer, 0, width);
+		return buffer;
+	}
+
+	private static int size(BufferedImage image) {
+		return image.getWidth() * image.getHeight();
+	}
+
+	@SuppressWarnings("serial")
+	private static class RangeTask extends RecursiveAction {
+		private final ImageOp op;
+		private final BufferedImage[] sources;
+		private final BufferedImage[] results;
+		private final int start;
+		private final int end;
+		private final int rangeSize;
+
+		RangeTask(ImageOp op, BufferedImage[] sources, BufferedImage[] results, int start, int end, int rangeSize) {
+			this.op = op;
+			this.sources = sources;
+			this.results = results;
+			this.start = start;
+			this.end = end;
+			this.rangeSize = rangeSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= rangeSize) {
+				Scratch s = new Scratch();
+				for (int i = start; i < end; i++) {
+					results[i] = op.apply(sources[i], s);
+				}
+				return;
+			}
+			int mid = (start + end) >>> 1;
+			invokeAll(new RangeTask(op, sources, results, start, mid, rangeSize),
+					new RangeTask(op, sources, results, mid, end, rangeSize));
+		}
+	}
+}
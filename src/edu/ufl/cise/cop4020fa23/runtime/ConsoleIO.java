@@ -58,9 +58,27 @@ public class ConsoleIO {
 		displayImageOnScreen(image);
 	}
 
+	public static void write(PlanarImage image) {
+		displayImageOnScreen(image.toBufferedImage());
+	}
+
+	public static void write(OffHeapImage image) {
+		displayImageOnScreen(image.toBufferedImage());
+	}
+
+	public static void write(TiledImage image) {
+		displayImageOnScreen(image.toBufferedImage(MAX_TILED_DISPLAY_SIZE, MAX_TILED_DISPLAY_SIZE));
+	}
+
 	
 	public static boolean DISPLAY_IMAGES = true;
 
+	/**
+	 * Tiled images that are wider or higher than this are scaled down to fit before they are displayed,
+	 * so that displaying them does not copy the whole image to the heap.
+	 */
+	public static int MAX_TILED_DISPLAY_SIZE = 2048;
+
 	public static void displayImageOnScreen(BufferedImage image) {
 		if (DISPLAY_IMAGES) {
 			JFrame frame = new JFrame();
@@ -0,0 +1,442 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Convolution engine used by ImageOps.convolve and the blur, sharpen, and edges builtins.
+ *
+ * The value of each color component of pixel (x,y) of the result is the sum of
+ * weight[j][i] * component(x + i - kernelWidth/2, y + j - kernelHeight/2) over the taps (i,j) of the kernel,
+ * rounded to the nearest integer and clamped to 0..255. The kernel is applied without flipping it, which
+ * makes no difference for the symmetric kernels usually used. Pixels outside the image are taken from
+ * the border given by the Border mode: BLACK treats them as black, like ImageOps.getRGB does, CLAMP uses
+ * the nearest pixel of the image, and WRAP wraps the coordinates around.
+ *
+ * Weights are converted to fixed point numbers with WEIGHT_BITS fraction bits and accumulated in ints.
+ * Separable kernels are applied as a horizontal pass followed by a vertical pass, so a k x k kernel costs
+ * 2k instead of k*k multiplications per component. The intermediate values keep INTERMEDIATE_BITS
+ * fraction bits, so the result of a separable kernel may differ by rounding from the result of the
+ * equivalent general kernel.
+ *
+ * The image is processed in bands of rows with ParallelOps. Each band unpacks the rows its kernel needs
+ * into per-component arrays with the border already applied, and accumulates the result in tiles of
+ * TILE_COLUMNS columns, so that the accumulators and the parts of the rows being read stay in the cache.
+ */
+public class Convolution {
+
+	public enum Border {
+		BLACK, CLAMP, WRAP
+	}
+
+	/** Border mode used by the blur, sharpen, and edges builtins */
+	public static Border BUILTIN_BORDER = Border.BLACK;
+
+	/** Number of columns of the result accumulated at a time */
+	public static int TILE_COLUMNS = 1024;
+
+	/** Weights are fixed point numbers with WEIGHT_BITS fraction bits */
+	private static final int WEIGHT_BITS = 12;
+
+	/** Fraction bits kept in the result of the horizontal pass of a separable kernel */
+	private static final int INTERMEDIATE_BITS = 4;
+
+	/**
+	 * A convolution kernel with fixed point weights. Kernels are immutable.
+	 */
+	public static final class Kernel {
+		final int width;
+		final int height;
+		/** weights of a general kernel in row-major order, null if separable */
+		final int[] weights;
+		/** weights of a separable kernel, null if general */
+		final int[] horizontal;
+		final int[] vertical;
+
+		private Kernel(int width, int height, int[] weights, int[] horizontal, int[] vertical) {
+			this.width = width;
+			this.height = height;
+			this.weights = weights;
+			this.horizontal = horizontal;
+			this.vertical = vertical;
+		}
+
+		/**
+		 * Returns a general kernel with the given width and height whose weights are weights[j * width + i] / divisor.
+		 */
+		public static Kernel of(int width, int height, int[] weights, int divisor) {
+			checkSize(width, height, weights.length);
+			return general(width, height, toFixed(weights, divisor));
+		}
+
+		/**
+		 * Returns a general kernel with the given width and height whose weights are weights[j * width + i].
+		 */
+		public static Kernel of(int width, int height, double[] weights) {
+			checkSize(width, height, weights.length);
+			return general(width, height, toFixed(weights));
+		}
+
+		/**
+		 * Returns a separable kernel whose weight for tap (i,j) is horizontal[i] * vertical[j] / divisor.
+		 */
+		public static Kernel separable(int[] horizontal, int[] vertical, int divisor) {
+			checkSize(horizontal.length, vertical.length, horizontal.length * vertical.length);
+			return separable(toFixed(horizontal, 1), toFixed(vertical, divisor));
+		}
+
+		/**
+		 * Returns a separable kernel whose weight for tap (i,j) is horizontal[i] * vertical[j].
+		 */
+		public static Kernel separable(double[] horizontal, double[] vertical) {
+			checkSize(horizontal.length, vertical.length, horizontal.length * vertical.length);
+			return separable(toFixed(horizontal), toFixed(vertical));
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		public boolean isSeparable() {
+			return weights == null;
+		}
+
+		private static Kernel general(int width, int height, int[] weights) {
+			if (255L * sumAbs(weights) + (1 << WEIGHT_BITS) > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Kernel weights are too large");
+			}
+			return new Kernel(width, height, weights, null, null);
+		}
+
+		private static Kernel separable(int[] horizontal, int[] vertical) {
+			long intermediate = (255L * sumAbs(horizontal) >> (WEIGHT_BITS - INTERMEDIATE_BITS)) + 1;
+			if (255L * sumAbs(horizontal) + (1 << WEIGHT_BITS) > Integer.MAX_VALUE
+					|| intermediate * sumAbs(vertical) + (1 << (WEIGHT_BITS + INTERMEDIATE_BITS)) > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Kernel weights are too large");
+			}
+			return new Kernel(horizontal.length, vertical.length, null, horizontal, vertical);
+		}
+
+		private static void checkSize(int width, int height, int length) {
+			if (width <= 0 || height <= 0 || length != width * height) {
+				throw new IllegalArgumentException("Kernel of size " + width + "x" + height + " needs " + (long) width * height
+						+ " weights, got " + length);
+			}
+		}
+
+		private static int[] toFixed(int[] weights, int divisor) {
+			if (divisor == 0) {
+				throw new IllegalArgumentException("Kernel divisor is 0");
+			}
+			int[] fixed = new int[weights.length];
+			for (int i = 0; i < weights.length; i++) {
+				fixed[i] = toFixed((double) weights[i] / divisor);
+			}
+			return fixed;
+		}
+
+		private static int[] toFixed(double[] weights) {
+			int[] fixed = new int[weights.length];
+			for (int i = 0; i < weights.length; i++) {
+				fixed[i] = toFixed(weights[i]);
+			}
+			return fixed;
+		}
+
+		private static int toFixed(double weight) {
+			double scaled = Math.rint(weight * (1 << WEIGHT_BITS));
+			if (Double.isNaN(scaled) || Math.abs(scaled) > Integer.MAX_VALUE / 255) {
+				throw new IllegalArgumentException("Kernel weight out of range: " + weight);
+			}
+			return (int) scaled;
+		}
+
+		private static long sumAbs(int[] weights) {
+			long sum = 0;
+			for (int w : weights) {
+				sum += Math.abs(w);
+			}
+			return sum;
+		}
+	}
+
+	/** 5x5 Gaussian blur, used by the blur builtin */
+	public static final Kernel BLUR = Kernel.separable(new int[] { 1, 4, 6, 4, 1 }, new int[] { 1, 4, 6, 4, 1 }, 256);
+
+	/** 3x3 sharpening kernel, used by the sharpen builtin */
+	public static final Kernel SHARPEN = Kernel.of(3, 3, new int[] { 0, -1, 0, -1, 5, -1, 0, -1, 0 }, 1);
+
+	/** 3x3 Laplacian edge detector, used by the edges builtin */
+	public static final Kernel EDGES = Kernel.of(3, 3, new int[] { -1, -1, -1, -1, 8, -1, -1, -1, -1 }, 1);
+
+	/**
+	 * Convolves image with kernel, writing the result to dest, which must have the same size as image
+	 * and must not be image.
+	 *
+	 * @return dest
+	 */
+	public static BufferedImage convolve(BufferedImage image, Kernel kernel, Border border, BufferedImage dest) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		if (dest.getWidth() != width || dest.getHeight() != height) {
+			throw new PLCRuntimeException("Destination image has size " + dest.getWidth() + "x" + dest.getHeight()
+					+ ", expected " + width + "x" + height);
+		}
+		if (dest == image) {
+			throw new PLCRuntimeException("Destination of a convolution must not be its source");
+		}
+		int[] dst = ImageOps.rgbRaster(dest);
+		ParallelOps.forEachRowBand(width, height, (startRow, endRow) -> {
+			Band band = new Band(image, kernel, border);
+			int[] row = new int[width];
+			for (int y = startRow; y < endRow; y++) {
+				if (kernel.weights != null) {
+					band.generalRow(y, row);
+				} else {
+					band.separableRow(y, row);
+				}
+				if (dst != null) {
+					System.arraycopy(row, 0, dst, y * width, width);
+				} else {
+					for (int x = 0; x < width; x++) {
+						row[x] |= PixelOps.SELECT_ALPHA;
+					}
+					dest.setRGB(0, y, width, 1, row, 0, width);
+				}
+			}
+		});
+		return dest;
+	}
+
+	/**
+	 * Returns the index of the pixel used for index i along an axis of length n, or -1 for a black pixel.
+	 */
+	static int borderIndex(int i, int n, Border border) {
+		if (0 <= i && i < n) {
+			return i;
+		}
+		return switch (border) {
+		case BLACK -> -1;
+		case CLAMP -> i < 0 ? 0 : n - 1;
+		case WRAP -> Math.floorMod(i, n);
+		};
+	}
+
+	/**
+	 * Working storage of one band of rows. Source rows are kept in ring buffers indexed by row modulo
+	 * the kernel height, so each row is unpacked (and for separable kernels filtered horizontally) once
+	 * per band, and rows are loaded lazily as the band advances.
+	 */
+	private static class Band {
+		private final BufferedImage image;
+		private final Kernel kernel;
+		private final Border border;
+		private final int width;
+		private final int height;
+		private final int left;
+		private final int top;
+		/** source row held in each slot of the ring buffers, Integer.MIN_VALUE if none */
+		private final int[] loaded;
+		private final int[][] red;
+		private final int[][] grn;
+		private final int[][] blu;
+		private final int[] packed;
+		/** slots holding the source rows of the current row of the result */
+		private final int[] slots;
+		/** unpacked source row with horizontal border, for the horizontal pass of separable kernels */
+		private final int[][] padded;
+		private final int[] accRed;
+		private final int[] accGrn;
+		private final int[] accBlu;
+
+		Band(BufferedImage image, Kernel kernel, Border border) {
+			this.image = image;
+			this.kernel = kernel;
+			this.border = border;
+			this.width = image.getWidth();
+			this.height = image.getHeight();
+			this.left = kernel.width / 2;
+			this.top = kernel.height / 2;
+			// general kernels read padded rows directly, separable kernels store the result of the horizontal pass
+			int rowLength = kernel.weights != null ? width + kernel.width - 1 : width;
+			this.loaded = new int[kernel.height];
+			Arrays.fill(loaded, Integer.MIN_VALUE);
+			this.red = new int[kernel.height][rowLength];
+			this.grn = new int[kernel.height][rowLength];
+			this.blu = new int[kernel.height][rowLength];
+			this.packed = new int[width];
+			this.slots = new int[kernel.height];
+			this.padded = kernel.weights != null ? null : new int[3][width + kernel.width - 1];
+			int tile = Math.min(width, Math.max(1, TILE_COLUMNS));
+			this.accRed = new int[tile];
+			this.accGrn = new int[tile];
+			this.accBlu = new int[tile];
+		}
+
+		/**
+		 * Sets slots to the slots of the ring buffers holding the source rows of row y of the result.
+		 */
+		private void loadRows(int y) {
+			for (int j = 0; j < kernel.height; j++) {
+				slots[j] = slot(y - top + j);
+			}
+		}
+
+		/**
+		 * Returns the slot of the ring buffers holding source row sy, loading it if necessary.
+		 */
+		private int slot(int sy) {
+			int slot = Math.floorMod(sy, kernel.height);
+			if (loaded[slot] != sy) {
+				if (kernel.weights != null) {
+					unpack(sy, red[slot], grn[slot], blu[slot]);
+				} else {
+					unpack(sy, padded[0], padded[1], padded[2]);
+					horizontalPass(padded[0], red[slot]);
+					horizontalPass(padded[1], grn[slot]);
+					horizontalPass(padded[2], blu[slot]);
+				}
+				loaded[slot] = sy;
+			}
+			return slot;
+		}
+
+		/**
+		 * Unpacks row sy of the image, with the border applied in both directions, to r, g, and b,
+		 * where index i corresponds to column i - left.
+		 */
+		private void unpack(int sy, int[] r, int[] g, int[] b) {
+			int row = borderIndex(sy, height, border);
+			int length = width + kernel.width - 1;
+			if (row < 0) {
+				Arrays.fill(r, 0, length, 0);
+				Arrays.fill(g, 0, length, 0);
+				Arrays.fill(b, 0, length, 0);
+				return;
+			}
+			ImageOps.getRGBRow(image, row, packed);
+			for (int i = 0; i < length; i++) {
+				int x = i - left;
+				int sx = 0 <= x && x < width ? x : borderIndex(x, width, border);
+				int p = sx < 0 ? 0 : packed[sx];
+				r[i] = (p >> PixelOps.SHIFT_RED) & 0xff;
+				g[i] = (p >> PixelOps.SHIFT_GREEN) & 0xff;
+				b[i] = (p >> PixelOps.SHIFT_BLUE) & 0xff;
+			}
+		}
+
+		private void horizontalPass(int[] in, int[] out) {
+			int[] h = kernel.horizontal;
+			int shift = WEIGHT_BITS - INTERMEDIATE_BITS;
+			int round = 1 << (shift - 1);
+			for (int x0 = 0; x0 < width; x0 += accRed.length) {
+				int n = Math.min(accRed.length, width - x0);
+				Arrays.fill(accRed, 0, n, round);
+				for (int i = 0; i < h.length; i++) {
+					int w = h[i];
+					if (w == 0) {
+						continue;
+					}
+					for (int x = 0; x < n; x++) {
+						accRed[x] += in[x0 + x + i] * w;
+					}
+				}
+				for (int x = 0; x < n; x++) {
+					out[x0 + x] = accRed[x] >> shift;
+				}
+			}
+		}
+
+		/**
+		 * Computes row y of the result of a general kernel.
+		 */
+		void generalRow(int y, int[] out) {
+			int kw = kernel.width;
+			int[] weights = kernel.weights;
+			int round = 1 << (WEIGHT_BITS - 1);
+			loadRows(y);
+			for (int x0 = 0; x0 < width; x0 += accRed.length) {
+				int n = Math.min(accRed.length, width - x0);
+				Arrays.fill(accRed, 0, n, round);
+				Arrays.fill(accGrn, 0, n, round);
+				Arrays.fill(accBlu, 0, n, round);
+				for (int j = 0; j < kernel.height; j++) {
+					int slot = slots[j];
+					int[] r = red[slot];
+					int[] g = grn[slot];
+					int[] b = blu[slot];
+					for (int i = 0; i < kw; i++) {
+						int w = weights[j * kw + i];
+						if (w == 0) {
+							continue;
+						}
+						int offset = x0 + i;
+						for (int x = 0; x < n; x++) {
+							accRed[x] += r[offset + x] * w;
+							accGrn[x] += g[offset + x] * w;
+							accBlu[x] += b[offset + x] * w;
+						}
+					}
+				}
+				pack(out, x0, n, WEIGHT_BITS);
+			}
+		}
+
+		/**
+		 * Computes row y of the result of a separable kernel.
+		 */
+		void separableRow(int y, int[] out) {
+			int[] v = kernel.vertical;
+			int bits = WEIGHT_BITS + INTERMEDIATE_BITS;
+			int round = 1 << (bits - 1);
+			loadRows(y);
+			for (int x0 = 0; x0 < width; x0 += accRed.length) {
+				int n = Math.min(accRed.length, width - x0);
+				Arrays.fill(accRed, 0, n, round);
+				Arrays.fill(accGrn, 0, n, round);
+				Arrays.fill(accBlu, 0, n, round);
+				for (int j = 0; j < v.length; j++) {
+					int w = v[j];
+					if (w == 0) {
+						continue;
+					}
+					int slot = slots[j];
+					int[] r = red[slot];
+					int[] g = grn[slot];
+					int[] b = blu[slot];
+					for (int x = 0; x < n; x++) {
+						accRed[x] += r[x0 + x] * w;
+						accGrn[x] += g[x0 + x] * w;
+						accBlu[x] += b[x0 + x] * w;
+					}
+				}
+				pack(out, x0, n, bits);
+			}
+		}
+
+		private void pack(int[] out, int x0, int n, int bits) {
+			for (int x = 0; x < n; x++) {
+				out[x0 + x] = (clamp(accRed[x] >> bits) << PixelOps.SHIFT_RED) | (clamp(accGrn[x] >> bits) << PixelOps.SHIFT_GREEN)
+						| (clamp(accBlu[x] >> bits) << PixelOps.SHIFT_BLUE);
+			}
+		}
+
+		private static int clamp(int c) {
+			return c < 0 ? 0 : c > 255 ? 255 : c;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package edu.ufl.cise.cop4020fa23.runtime;
 
+import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
@@ -7,20 +9,51 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageInputStream;
 
 public class FileURLIO {
 
+	/** Convert decoded images to TYPE_INT_RGB, the layout the ImageOps fast paths work on */
+	public static boolean NORMALIZE = true;
+
+	/**
+	 * Decode images much larger than the size requested from readImage(source, w, h) at a reduced resolution,
+	 * instead of decoding them in full and resizing them. The result has the size of the result of
+	 * copyAndResize, but its pixels are taken from near those copyAndResize would take (see readImage). Set
+	 * it to false where the exact pixels of copyAndResize are needed.
+	 */
+	public static boolean SUBSAMPLE = true;
+
+	/** Deflate level used by writeImage(image, filename) for PNG files */
+	public static final int PNG_COMPRESSION_LEVEL = 4;
+
+	/** Number of decoded images that were converted by normalize, by the name of their original type */
+	private static final Map<String, LongAdder> normalizations = new ConcurrentHashMap<>();
+
 	/**
 	 * Reads the image from the indicated URL or filename. If the given source
 	 * is not a valid URL, it is assumed to be a filename.
@@ -29,14 +62,7 @@ public class FileURLIO {
 	 * @return BufferedImage 
 	 */
 	public static BufferedImage readImage(String source) {
-		BufferedImage image;
-		try {
-			URL url = new URL(source);
-			image = readFromURL(url);
-		} catch (MalformedURLException e) {// wasn't a URL, maybe it is a file
-			image = readFromFile(source);
-		}
-		return image;
+		return readImage(source, null, null);
 	}
 	
 	/**
@@ -45,6 +71,20 @@ public class FileURLIO {
 	 * 
 	 * The image is resized to the size indicated by w and h, or kept in original size if w or h is null.
 	 * 
+	 * If SUBSAMPLE is true and the image is at least twice as large as the requested size along an axis,
+	 * the decoder only produces every k-th column or row of the image, for the largest k that keeps at least
+	 * the requested number of pixels, and the result is then resized to the requested size. The size of the
+	 * result is the same as without subsampling, but its pixels are sampled from the subsampled image, so
+	 * they generally differ from those of ImageOps.copyAndResize(readImage(source), w, h): each pixel of
+	 * the result is the pixel of the original image at most k columns or rows away from the one
+	 * copyAndResize would take, where k is the subsampling period along that axis. Images that are
+	 * not decoded with ImageIO, or that were cached at full size, are subsampled after reading them, so that
+	 * the result does not depend on the format or on the cache.
+	 * 
+	 * Images are cached in the ImageCache, so reading the same image with the same size again returns a
+	 * copy of the cached image instead of decoding it again. Only the image with the requested size is
+	 * cached.
+	 * 
 	 * @param source
 	 *            String with source or filename on local filesystem.
 	 * @param w
@@ -54,20 +94,324 @@ public class FileURLIO {
 	 * @return BufferedImage representing the indicated image.
 	 */
 	public static BufferedImage readImage(String source, Integer w, Integer h) {
-		BufferedImage image;
-		try {
-			URL url = new URL(source);
-			image = readFromURL(url);
+		URL url = toURL(source);
+		ImageCache.Key key = ImageCache.key(source, url != null, w, h);
+		if (key != null) {
+			BufferedImage cached = ImageCache.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		if (w == null || h == null) {
+			BufferedImage image = read(source, url);
+			if (image != null && key != null) {
+				ImageCache.put(key, image);
+			}
+			return image;
+		}
+		BufferedImage original = key != null ? ImageCache.get(key.original()) : null;
+		BufferedImage resized = null;
+		if (original != null) {
+			resized = resize(original, w, h);
+		} else if (SUBSAMPLE && subsampling(w, h) && (url != null || !isUncompressed(source))) {
+			resized = readSubsampled(source, url, w, h);
+		}
+		if (resized == null) {
+			BufferedImage image = read(source, url);
+			if (image == null) {
+				return null;
+			}
+			resized = resize(image, w, h);
+		}
+		if (key != null) {
+			ImageCache.put(key, resized);
+		}
+		return resized;
+	}
+
+	/**
+	 * Reads the rectangle of the indicated image with upper left corner (x,y) and the given width and height,
+	 * which must lie within the image. Only the pixels in the rectangle are decoded, for formats whose
+	 * decoder supports it. Raw image files are mapped and only the pixels of the rectangle are copied, and
+	 * PPM and PGM files are only decoded up to the last row of the rectangle.
+	 * 
+	 * @param source
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 * @return BufferedImage holding the pixels of the rectangle
+	 */
+	public static BufferedImage readImageRegion(String source, int x, int y, int width, int height) {
+		URL url = toURL(source);
+		if (url == null && RawImageIO.isRawImage(source)) {
+			try (OffHeapImage mapped = OffHeapImage.map(source)) {
+				checkRegion(source, mapped.getWidth(), mapped.getHeight(), x, y, width, height);
+				BufferedImage region = ImageOps.makeImage(width, height);
+				int[] dst = ImageOps.rgbRaster(region);
+				for (int row = 0; row < height; row++) {
+					mapped.getRow(y + row, x, width, dst, row * width);
+				}
+				return region;
+			}
+		}
+		if (url == null && PNMImageIO.isPNMImage(source)) {
+			try (StripReader reader = StripReader.open(source)) {
+				checkRegion(source, reader.getWidth(), reader.getHeight(), x, y, width, height);
+				BufferedImage region = ImageOps.makeImage(width, height);
+				int[] dst = ImageOps.rgbRaster(region);
+				int[] row = new int[reader.getWidth()];
+				reader.skip(y);
+				for (int r = 0; r < height; r++) {
+					reader.read(row, 1);
+					System.arraycopy(row, x, dst, r * width, width);
+				}
+				return region;
+			}
+		}
+		return decode(source, url, (reader, param) -> {
+			checkRegion(source, reader.getWidth(0), reader.getHeight(0), x, y, width, height);
+			param.setSourceRegion(new Rectangle(x, y, width, height));
+			return true;
+		});
+	}
 
+	private static URL toURL(String source) {
+		try {
+			return new URL(source);
 		} catch (MalformedURLException e) {// wasn't a URL, maybe it is a file
-			image = readFromFile(source);
+			return null;
 		}
-		if (w==null || h == null) {
+	}
+
+	/**
+	 * @return true if source is a raw, PPM, or PGM image file, which are read without ImageIO
+	 */
+	private static boolean isUncompressed(String source) {
+		return RawImageIO.isRawImage(source) || PNMImageIO.isPNMImage(source);
+	}
+
+	private static BufferedImage read(String source, URL url) {
+		return url != null ? readFromURL(url) : readFromFile(source);
+	}
+
+	/**
+	 * @return true if w x h is a size for which readImage might subsample
+	 */
+	private static boolean subsampling(int w, int h) {
+		return w > 0 && h > 0;
+	}
+
+	/**
+	 * Resizes a decoded image to w x h, subsampling it first exactly as readSubsampled would
+	 * have, so that the result does not depend on whether the original image was cached.
+	 */
+	private static BufferedImage resize(BufferedImage image, int w, int h) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		if (!SUBSAMPLE || !subsampling(w, h) || (width / w <= 1 && height / h <= 1)) {
+			return ImageOps.copyAndResize(image, w, h);
+		}
+		int xStep = Math.max(1, width / w);
+		int yStep = Math.max(1, height / h);
+		BufferedImage subsampled = ImageOps.makeImage((width + xStep - 1) / xStep, (height + yStep - 1) / yStep);
+		int[] row = new int[width];
+		int[] dst = ImageOps.rgbRaster(subsampled);
+		int subWidth = subsampled.getWidth();
+		for (int sy = 0; sy < subsampled.getHeight(); sy++) {
+			ImageOps.getRGBRow(image, sy * yStep, row);
+			for (int sx = 0; sx < subWidth; sx++) {
+				dst[sy * subWidth + sx] = row[sx * xStep] & ImageOps.RGB_MASK;
+			}
+		}
+		return finishResize(subsampled, width, height, w, h);
+	}
+
+	/**
+	 * Decodes the image subsampled for w x h, or returns null if it should not be subsampled.
+	 */
+	private static BufferedImage readSubsampled(String source, URL url, int w, int h) {
+		int[] size = new int[2];
+		BufferedImage subsampled = decode(source, url, (reader, param) -> {
+			size[0] = reader.getWidth(0);
+			size[1] = reader.getHeight(0);
+			int xStep = Math.max(1, size[0] / w);
+			int yStep = Math.max(1, size[1] / h);
+			if (xStep == 1 && yStep == 1) {
+				return false;
+			}
+			param.setSourceSubsampling(xStep, yStep, 0, 0);
+			return true;
+		});
+		return subsampled == null ? null : finishResize(subsampled, size[0], size[1], w, h);
+	}
+
+	/**
+	 * Resizes a subsampled image of a width x height image to the size copyAndResize would give the original image.
+	 */
+	private static BufferedImage finishResize(BufferedImage subsampled, int width, int height, int w, int h) {
+		Dimension size = Resampler.nearestNeighborSize(width, height, w, h);
+		BufferedImage result = ImageOps.makeImage(size.width, size.height);
+		Resampler.resizeInto(subsampled, result, Resampler.Mode.NEAREST);
+		return result;
+	}
+
+	@FunctionalInterface
+	private interface ReadParamSetter {
+		/**
+		 * Configures param for reading the first image of reader, whose input has been set.
+		 * 
+		 * @return false to abandon decoding
+		 */
+		boolean configure(ImageReader reader, ImageReadParam param) throws IOException;
+	}
+
+	/**
+	 * Decodes the first image of the indicated source with an ImageReader using a read parameter
+	 * configured by setter, and normalizes it.
+	 * 
+	 * @return the decoded image, or null if setter abandoned decoding
+	 */
+	private static BufferedImage decode(String source, URL url, ReadParamSetter setter) {
+		if (url != null) {
+			System.err.println("reading image from url:  " + url);
+		}
+		try (InputStream in = url != null ? url.openStream() : new FileInputStream(source);
+				ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+			Iterator<ImageReader> readers = stream == null ? null : ImageIO.getImageReaders(stream);
+			if (readers == null || !readers.hasNext()) {
+				throw new PLCRuntimeException("Image format unsupported");
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(stream, true, true);
+				ImageReadParam param = reader.getDefaultReadParam();
+				if (!setter.configure(reader, param)) {
+					return null;
+				}
+				return normalize(reader.read(0, param));
+			} finally {
+				reader.dispose();
+			}
+		} catch (IOException e) {
+			throw new PLCRuntimeException(e.getMessage() + " " + source);
+		}
+	}
+
+	private static void checkRegion(String source, int imageWidth, int imageHeight, int x, int y, int width, int height) {
+		if (width <= 0 || height <= 0 || x < 0 || y < 0 || (long) x + width > imageWidth || (long) y + height > imageHeight) {
+			throw new PLCRuntimeException("Region " + width + "x" + height + " at (" + x + "," + y + ") is not within " + source
+					+ " of size " + imageWidth + "x" + imageHeight);
+		}
+	}
+	
+	/**
+	 * Like readImage(source, w, h), but returns the image as a PlanarImage.
+	 * 
+	 * @param source
+	 * @param w
+	 * @param h
+	 * @return PlanarImage representing the indicated image.
+	 */
+	public static PlanarImage readPlanarImage(String source, Integer w, Integer h) {
+		return PlanarImage.of(readImage(source, w, h));
+	}
+	
+	/**
+	 * Like readImage(source, w, h), but returns the image as an OffHeapImage. The decoded
+	 * image is copied off-heap before it is resized, so only one on-heap copy exists at a time.
+	 * Raw image files are mapped with OffHeapImage.map instead of being read.
+	 * 
+	 * @param source
+	 * @param w
+	 * @param h
+	 * @return OffHeapImage representing the indicated image.
+	 */
+	public static OffHeapImage readOffHeapImage(String source, Integer w, Integer h) {
+		OffHeapImage image = RawImageIO.isRawImage(source) ? OffHeapImage.map(source) : OffHeapImage.of(readImage(source));
+		if (w == null || h == null) {
 			return image;
 		}
-		return ImageOps.copyAndResize(image, w, h);
+		try (image) {
+			return ImageOps.copyAndResize(image, w, h);
+		}
 	}
 	
+	/**
+	 * Writes the image to the named file, in the format given by the extension of filename:
+	 * 
+	 * .ppm and .pgm files are written as binary PPM and PGM by a StripWriter, and .raw files in the raw
+	 * format of RawImageIO. None of them is compressed, so they are much faster to write than the other formats.
+	 * 
+	 * .png files are compressed with PNG_COMPRESSION_LEVEL.
+	 * 
+	 * Other extensions are written by the ImageIO writer for that suffix, with its default settings.
+	 * 
+	 * Images previously read from the file are removed from the ImageCache.
+	 * 
+	 * Throws a PLCRuntimeException if the format is not supported or the file cannot be written.
+	 * 
+	 * @param image
+	 * @param filename
+	 */
+	public static void writeImage(BufferedImage image, String filename) {
+		writeImage(image, filename, PNG_COMPRESSION_LEVEL);
+	}
+
+	/**
+	 * Like writeImage(image, filename), but compresses .png files with the given deflate level, from 0 (no
+	 * compression, fastest) to 9 (smallest files). Levels outside this range are clamped to it. The level
+	 * is ignored for other formats.
+	 * 
+	 * @param image
+	 * @param filename
+	 * @param pngCompressionLevel
+	 */
+	public static void writeImage(BufferedImage image, String filename, int pngCompressionLevel) {
+		int dot = filename.lastIndexOf('.');
+		String suffix = dot < 0 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+		switch (suffix) {
+		case "ppm" -> PNMImageIO.write(image, filename);
+		case "pgm" -> {
+			try (StripWriter writer = StripWriter.open(filename, image.getWidth(), image.getHeight())) {
+				writer.write(image);
+			}
+		}
+		case "raw" -> RawImageIO.write(image, filename);
+		default -> encode(image, filename, suffix, pngCompressionLevel);
+		}
+		ImageCache.invalidate(filename);
+	}
+
+	private static void encode(BufferedImage image, String filename, String suffix, int pngCompressionLevel) {
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersBySuffix(suffix);
+		if (!writers.hasNext()) {
+			throw new PLCRuntimeException("Image format unsupported: " + filename);
+		}
+		ImageWriter writer = writers.next();
+		try (RandomAccessFile file = new RandomAccessFile(filename, "rw");
+				FileImageOutputStream stream = new FileImageOutputStream(file)) {
+			file.setLength(0);
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			if (suffix.equals("png")) {
+				// the PNG writer uses deflate level (int) ((1 - quality) * 9)
+				int level = Math.max(0, Math.min(9, pngCompressionLevel));
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				param.setCompressionQuality(Math.max(0f, 1f - (level + 0.5f) / 9f));
+			}
+			// writers such as the BMP writer cannot encode an alpha channel, which the other formats drop too
+			if (!writer.getOriginatingProvider().canEncodeImage(image)) {
+				image = ImageOps.toIntRGB(image);
+			}
+			writer.setOutput(stream);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} catch (IOException e) {
+			throw new PLCRuntimeException(e.getMessage() + " " + filename);
+		} finally {
+			writer.dispose();
+		}
+	}
+
 	/**
 	 * Reads and returns the image at the given URL
 	 * 
@@ -81,14 +425,16 @@ public class FileURLIO {
 			System.err.println("reading image from url:  " + url);
 			BufferedImage image =  ImageIO.read(url);
 			if (image == null) throw new PLCRuntimeException("Image format unsupported");
-			return image;
+			return normalize(image);
 		} catch (IOException e) {
 			throw new PLCRuntimeException(e.getMessage());
 		}
 	}
 	
 	/**
-	 * Reads and returns the image from the given file
+	 * Reads and returns the image from the given file. Raw image files written by RawImageIO 
+	 * are recognized by their header and read without decoding, and binary PPM and PGM files are
+	 * read by PNMImageIO.
 	 * 
 	 * Throws a PLCRuntimeException if this fails
 	 * 
@@ -96,6 +442,12 @@ public class FileURLIO {
 	 * @return
 	 */
 	static BufferedImage readFromFile(String filename) {
+		if (RawImageIO.isRawImage(filename)) {
+			return RawImageIO.read(filename);
+		}
+		if (PNMImageIO.isPNMImage(filename)) {
+			return PNMImageIO.read(filename);
+		}
 		File f = new File(filename);
 		BufferedImage bi;
 		try {
@@ -103,7 +455,49 @@ public class FileURLIO {
 		} catch (IOException e) {
 			throw new PLCRuntimeException(e.getMessage() + " " + filename);
 		}
-		return bi;
+		return bi == null ? null : normalize(bi);
+	}
+
+	/**
+	 * Converts a decoded image to TYPE_INT_RGB with ImageOps.toIntRGB, unless NORMALIZE is false, 
+	 * and counts the conversion.
+	 * 
+	 * @param image
+	 * @return image, or a TYPE_INT_RGB image with the same pixels
+	 */
+	static BufferedImage normalize(BufferedImage image) {
+		if (!NORMALIZE || image.getType() == BufferedImage.TYPE_INT_RGB) {
+			return image;
+		}
+		BufferedImage result = ImageOps.toIntRGB(image);
+		if (result != image) {
+			normalizations.computeIfAbsent(typeName(image.getType()), k -> new LongAdder()).increment();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of decoded images that have been converted to TYPE_INT_RGB since the counts were
+	 * last reset, by the name of the BufferedImage type they were decoded to, for example "TYPE_3BYTE_BGR".
+	 * 
+	 * @return sorted map from type names to counts
+	 */
+	public static Map<String, Long> normalizationCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		normalizations.forEach((type, count) -> counts.put(type, count.sum()));
+		return counts;
+	}
+
+	public static void resetNormalizationCounts() {
+		normalizations.clear();
+	}
+
+	private static final String[] TYPE_NAMES = { "TYPE_CUSTOM", "TYPE_INT_RGB", "TYPE_INT_ARGB", "TYPE_INT_ARGB_PRE",
+			"TYPE_INT_BGR", "TYPE_3BYTE_BGR", "TYPE_4BYTE_ABGR", "TYPE_4BYTE_ABGR_PRE", "TYPE_USHORT_565_RGB",
+			"TYPE_USHORT_555_RGB", "TYPE_BYTE_GRAY", "TYPE_USHORT_GRAY", "TYPE_BYTE_BINARY", "TYPE_BYTE_INDEXED" };
+
+	private static String typeName(int type) {
+		return 0 <= type && type < TYPE_NAMES.length ? TYPE_NAMES[type] : "TYPE_" + type;
 	}
 
 }
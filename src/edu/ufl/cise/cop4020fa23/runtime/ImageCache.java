@@ -0,0 +1,204 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A process-wide cache of the images read by FileURLIO.readImage, so that programs reading the same
+ * files over and over only decode them once.
+ *
+ * Files are cached under their canonical path together with their modification time and length, so a
+ * file that changes is read again. URLs are only cached if CACHE_URLS is true, since there is no cheap
+ * way to detect that the resource they refer to has changed. Resized images read with
+ * readImage(source, w, h) are cached separately for each size, and are computed from the cached original
+ * if it is present. A read only caches the image it returns, so a resized read does not also cache the
+ * original.
+ *
+ * Cached images are never handed out. Each read returns a new copy, or on a miss the decoded image
+ * itself while a copy of it is cached, so callers are free to modify the images they get.
+ *
+ * Images are kept until the total size of their pixel data would exceed BYTE_BUDGET, at which point the
+ * least recently used images are evicted.
+ */
+public class ImageCache {
+
+	/** Enables the cache */
+	public static boolean ENABLED = true;
+
+	/** Maximum number of bytes of pixel data held by the cache */
+	public static long BYTE_BUDGET = 128L << 20;
+
+	/** Also cache images read from URLs */
+	public static boolean CACHE_URLS = false;
+
+	/**
+	 * Identifies an image read from source. modified and length are those of the file, or 0 for URLs.
+	 * width and height are the requested size, or -1 for the original size.
+	 */
+	record Key(String source, long modified, long length, int width, int height) {
+		Key original() {
+			return new Key(source, modified, length, -1, -1);
+		}
+	}
+
+	private static final LinkedHashMap<Key, BufferedImage> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private static long cachedBytes = 0;
+	private static long hits = 0;
+	private static long misses = 0;
+	private static long evictions = 0;
+
+	/**
+	 * Returns the key of the image read from source with the given size, or null if the image cannot be cached.
+	 *
+	 * @param source URL or filename, as passed to FileURLIO.readImage
+	 * @param isURL  true if source is a URL
+	 * @param w      requested width, or null
+	 * @param h      requested height, or null
+	 */
+	static Key key(String source, boolean isURL, Integer w, Integer h) {
+		if (!ENABLED) {
+			return null;
+		}
+		int width = w == null || h == null ? -1 : w;
+		int height = w == null || h == null ? -1 : h;
+		if (isURL) {
+			return CACHE_URLS ? new Key(source, 0, 0, width, height) : null;
+		}
+		File file = new File(source);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			return new Key(file.getCanonicalPath(), file.lastModified(), file.length(), width, height);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a copy of the image cached under key, or null if there is none.
+	 */
+	static BufferedImage get(Key key) {
+		BufferedImage image;
+		synchronized (ImageCache.class) {
+			image = entries.get(key);
+			if (image == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+		}
+		// cached images are never modified, so they can be copied without holding the lock
+		return ImageOps.cloneImage(image);
+	}
+
+	/**
+	 * Caches a copy of image under key, so the caller may keep and modify image. Images larger than BYTE_BUDGET
+	 * are ignored without copying them.
+	 */
+	static void put(Key key, BufferedImage image) {
+		if (bytes(image) > BYTE_BUDGET) {
+			return;
+		}
+		store(key, ImageOps.cloneImage(image));
+	}
+
+	private static synchronized void store(Key key, BufferedImage image) {
+		long size = bytes(image);
+		if (size > BYTE_BUDGET) {
+			return;
+		}
+		BufferedImage old = entries.remove(key);
+		if (old != null) {
+			cachedBytes -= bytes(old);
+		}
+		Iterator<BufferedImage> eldest = entries.values().iterator();
+		while (cachedBytes + size > BYTE_BUDGET) {
+			cachedBytes -= bytes(eldest.next());
+			eldest.remove();
+			evictions++;
+		}
+		entries.put(key, image);
+		cachedBytes += size;
+	}
+
+	/**
+	 * Removes the images read from the named file, which has been overwritten. Changed files are
+	 * normally detected by their modification time and length, which may be unchanged if the file is
+	 * written again quickly with the same size.
+	 */
+	static synchronized void invalidate(String filename) {
+		String source;
+		try {
+			source = new File(filename).getCanonicalPath();
+		} catch (IOException e) {
+			return;
+		}
+		Iterator<Map.Entry<Key, BufferedImage>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Key, BufferedImage> entry = it.next();
+			if (entry.getKey().source().equals(source)) {
+				cachedBytes -= bytes(entry.getValue());
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes all images from the cache and resets the counters.
+	 */
+	public static synchronized void clear() {
+		entries.clear();
+		cachedBytes = 0;
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	/**
+	 * @return number of lookups that were answered from the cache. Reading a resized image that is not cached
+	 *         also looks up the original image.
+	 */
+	public static synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of lookups of cacheable images that were not in the cache
+	 */
+	public static synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of images evicted to stay within BYTE_BUDGET
+	 */
+	public static synchronized long evictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return number of bytes of pixel data currently held by the cache
+	 */
+	public static synchronized long cachedBytes() {
+		return cachedBytes;
+	}
+
+	private static long bytes(BufferedImage image) {
+		return (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+	}
+}
@@ -0,0 +1,355 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+
+/**
+ * A deferred image-valued expression. The nodes record the operations of an expression
+ * such as (a + b) * c - d, and materialize evaluates the whole expression in a single pass over
+ * the result image, one row at a time, instead of allocating a full-size intermediate image for
+ * each operator as nested calls to ImageOps.binaryImageImageOp would.
+ *
+ * The result of materialize is identical to the result of the corresponding nested ImageOps
+ * calls. Images with different sizes are rejected when the node combining them is created.
+ *
+ * The code generator uses this class for binary expressions with image-typed operands, calling
+ * materialize where the value of the outermost expression is used. Results are acquired from the
+ * ImagePool, and images holding intermediate values, such as the result of a builtin used as an
+ * operand, are wrapped with temporary so that they are returned to the pool once they have been read.
+ */
+public abstract class ImageExpr {
+
+	final int width;
+	final int height;
+
+	private ImageExpr(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	public static ImageExpr of(BufferedImage image) {
+		return new Leaf(image, false);
+	}
+
+	/**
+	 * Expression whose value is image, which is not referenced anywhere else. The image is released to
+	 * the ImagePool when an expression containing it has been materialized into another image.
+	 */
+	public static ImageExpr temporary(BufferedImage image) {
+		return new Leaf(image, true);
+	}
+
+	/**
+	 * Expression corresponding to ImageOps.binaryImageImageOp(op, left, right)
+	 */
+	public static ImageExpr binary(OP op, ImageExpr left, ImageExpr right) {
+		if (left.width != right.width || left.height != right.height) {
+			throw new PLCRuntimeException("Attempting binary operation on images with unequal sizes");
+		}
+		return new ImageImage(op, left, right);
+	}
+
+	/**
+	 * Expression corresponding to ImageOps.binaryImagePixelOp(op, left, right)
+	 */
+	public static ImageExpr binary(OP op, ImageExpr left, int pixel) {
+		if (op == OP.DIV || op == OP.MOD) {
+			return new ImagePixel(op, left, pixel);
+		}
+		return lut(left, PixelLUT.pixel(op, pixel));
+	}
+
+	/**
+	 * Expression applying op to the given pixel and each pixel of the right image
+	 */
+	public static ImageExpr binary(OP op, int pixel, ImageExpr right) {
+		return new PixelImage(op, pixel, right);
+	}
+
+	/**
+	 * Expression corresponding to ImageOps.binaryImageScalarOp(op, left, right)
+	 */
+	public static ImageExpr binaryScalar(OP op, ImageExpr left, int scalar) {
+		return lut(left, PixelLUT.scalar(op, scalar));
+	}
+
+	/**
+	 * Expression corresponding to ImageOps.applyLUT(left, lut). Consecutive lookups are 
+	 * composed into a single table, so a chain of operations with constant right operands
+	 * such as (a * 3 + 10) / 2 costs one lookup per component.
+	 */
+	public static ImageExpr lut(ImageExpr left, PixelLUT lut) {
+		if (left instanceof Lookup lookup) {
+			return new Lookup(lookup.left, lookup.lut.then(lut));
+		}
+		return new Lookup(left, lut);
+	}
+
+	/**
+	 * Evaluates the expression into a new TYPE_INT_RGB image acquired from the ImagePool. An expression
+	 * consisting of just an image materializes to that image.
+	 *
+	 * @return new image holding the value of the expression
+	 */
+	public BufferedImage materialize() {
+		return materialize(ImagePool.acquire(width, height));
+	}
+
+	/**
+	 * Returns f applied to the value of this expression. If the value is a new or temporary image,
+	 * it is released to the ImagePool when f returns, so f must neither return nor retain its argument.
+	 */
+	public BufferedImage apply(UnaryOperator<BufferedImage> f) {
+		BufferedImage value = materialize();
+		try {
+			return f.apply(value);
+		} finally {
+			releaseValue(value);
+		}
+	}
+
+	/**
+	 * Like apply, for functions with an int result.
+	 */
+	public int applyAsInt(ToIntFunction<BufferedImage> f) {
+		BufferedImage value = materialize();
+		try {
+			return f.applyAsInt(value);
+		} finally {
+			releaseValue(value);
+		}
+	}
+
+	void releaseValue(BufferedImage value) {
+		ImagePool.release(value);
+	}
+
+	/**
+	 * Evaluates the expression into dest, which must have the same size as the expression. 
+	 * dest may be one of the images the expression refers to, since each row of the result 
+	 * only depends on the same row of the operands.
+	 *
+	 * @param dest
+	 * @return dest
+	 */
+	public BufferedImage materialize(BufferedImage dest) {
+		if (dest.getWidth() != width || dest.getHeight() != height) {
+			throw new PLCRuntimeException("Destination image has size " + dest.getWidth() + "x" + dest.getHeight()
+					+ ", expected " + width + "x" + height);
+		}
+		int[] dst = ImageOps.rgbRaster(dest);
+		ParallelOps.forEachRowBand(width, height, (startRow, endRow) -> {
+			RowBuffers buffers = new RowBuffers(width);
+			int[] row = buffers.take();
+			for (int y = startRow; y < endRow; y++) {
+				evaluateRow(y, row, buffers);
+				if (dst == null) {
+					for (int x = 0; x < width; x++) {
+						row[x] |= PixelOps.SELECT_ALPHA;
+					}
+					dest.setRGB(0, y, width, 1, row, 0, width);
+					continue;
+				}
+				int offset = y * width;
+				for (int x = 0; x < width; x++) {
+					dst[offset + x] = row[x] & ImageOps.RGB_MASK;
+				}
+			}
+		});
+		releaseTemporaries(dest);
+		return dest;
+	}
+
+	/**
+	 * Releases the temporary images of this expression other than dest to the ImagePool.
+	 */
+	abstract void releaseTemporaries(BufferedImage dest);
+
+	/**
+	 * Writes the packed pixels of row y of the value of this expression to out[0..width).
+	 * Alpha bits of the written pixels are unspecified.
+	 */
+	abstract void evaluateRow(int y, int[] out, RowBuffers buffers);
+
+	/**
+	 * Scratch rows used while evaluating the subexpressions of a row. Each band of rows
+	 * has its own instance, so evaluation never allocates per row.
+	 */
+	static class RowBuffers {
+		private final int width;
+		private final ArrayDeque<int[]> free = new ArrayDeque<>();
+
+		RowBuffers(int width) {
+			this.width = width;
+		}
+
+		int[] take() {
+			int[] buffer = free.poll();
+			return buffer != null ? buffer : new int[width];
+		}
+
+		void release(int[] buffer) {
+			free.push(buffer);
+		}
+	}
+
+	private static class Leaf extends ImageExpr {
+		private final BufferedImage image;
+		private final int[] pixels;
+		private final boolean temporary;
+
+		Leaf(BufferedImage image, boolean temporary) {
+			super(image.getWidth(), image.getHeight());
+			this.image = image;
+			this.pixels = ImageOps.intRaster(image);
+			this.temporary = temporary;
+		}
+
+		@Override
+		public BufferedImage materialize() {
+			return image;
+		}
+
+		@Override
+		public BufferedImage materialize(BufferedImage dest) {
+			return dest == image ? image : super.materialize(dest);
+		}
+
+		@Override
+		void releaseValue(BufferedImage value) {
+			if (temporary) {
+				ImagePool.release(value);
+			}
+		}
+
+		@Override
+		void releaseTemporaries(BufferedImage dest) {
+			if (temporary && dest != image) {
+				ImagePool.release(image);
+			}
+		}
+
+		@Override
+		void evaluateRow(int y, int[] out, RowBuffers buffers) {
+			if (pixels != null) {
+				System.arraycopy(pixels, y * width, out, 0, width);
+			} else {
+				ImageOps.getRGBRow(image, y, out);
+			}
+		}
+	}
+
+	private static class ImageImage extends ImageExpr {
+		private final OP op;
+		private final ImageExpr left;
+		private final ImageExpr right;
+
+		ImageImage(OP op, ImageExpr left, ImageExpr right) {
+			super(left.width, left.height);
+			this.op = op;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		void evaluateRow(int y, int[] out, RowBuffers buffers) {
+			left.evaluateRow(y, out, buffers);
+			int[] rightRow = buffers.take();
+			right.evaluateRow(y, rightRow, buffers);
+			ImageOps.pixelPixelOp(op, out, rightRow, out, 0, width);
+			buffers.release(rightRow);
+		}
+
+		@Override
+		void releaseTemporaries(BufferedImage dest) {
+			left.releaseTemporaries(dest);
+			right.releaseTemporaries(dest);
+		}
+	}
+
+	private static class ImagePixel extends ImageExpr {
+		private final OP op;
+		private final ImageExpr left;
+		private final int pixel;
+
+		ImagePixel(OP op, ImageExpr left, int pixel) {
+			super(left.width, left.height);
+			this.op = op;
+			this.left = left;
+			this.pixel = pixel;
+		}
+
+		@Override
+		void evaluateRow(int y, int[] out, RowBuffers buffers) {
+			left.evaluateRow(y, out, buffers);
+			ImageOps.pixelConstantOp(op, out, pixel, out, 0, width);
+		}
+
+		@Override
+		void releaseTemporaries(BufferedImage dest) {
+			left.releaseTemporaries(dest);
+		}
+	}
+
+	private static class PixelImage extends ImageExpr {
+		private final OP op;
+		private final int pixel;
+		private final ImageExpr right;
+
+		PixelImage(OP op, int pixel, ImageExpr right) {
+			super(right.width, right.height);
+			this.op = op;
+			this.pixel = pixel;
+			this.right = right;
+		}
+
+		@Override
+		void evaluateRow(int y, int[] out, RowBuffers buffers) {
+			right.evaluateRow(y, out, buffers);
+			for (int x = 0; x < width; x++) {
+				out[x] = ImageOps.binaryPackedPixelPixelOp(op, pixel, out[x]);
+			}
+		}
+
+		@Override
+		void releaseTemporaries(BufferedImage dest) {
+			right.releaseTemporaries(dest);
+		}
+	}
+
+	private static class Lookup extends ImageExpr {
+		private final ImageExpr left;
+		private final PixelLUT lut;
+
+		Lookup(ImageExpr left, PixelLUT lut) {
+			super(left.width, left.height);
+			this.left = left;
+			this.lut = lut;
+		}
+
+		@Override
+		void evaluateRow(int y, int[] out, RowBuffers buffers) {
+			left.evaluateRow(y, out, buffers);
+			lut.apply(out, out, 0, width);
+		}
+
+		@Override
+		void releaseTemporaries(BufferedImage dest) {
+			left.releaseTemporaries(dest);
+		}
+	}
+}
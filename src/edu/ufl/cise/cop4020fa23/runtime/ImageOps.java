@@ -10,11 +10,22 @@
 
 package edu.ufl.cise.cop4020fa23.runtime;
 
+import java.awt.Dimension;
 import java.awt.Graphics2D;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.util.Arrays;
+import java.util.function.IntPredicate;
 
 
 /**
@@ -33,6 +44,13 @@ import java.util.Arrays;
  * available for the alpha, red, green, and blue components. See the PixelOps 
  * class for methods for working with pixels.
  * 
+ * The whole-image operations check whether their images are TYPE_INT_RGB or
+ * TYPE_INT_ARGB images backed by a plain DataBufferInt (see intRaster). If so,
+ * they work directly on the backing int[] in row-major order, avoiding the
+ * ColorModel conversion done by BufferedImage.getRGB/setRGB for every pixel.
+ * Other image types use the per-pixel path. Where the Java Vector API is available,
+ * the arithmetic on int rasters is vectorized (see VectorOps).
+ * 
  */
 
 public class ImageOps {
@@ -48,18 +66,18 @@ public class ImageOps {
 	 * @return
 	 */
 	public static BufferedImage extractRed(BufferedImage image) {
-		int width = image.getWidth();
-		int height = image.getHeight();
-		BufferedImage newImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				int pixel = getRGB(image, x, y);
-				int red = PixelOps.red(pixel);
-				int redPixel = PixelOps.pack(red, 0, 0);
-				newImage.setRGB(x, y, redPixel);
-			}
-		}
-		return newImage;
+		return extractChannel(image, PixelOps.SELECT_RED, makeImage(image.getWidth(), image.getHeight()));
+	}
+
+	/**
+	 * Like extractRed(image), but writes the result into dest, which must have the same size as image.
+	 * 
+	 * @param image
+	 * @param dest
+	 * @return dest
+	 */
+	public static BufferedImage extractRed(BufferedImage image, BufferedImage dest) {
+		return extractChannel(image, PixelOps.SELECT_RED, dest);
 	}
 
 	/**
@@ -71,18 +89,18 @@ public class ImageOps {
 	 * @return
 	 */
 	public static BufferedImage extractGrn(BufferedImage image) {
-		int width = image.getWidth();
-		int height = image.getHeight();
-		BufferedImage newImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				int pixel = getRGB(image, x, y);
-				int grn = PixelOps.green(pixel);
-				int grnPixel = PixelOps.pack(0, grn, 0);
-				newImage.setRGB(x, y, grnPixel);
-			}
-		}
-		return newImage;
+		return extractChannel(image, PixelOps.SELECT_GREEN, makeImage(image.getWidth(), image.getHeight()));
+	}
+
+	/**
+	 * Like extractGrn(image), but writes the result into dest, which must have the same size as image.
+	 * 
+	 * @param image
+	 * @param dest
+	 * @return dest
+	 */
+	public static BufferedImage extractGrn(BufferedImage image, BufferedImage dest) {
+		return extractChannel(image, PixelOps.SELECT_GREEN, dest);
 	}
 
 	/**
@@ -94,18 +112,164 @@ public class ImageOps {
 	 * @return
 	 */
 	public static BufferedImage extractBlu(BufferedImage image) {
+		return extractChannel(image, PixelOps.SELECT_BLUE, makeImage(image.getWidth(), image.getHeight()));
+	}
+
+	/**
+	 * Like extractBlu(image), but writes the result into dest, which must have the same size as image.
+	 * 
+	 * @param image
+	 * @param dest
+	 * @return dest
+	 */
+	public static BufferedImage extractBlu(BufferedImage image, BufferedImage dest) {
+		return extractChannel(image, PixelOps.SELECT_BLUE, dest);
+	}
+
+	/**
+	 * Writes the channel of the given image selected by the mask, which is one of 
+	 * PixelOps.SELECT_RED, SELECT_GREEN, or SELECT_BLUE, into dest.
+	 */
+	private static BufferedImage extractChannel(BufferedImage image, int select, BufferedImage dest) {
 		int width = image.getWidth();
 		int height = image.getHeight();
-		BufferedImage newImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				int pixel = getRGB(image, x, y);
-				int blu = PixelOps.blue(pixel);
-				int bluPixel = PixelOps.pack(0, 0, blu);
-				newImage.setRGB(x, y, bluPixel);
+		checkDestination(dest, width, height);
+		int[] src = intRaster(image);
+		int[] dst = rgbRaster(dest);
+		if (src != null && dst != null) {
+			ParallelOps.forEachRowBand(width, height, (startRow, endRow) -> {
+				for (int i = startRow * width, end = endRow * width; i < end; i++) {
+					dst[i] = src[i] & select;
+				}
+			});
+			return dest;
+		}
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			getRGBRow(image, y, row);
+			for (int x = 0; x < width; x++) {
+				row[x] = (row[x] & select) | PixelOps.SELECT_ALPHA;
+			}
+			dest.setRGB(0, y, width, 1, row, 0, width);
+		}
+		return dest;
+	}
+
+	/**
+	 * Splits the given image into its red, green, and blue channels in a single pass.
+	 * 
+	 * If compact is false, the result holds three TYPE_INT_RGB images equal to extractRed(image), 
+	 * extractGrn(image), and extractBlu(image).
+	 * 
+	 * If compact is true, the result holds three channel planes: TYPE_BYTE_INDEXED images that
+	 * store one byte per pixel, with a color model that maps each byte value v to the pixel 
+	 * with v in the corresponding channel and 0 in the others. getRGB on a channel plane returns
+	 * the same pixels as the full-size image, so planes can be used anywhere an image is expected, 
+	 * and ImageOps reads them directly from their byte arrays. Writing a pixel with setRGB stores 
+	 * the palette entry closest to it, so planes should be treated as read-only.
+	 * 
+	 * @param image
+	 * @param compact
+	 * @return array holding the red, green, and blue channel images, in that order
+	 */
+	public static BufferedImage[] extractChannels(BufferedImage image, boolean compact) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		BufferedImage[] channels = new BufferedImage[3];
+		for (int c = 0; c < 3; c++) {
+			channels[c] = compact ? new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, PLANE_MODELS[c])
+					: makeImage(width, height);
+		}
+		int[] src = intRaster(image);
+		ParallelOps.RowKernel kernel = (startRow, endRow) -> {
+			int[] row = src != null ? src : new int[width];
+			for (int y = startRow; y < endRow; y++) {
+				int offset = y * width;
+				int rowStart = offset;
+				if (src == null) {
+					getRGBRow(image, y, row);
+					rowStart = 0;
+				}
+				if (compact) {
+					byte[] red = channelPlane(channels[0]);
+					byte[] grn = channelPlane(channels[1]);
+					byte[] blu = channelPlane(channels[2]);
+					for (int x = 0; x < width; x++) {
+						int pixel = row[rowStart + x];
+						red[offset + x] = (byte) (pixel >>> PixelOps.SHIFT_RED);
+						grn[offset + x] = (byte) (pixel >>> PixelOps.SHIFT_GREEN);
+						blu[offset + x] = (byte) (pixel >>> PixelOps.SHIFT_BLUE);
+					}
+				} else {
+					int[] red = intRaster(channels[0]);
+					int[] grn = intRaster(channels[1]);
+					int[] blu = intRaster(channels[2]);
+					for (int x = 0; x < width; x++) {
+						int pixel = row[rowStart + x];
+						red[offset + x] = pixel & PixelOps.SELECT_RED;
+						grn[offset + x] = pixel & PixelOps.SELECT_GREEN;
+						blu[offset + x] = pixel & PixelOps.SELECT_BLUE;
+					}
+				}
 			}
+		};
+		if (src != null) {
+			ParallelOps.forEachRowBand(width, height, kernel);
+		} else {
+			kernel.apply(0, height);
 		}
-		return newImage;
+		return channels;
+	}
+
+	/** Shift of the channel held by channel planes using PLANE_MODELS[i] */
+	private static final int[] PLANE_SHIFTS = { PixelOps.SHIFT_RED, PixelOps.SHIFT_GREEN, PixelOps.SHIFT_BLUE };
+
+	/** Color models of the red, green, and blue channel planes created by extractChannels */
+	private static final IndexColorModel[] PLANE_MODELS = new IndexColorModel[3];
+
+	static {
+		byte[] values = new byte[256];
+		byte[] zeros = new byte[256];
+		for (int v = 0; v < 256; v++) {
+			values[v] = (byte) v;
+		}
+		PLANE_MODELS[0] = new IndexColorModel(8, 256, values, zeros, zeros);
+		PLANE_MODELS[1] = new IndexColorModel(8, 256, zeros, values, zeros);
+		PLANE_MODELS[2] = new IndexColorModel(8, 256, zeros, zeros, values);
+	}
+
+	/**
+	 * Returns the byte array holding the channel values of a channel plane created by extractChannels
+	 * in row-major order, or null if the image is not such a plane.
+	 */
+	static byte[] channelPlane(BufferedImage image) {
+		if (channelPlaneShift(image) < 0) {
+			return null;
+		}
+		WritableRaster raster = image.getRaster();
+		if (!(raster.getDataBuffer() instanceof DataBufferByte buffer)
+				|| !(raster.getSampleModel() instanceof PixelInterleavedSampleModel sampleModel)) {
+			return null;
+		}
+		if (buffer.getNumBanks() != 1 || buffer.getOffset() != 0 || raster.getSampleModelTranslateX() != 0
+				|| raster.getSampleModelTranslateY() != 0 || sampleModel.getPixelStride() != 1
+				|| sampleModel.getScanlineStride() != raster.getWidth()) {
+			return null;
+		}
+		return buffer.getData();
+	}
+
+	/**
+	 * Returns the shift of the channel held by a channel plane created by extractChannels, or -1 if 
+	 * the image is not a channel plane.
+	 */
+	static int channelPlaneShift(BufferedImage image) {
+		for (int c = 0; c < 3; c++) {
+			if (image.getColorModel() == PLANE_MODELS[c]) {
+				return PLANE_SHIFTS[c];
+			}
+		}
+		return -1;
 	}
 
 	public enum OP {
@@ -128,8 +292,8 @@ public class ImageOps {
 		int rblu = PixelOps.blue(rightPacked);
 		return 
 		switch(op) {
-		case PLUS -> PixelOps.pack(lred + rred, lgrn + rgrn, lblu + rblu);
-		case MINUS -> PixelOps.pack(lred - rred, lgrn - rgrn, lblu - rblu);
+		case PLUS -> PixelOps.addSaturated(leftPacked, rightPacked);
+		case MINUS -> PixelOps.subtractSaturated(leftPacked, rightPacked);
 		case TIMES -> PixelOps.pack(lred * rred, lgrn * rgrn, lblu * rblu);
 		case DIV -> PixelOps.pack(lred / rred, lgrn / lgrn, lblu / rblu);
 		case MOD -> PixelOps.pack(lred % rred, lgrn % lgrn, lblu % rblu);
@@ -138,6 +302,16 @@ public class ImageOps {
 	}
 	
 	public static int binaryPackedPixelScalarOp(OP op, int leftPacked, int right) {
+		// the saturating PixelOps methods apply whenever the int arithmetic on a channel cannot overflow
+		if (op == OP.PLUS && right <= Integer.MAX_VALUE - 255) {
+			return PixelOps.addScalarSaturated(leftPacked, right);
+		}
+		if (op == OP.MINUS && right >= 255 - Integer.MAX_VALUE) {
+			return PixelOps.addScalarSaturated(leftPacked, -right);
+		}
+		if (op == OP.TIMES && Math.abs(right) <= Integer.MAX_VALUE / 255) {
+			return PixelOps.scaleSaturated(leftPacked, right);
+		}
 		int lred = PixelOps.red(leftPacked);
 		int lgrn = PixelOps.green(leftPacked);
 		int lblu = PixelOps.blue(leftPacked);
@@ -172,39 +346,77 @@ public class ImageOps {
 	 */
 	
 	public static BufferedImage binaryImageImageOp(OP op, BufferedImage left, BufferedImage right) {
+		checkSameSize(left, right);
+		return binaryImageImageOp(op, left, right, makeImage(left.getWidth(), left.getHeight()));
+	}
+
+	/**
+	 * Like binaryImageImageOp(op, left, right), but writes the result into dest instead of
+	 * a new image. dest must have the same size as left and right, and may be one of them.
+	 * 
+	 * @param op
+	 * @param left
+	 * @param right
+	 * @param dest
+	 * @return dest
+	 */
+	public static BufferedImage binaryImageImageOp(OP op, BufferedImage left, BufferedImage right, BufferedImage dest) {
+		checkSameSize(left, right);
 		int lwidth = left.getWidth();
-		int rwidth = right.getWidth();
 		int lheight = left.getHeight();
-		int rheight = right.getHeight();
-		if (lwidth != rwidth || lheight != rheight) {
-			throw new PLCRuntimeException("Attempting binary operation on images with unequal sizes");
+		checkDestination(dest, lwidth, lheight);
+		int[] lpixels = intRaster(left);
+		int[] rpixels = intRaster(right);
+		int[] dst = rgbRaster(dest);
+		if (lpixels != null && rpixels != null && dst != null) {
+			ParallelOps.forEachRowBand(lwidth, lheight,
+					(startRow, endRow) -> pixelPixelOp(op, lpixels, rpixels, dst, startRow * lwidth, endRow * lwidth));
+			return dest;
 		}
-		BufferedImage result = new BufferedImage(lwidth, lheight, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < lwidth; x++) {
-			for (int y = 0; y < lheight; y++) {
-				int leftPixel = left.getRGB(x, y);
-				int rightPixel = right.getRGB(x, y);
-				int newPixel = binaryPackedPixelPixelOp(op, leftPixel, rightPixel);
-				result.setRGB(x, y, newPixel);
-			}
+		int[] lrow = new int[lwidth];
+		int[] rrow = new int[lwidth];
+		for (int y = 0; y < lheight; y++) {
+			getRGBRow(left, y, lrow);
+			getRGBRow(right, y, rrow);
+			pixelPixelOp(op, lrow, rrow, lrow, 0, lwidth);
+			setRGBRow(dest, y, lrow);
 		}
-		return result;
+		return dest;
 	}
 	
 	
 	public static BufferedImage binaryImagePixelOp(OP op, BufferedImage left, int right) {
+		return binaryImagePixelOp(op, left, right, makeImage(left.getWidth(), left.getHeight()));
+	}
+
+	/**
+	 * Like binaryImagePixelOp(op, left, right), but writes the result into dest instead of
+	 * a new image. dest must have the same size as left, and may be left.
+	 * 
+	 * @param op
+	 * @param left
+	 * @param right
+	 * @param dest
+	 * @return dest
+	 */
+	public static BufferedImage binaryImagePixelOp(OP op, BufferedImage left, int right, BufferedImage dest) {
 		int lwidth = left.getWidth();
 		int lheight = left.getHeight();
-
-		BufferedImage result = new BufferedImage(lwidth, lheight, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < lwidth; x++) {
-			for (int y = 0; y < lheight; y++) {
-				int leftPixel = left.getRGB(x, y);
-				int newPixel = binaryPackedPixelPixelOp(op, leftPixel, right);
-				result.setRGB(x, y, newPixel);
-			}
+		checkDestination(dest, lwidth, lheight);
+		int[] lpixels = intRaster(left);
+		int[] dst = rgbRaster(dest);
+		if (lpixels != null && dst != null) {
+			ParallelOps.forEachRowBand(lwidth, lheight,
+					(startRow, endRow) -> pixelConstantOp(op, lpixels, right, dst, startRow * lwidth, endRow * lwidth));
+			return dest;
 		}
-		return result;
+		int[] row = new int[lwidth];
+		for (int y = 0; y < lheight; y++) {
+			getRGBRow(left, y, row);
+			pixelConstantOp(op, row, right, row, 0, lwidth);
+			setRGBRow(dest, y, row);
+		}
+		return dest;
 	}
 	
 	/**
@@ -217,29 +429,762 @@ public class ImageOps {
 	 * @return
 	 */
 	public static BufferedImage binaryImageScalarOp(OP op, BufferedImage left, int right) {
+		return binaryImageScalarOp(op, left, right, makeImage(left.getWidth(), left.getHeight()));
+	}
+
+	/**
+	 * Like binaryImageScalarOp(op, left, right), but writes the result into dest instead of
+	 * a new image. dest must have the same size as left, and may be left.
+	 * 
+	 * @param op
+	 * @param left
+	 * @param right
+	 * @param dest
+	 * @return dest
+	 */
+	public static BufferedImage binaryImageScalarOp(OP op, BufferedImage left, int right, BufferedImage dest) {
 		int lwidth = left.getWidth();
 		int lheight = left.getHeight();
-		BufferedImage result = new BufferedImage(lwidth, lheight, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < lwidth; x++) {
-			for (int y = 0; y < lheight; y++) {
-				int leftPixel = left.getRGB(x, y);
-				int newPixel = binaryPackedPixelScalarOp(op,leftPixel, right);
-				result.setRGB(x, y, newPixel);
+		checkDestination(dest, lwidth, lheight);
+		int[] lpixels = intRaster(left);
+		int[] dst = rgbRaster(dest);
+		if (lpixels != null && dst != null) {
+			ParallelOps.forEachRowBand(lwidth, lheight,
+					(startRow, endRow) -> pixelScalarOp(op, lpixels, right, dst, startRow * lwidth, endRow * lwidth));
+			return dest;
+		}
+		int[] row = new int[lwidth];
+		for (int y = 0; y < lheight; y++) {
+			getRGBRow(left, y, row);
+			pixelScalarOp(op, row, right, row, 0, lwidth);
+			setRGBRow(dest, y, row);
+		}
+		return dest;
+	}
+
+	/*
+	 * Overloads of the binary operations for planar images. Each channel plane is processed
+	 * separately; results are the same as for the corresponding BufferedImage operations.
+	 */
+
+	public static PlanarImage binaryImageImageOp(OP op, PlanarImage left, PlanarImage right) {
+		return binaryImageImageOp(op, left, right, new PlanarImage(left.width, left.height));
+	}
+
+	public static PlanarImage binaryImageImageOp(OP op, PlanarImage left, PlanarImage right, PlanarImage dest) {
+		if (left.width != right.width || left.height != right.height) {
+			throw new PLCRuntimeException("Attempting binary operation on images with unequal sizes");
+		}
+		checkDestination(dest, left.width, left.height);
+		// binaryPackedPixelPixelOp divides the green component of the left pixel by itself
+		byte[] rgrn = op == OP.DIV || op == OP.MOD ? left.grn : right.grn;
+		int width = left.width;
+		ParallelOps.forEachRowBand(width, left.height, (startRow, endRow) -> {
+			int start = startRow * width;
+			int end = endRow * width;
+			PlanarImage.channelChannelOp(op, left.red, right.red, dest.red, start, end);
+			PlanarImage.channelChannelOp(op, left.grn, rgrn, dest.grn, start, end);
+			PlanarImage.channelChannelOp(op, left.blu, right.blu, dest.blu, start, end);
+		});
+		return dest;
+	}
+
+	public static PlanarImage binaryImagePixelOp(OP op, PlanarImage left, int right) {
+		return binaryImagePixelOp(op, left, right, new PlanarImage(left.width, left.height));
+	}
+
+	public static PlanarImage binaryImagePixelOp(OP op, PlanarImage left, int right, PlanarImage dest) {
+		checkDestination(dest, left.width, left.height);
+		boolean selfDivide = op == OP.DIV || op == OP.MOD;
+		int width = left.width;
+		ParallelOps.forEachRowBand(width, left.height, (startRow, endRow) -> {
+			int start = startRow * width;
+			int end = endRow * width;
+			PlanarImage.channelScalarOp(op, left.red, PixelOps.red(right), dest.red, start, end);
+			if (selfDivide) {
+				// binaryPackedPixelPixelOp divides the green component of the left pixel by itself
+				PlanarImage.channelChannelOp(op, left.grn, left.grn, dest.grn, start, end);
+			} else {
+				PlanarImage.channelScalarOp(op, left.grn, PixelOps.green(right), dest.grn, start, end);
+			}
+			PlanarImage.channelScalarOp(op, left.blu, PixelOps.blue(right), dest.blu, start, end);
+		});
+		return dest;
+	}
+
+	public static PlanarImage binaryImageScalarOp(OP op, PlanarImage left, int right) {
+		return binaryImageScalarOp(op, left, right, new PlanarImage(left.width, left.height));
+	}
+
+	public static PlanarImage binaryImageScalarOp(OP op, PlanarImage left, int right, PlanarImage dest) {
+		checkDestination(dest, left.width, left.height);
+		int width = left.width;
+		ParallelOps.forEachRowBand(width, left.height, (startRow, endRow) -> {
+			int start = startRow * width;
+			int end = endRow * width;
+			PlanarImage.channelScalarOp(op, left.red, right, dest.red, start, end);
+			PlanarImage.channelScalarOp(op, left.grn, right, dest.grn, start, end);
+			PlanarImage.channelScalarOp(op, left.blu, right, dest.blu, start, end);
+		});
+		return dest;
+	}
+
+	/**
+	 * Returns a new planar image containing only the red component of the given image.
+	 */
+	public static PlanarImage extractRed(PlanarImage image) {
+		PlanarImage result = new PlanarImage(image.width, image.height);
+		System.arraycopy(image.red, 0, result.red, 0, image.red.length);
+		return result;
+	}
+
+	/**
+	 * Returns a new planar image containing only the green component of the given image.
+	 */
+	public static PlanarImage extractGrn(PlanarImage image) {
+		PlanarImage result = new PlanarImage(image.width, image.height);
+		System.arraycopy(image.grn, 0, result.grn, 0, image.grn.length);
+		return result;
+	}
+
+	/**
+	 * Returns a new planar image containing only the blue component of the given image.
+	 */
+	public static PlanarImage extractBlu(PlanarImage image) {
+		PlanarImage result = new PlanarImage(image.width, image.height);
+		System.arraycopy(image.blu, 0, result.blu, 0, image.blu.length);
+		return result;
+	}
+
+	public static boolean equals(PlanarImage image0, PlanarImage image1) {
+		return image0.equals(image1);
+	}
+
+	private static void checkDestination(PlanarImage dest, int width, int height) {
+		if (dest.width != width || dest.height != height) {
+			throw new PLCRuntimeException("Destination image has size " + dest.width + "x" + dest.height
+					+ ", expected " + width + "x" + height);
+		}
+	}
+
+	/*
+	 * Overloads of the binary operations, channel selection and resizing for off-heap images,
+	 * processing one row at a time with the same kernels as the int raster paths. 
+	 */
+
+	public static OffHeapImage binaryImageImageOp(OP op, OffHeapImage left, OffHeapImage right) {
+		return binaryImageImageOp(op, left, right, new OffHeapImage(left.width, left.height));
+	}
+
+	public static OffHeapImage binaryImageImageOp(OP op, OffHeapImage left, OffHeapImage right, OffHeapImage dest) {
+		if (left.width != right.width || left.height != right.height) {
+			throw new PLCRuntimeException("Attempting binary operation on images with unequal sizes");
+		}
+		checkDestination(dest, left.width, left.height);
+		int width = left.width;
+		ParallelOps.forEachRowBand(width, left.height, (startRow, endRow) -> {
+			int[] lrow = new int[width];
+			int[] rrow = new int[width];
+			for (int y = startRow; y < endRow; y++) {
+				left.getRow(y, lrow);
+				right.getRow(y, rrow);
+				pixelPixelOp(op, lrow, rrow, lrow, 0, width);
+				dest.setRow(y, lrow);
 			}
+		});
+		return dest;
+	}
+
+	public static OffHeapImage binaryImagePixelOp(OP op, OffHeapImage left, int right) {
+		return binaryImagePixelOp(op, left, right, new OffHeapImage(left.width, left.height));
+	}
+
+	public static OffHeapImage binaryImagePixelOp(OP op, OffHeapImage left, int right, OffHeapImage dest) {
+		checkDestination(dest, left.width, left.height);
+		int width = left.width;
+		ParallelOps.forEachRowBand(width, left.height, (startRow, endRow) -> {
+			int[] row = new int[width];
+			for (int y = startRow; y < endRow; y++) {
+				left.getRow(y, row);
+				pixelConstantOp(op, row, right, row, 0, width);
+				dest.setRow(y, row);
+			}
+		});
+		return dest;
+	}
+
+	public static OffHeapImage binaryImageScalarOp(OP op, OffHeapImage left, int right) {
+		return binaryImageScalarOp(op, left, right, new OffHeapImage(left.width, left.height));
+	}
+
+	public static OffHeapImage binaryImageScalarOp(OP op, OffHeapImage left, int right, OffHeapImage dest) {
+		checkDestination(dest, left.width, left.height);
+		int width = left.width;
+		ParallelOps.forEachRowBand(width, left.height, (startRow, endRow) -> {
+			int[] row = new int[width];
+			for (int y = startRow; y < endRow; y++) {
+				left.getRow(y, row);
+				pixelScalarOp(op, row, right, row, 0, width);
+				dest.setRow(y, row);
+			}
+		});
+		return dest;
+	}
+
+	public static OffHeapImage extractRed(OffHeapImage image) {
+		return extractChannel(image, PixelOps.SELECT_RED);
+	}
+
+	public static OffHeapImage extractGrn(OffHeapImage image) {
+		return extractChannel(image, PixelOps.SELECT_GREEN);
+	}
+
+	public static OffHeapImage extractBlu(OffHeapImage image) {
+		return extractChannel(image, PixelOps.SELECT_BLUE);
+	}
+
+	private static OffHeapImage extractChannel(OffHeapImage image, int select) {
+		OffHeapImage dest = new OffHeapImage(image.width, image.height);
+		int width = image.width;
+		ParallelOps.forEachRowBand(width, image.height, (startRow, endRow) -> {
+			int[] row = new int[width];
+			for (int y = startRow; y < endRow; y++) {
+				image.getRow(y, row);
+				for (int x = 0; x < width; x++) {
+					row[x] &= select;
+				}
+				dest.setRow(y, row);
+			}
+		});
+		return dest;
+	}
+
+	/**
+	 * Returns a new off-heap image that is a resized version of the given image, with the same pixels
+	 * as copyAndResize on a BufferedImage holding the same pixels.
+	 */
+	public static OffHeapImage copyAndResize(OffHeapImage image, int maxX, int maxY) {
+		int w = image.width;
+		int h = image.height;
+		if (!Resampler.hasTables(w, h)) {
+			throw new PLCRuntimeException("Image of size " + w + "x" + h + " is too large to resize");
 		}
+		Dimension size = Resampler.nearestNeighborSize(w, h, maxX, maxY);
+		OffHeapImage result = new OffHeapImage(size.width, size.height);
+		int rw = result.width;
+		int[] xTable = Resampler.nearestNeighborTable(w, h, maxX, maxY, rw, true);
+		int[] yTable = Resampler.nearestNeighborTable(w, h, maxX, maxY, result.height, false);
+		ParallelOps.forEachRowBand(rw, result.height, (startRow, endRow) -> {
+			int[] srcRow = new int[w];
+			int[] dstRow = new int[rw];
+			int loaded = -1;
+			for (int y = startRow; y < endRow; y++) {
+				int sy = yTable[y];
+				if (sy < 0) {
+					continue;
+				}
+				if (sy != loaded) {
+					image.getRow(sy, srcRow);
+					loaded = sy;
+				}
+				for (int x = 0; x < rw; x++) {
+					int sx = xTable[x];
+					dstRow[x] = sx >= 0 ? srcRow[sx] : 0;
+				}
+				result.setRow(y, dstRow);
+			}
+		});
 		return result;
 	}
+
+	/**
+	 * If coordinates are out of bounds it returns a black pixel. 
+	 */
+	public static int getRGB(OffHeapImage image, int x, int y) {
+		return image.getRGB(x, y);
+	}
+
+	/**
+	 * If coordinates are out of bounds does nothing. 
+	 */
+	public static void setRGB(OffHeapImage image, int x, int y, int pixel) {
+		image.setRGB(x, y, pixel);
+	}
+
+	private static void checkDestination(OffHeapImage dest, int width, int height) {
+		if (dest.width != width || dest.height != height) {
+			throw new PLCRuntimeException("Destination image has size " + dest.width + "x" + dest.height
+					+ ", expected " + width + "x" + height);
+		}
+	}
+
+	/*
+	 * Overloads of the binary operations and channel selection for tiled images. They do not compute
+	 * anything when called, but return a tiled image with the tile size of the left operand whose tiles 
+	 * are computed from the corresponding regions of the operands when they are first used, with the same 
+	 * kernels as the int raster paths.
+	 */
+
+	public static TiledImage binaryImageImageOp(OP op, TiledImage left, TiledImage right) {
+		if (left.width != right.width || left.height != right.height) {
+			throw new PLCRuntimeException("Attempting binary operation on images with unequal sizes");
+		}
+		return new TiledImage(left.width, left.height, left.tileSize, (x, y, w, h, pixels) -> {
+			int[] rpixels = new int[w * h];
+			left.read(x, y, w, h, pixels);
+			right.read(x, y, w, h, rpixels);
+			pixelPixelOp(op, pixels, rpixels, pixels, 0, w * h);
+		});
+	}
+
+	public static TiledImage binaryImagePixelOp(OP op, TiledImage left, int right) {
+		return mapTiles(left, (pixels, n) -> pixelConstantOp(op, pixels, right, pixels, 0, n));
+	}
+
+	public static TiledImage binaryImageScalarOp(OP op, TiledImage left, int right) {
+		return mapTiles(left, (pixels, n) -> pixelScalarOp(op, pixels, right, pixels, 0, n));
+	}
+
+	public static TiledImage applyLUT(TiledImage image, PixelLUT lut) {
+		return mapTiles(image, (pixels, n) -> lut.apply(pixels, pixels, 0, n));
+	}
+
+	public static TiledImage extractRed(TiledImage image) {
+		return mapTiles(image, (pixels, n) -> selectBits(pixels, n, PixelOps.SELECT_RED));
+	}
+
+	public static TiledImage extractGrn(TiledImage image) {
+		return mapTiles(image, (pixels, n) -> selectBits(pixels, n, PixelOps.SELECT_GREEN));
+	}
+
+	public static TiledImage extractBlu(TiledImage image) {
+		return mapTiles(image, (pixels, n) -> selectBits(pixels, n, PixelOps.SELECT_BLUE));
+	}
+
+	/**
+	 * If coordinates are out of bounds it returns a black pixel. 
+	 */
+	public static int getRGB(TiledImage image, int x, int y) {
+		return image.getRGB(x, y);
+	}
+
+	/**
+	 * If coordinates are out of bounds does nothing. 
+	 */
+	public static void setRGB(TiledImage image, int x, int y, int pixel) {
+		image.setRGB(x, y, pixel);
+	}
+
+	/**
+	 * Transforms the first n pixels of a region of a tiled image in place.
+	 */
+	@FunctionalInterface
+	private interface TileKernel {
+		void apply(int[] pixels, int n);
+	}
+
+	private static TiledImage mapTiles(TiledImage image, TileKernel kernel) {
+		return new TiledImage(image.width, image.height, image.tileSize, (x, y, w, h, pixels) -> {
+			image.read(x, y, w, h, pixels);
+			kernel.apply(pixels, w * h);
+		});
+	}
+
+	private static void selectBits(int[] pixels, int n, int select) {
+		for (int i = 0; i < n; i++) {
+			pixels[i] &= select;
+		}
+	}
+
+	/**
+	 * Returns a new image obtained by looking up each color component of each pixel of the given image in lut.
+	 * 
+	 * @param image
+	 * @param lut
+	 * @return new image
+	 */
+	public static BufferedImage applyLUT(BufferedImage image, PixelLUT lut) {
+		return applyLUT(image, lut, makeImage(image.getWidth(), image.getHeight()));
+	}
+
+	/**
+	 * Like applyLUT(image, lut), but writes the result into dest instead of a new image. dest must have
+	 * the same size as image, and may be image.
+	 * 
+	 * @param image
+	 * @param lut
+	 * @param dest
+	 * @return dest
+	 */
+	public static BufferedImage applyLUT(BufferedImage image, PixelLUT lut, BufferedImage dest) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		checkDestination(dest, width, height);
+		int[] src = intRaster(image);
+		int[] dst = rgbRaster(dest);
+		if (src != null && dst != null) {
+			ParallelOps.forEachRowBand(width, height,
+					(startRow, endRow) -> lut.apply(src, dst, startRow * width, endRow * width));
+			return dest;
+		}
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			getRGBRow(image, y, row);
+			lut.apply(row, row, 0, width);
+			setRGBRow(dest, y, row);
+		}
+		return dest;
+	}
+
+	private static void checkSameSize(BufferedImage left, BufferedImage right) {
+		if (left.getWidth() != right.getWidth() || left.getHeight() != right.getHeight()) {
+			throw new PLCRuntimeException("Attempting binary operation on images with unequal sizes");
+		}
+	}
+
+	private static void checkDestination(BufferedImage dest, int width, int height) {
+		if (dest.getWidth() != width || dest.getHeight() != height) {
+			throw new PLCRuntimeException("Destination image has size " + dest.getWidth() + "x" + dest.getHeight()
+					+ ", expected " + width + "x" + height);
+		}
+	}
+
+	/** Writes a row of results of the kernels below, which have the alpha bits cleared, to the image */
+	private static void setRGBRow(BufferedImage image, int y, int[] row) {
+		int width = image.getWidth();
+		for (int x = 0; x < width; x++) {
+			row[x] |= PixelOps.SELECT_ALPHA;
+		}
+		image.setRGB(0, y, width, 1, row, 0, width);
+	}
 	
 
+	/**
+	 * Returns a new TYPE_INT_RGB image that is the convolution of image with kernel. See Convolution.
+	 * 
+	 * @param image
+	 * @param kernel
+	 * @param border
+	 * @return new image
+	 */
+	public static BufferedImage convolve(BufferedImage image, Convolution.Kernel kernel, Convolution.Border border) {
+		return Convolution.convolve(image, kernel, border, makeImage(image.getWidth(), image.getHeight()));
+	}
+
+	/**
+	 * Writes the convolution of image with kernel to dest, which must have the same size as image and must not be image.
+	 * 
+	 * @param image
+	 * @param kernel
+	 * @param border
+	 * @param dest
+	 * @return dest
+	 */
+	public static BufferedImage convolve(BufferedImage image, Convolution.Kernel kernel, Convolution.Border border,
+			BufferedImage dest) {
+		return Convolution.convolve(image, kernel, border, dest);
+	}
+
+	/*
+	 * Implementations of the blur, sharpen, and edges builtins. Their results are acquired from the ImagePool.
+	 */
+
+	public static BufferedImage blur(BufferedImage image) {
+		return builtin(image, Convolution.BLUR);
+	}
+
+	public static BufferedImage sharpen(BufferedImage image) {
+		return builtin(image, Convolution.SHARPEN);
+	}
+
+	public static BufferedImage edges(BufferedImage image) {
+		return builtin(image, Convolution.EDGES);
+	}
+
+	private static BufferedImage builtin(BufferedImage image, Convolution.Kernel kernel) {
+		return convolve(image, kernel, Convolution.BUILTIN_BORDER, ImagePool.acquire(image.getWidth(), image.getHeight()));
+	}
+
+	/**
+	 * Returns the histograms, minimum, maximum, sum, and mean of the color components of the image. See ImageStats.
+	 */
+	public static ImageStats statistics(BufferedImage image) {
+		return ImageStats.of(image);
+	}
+
+	/**
+	 * Returns the number of pixels of the image for which predicate is true. The predicate is applied 
+	 * to the packed pixels as returned by getRGB. For images with an int raster the pixels are 
+	 * processed in bands with ParallelOps, so the predicate may be called concurrently.
+	 * 
+	 * @param image
+	 * @param predicate
+	 * @return number of matching pixels
+	 */
+	public static long count(BufferedImage image, IntPredicate predicate) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int[] pixels = intRaster(image);
+		int alpha = image.getType() == BufferedImage.TYPE_INT_RGB ? PixelOps.SELECT_ALPHA : 0;
+		long[] total = new long[1];
+		ParallelOps.RowKernel kernel = (startRow, endRow) -> {
+			long partial = 0;
+			int[] row = pixels != null ? pixels : new int[width];
+			for (int y = startRow; y < endRow; y++) {
+				int start = y * width;
+				if (pixels == null) {
+					getRGBRow(image, y, row);
+					start = 0;
+				}
+				for (int i = start; i < start + width; i++) {
+					if (predicate.test(row[i] | alpha)) {
+						partial++;
+					}
+				}
+			}
+			synchronized (total) {
+				total[0] += partial;
+			}
+		};
+		if (pixels != null) {
+			ParallelOps.forEachRowBand(width, height, kernel);
+		} else {
+			kernel.apply(0, height);
+		}
+		return total[0];
+	}
+
+	/*
+	 * Implementations of the mean, min, max, and count builtins. count is the number of pixels 
+	 * that are not black, which must fit in an int.
+	 */
+
+	public static int mean(BufferedImage image) {
+		return ImageStats.of(image).getMean();
+	}
+
+	public static int min(BufferedImage image) {
+		return ImageStats.of(image).getMin();
+	}
+
+	public static int max(BufferedImage image) {
+		return ImageStats.of(image).getMax();
+	}
+
+	public static int count(BufferedImage image) {
+		long count = count(image, pixel -> (pixel & RGB_MASK) != 0);
+		if (count > Integer.MAX_VALUE) {
+			throw new PLCRuntimeException("count of " + count + " pixels is too large for an int");
+		}
+		return (int) count;
+	}
+
+	/*
+	 * Kernels for the int raster paths of the binary operations. They write the results for indices 
+	 * start (inclusive) to end (exclusive) of the input arrays to the same indices of dst, which may be 
+	 * one of the inputs. The ...Op methods use the VectorKernels when enabled and the scalar ...Kernel 
+	 * methods otherwise, which select the saturating PixelOps method, or a PixelLUT for operations with a 
+	 * constant right operand that cannot use one, once instead of per pixel.
+	 */
+
+	static void pixelPixelOp(OP op, int[] left, int[] right, int[] dst, int start, int end) {
+		if (VectorOps.usePixelKernel(op)) {
+			VectorOps.pixelPixelOp(op, left, right, dst, start, end);
+		} else {
+			pixelPixelKernel(op, left, right, dst, start, end);
+		}
+	}
+
+	static void pixelConstantOp(OP op, int[] left, int right, int[] dst, int start, int end) {
+		if (VectorOps.usePixelKernel(op)) {
+			VectorOps.pixelConstantOp(op, left, right, dst, start, end);
+		} else {
+			pixelConstantKernel(op, left, right, dst, start, end);
+		}
+	}
+
+	static void pixelScalarOp(OP op, int[] left, int right, int[] dst, int start, int end) {
+		if (VectorOps.useScalarKernel(op)) {
+			VectorOps.pixelScalarOp(op, left, right, dst, start, end);
+		} else {
+			pixelScalarKernel(op, left, right, dst, start, end);
+		}
+	}
+
+	private static void pixelPixelKernel(OP op, int[] left, int[] right, int[] dst, int start, int end) {
+		switch (op) {
+		case PLUS -> {
+			for (int i = start; i < end; i++) {
+				dst[i] = PixelOps.addSaturated(left[i], right[i]) & RGB_MASK;
+			}
+		}
+		case MINUS -> {
+			for (int i = start; i < end; i++) {
+				dst[i] = PixelOps.subtractSaturated(left[i], right[i]) & RGB_MASK;
+			}
+		}
+		default -> {
+			for (int i = start; i < end; i++) {
+				dst[i] = binaryPackedPixelPixelOp(op, left[i], right[i]) & RGB_MASK;
+			}
+		}
+		}
+	}
+
+	private static void pixelConstantKernel(OP op, int[] left, int right, int[] dst, int start, int end) {
+		switch (op) {
+		case PLUS -> {
+			for (int i = start; i < end; i++) {
+				dst[i] = PixelOps.addSaturated(left[i], right) & RGB_MASK;
+			}
+		}
+		case MINUS -> {
+			for (int i = start; i < end; i++) {
+				dst[i] = PixelOps.subtractSaturated(left[i], right) & RGB_MASK;
+			}
+		}
+		case TIMES -> PixelLUT.pixel(op, right).apply(left, dst, start, end);
+		default -> {
+			for (int i = start; i < end; i++) {
+				dst[i] = binaryPackedPixelPixelOp(op, left[i], right) & RGB_MASK;
+			}
+		}
+		}
+	}
+
+	private static void pixelScalarKernel(OP op, int[] left, int right, int[] dst, int start, int end) {
+		if (op == OP.TIMES && Math.abs(right) <= Integer.MAX_VALUE / 255) {
+			for (int i = start; i < end; i++) {
+				dst[i] = PixelOps.scaleSaturated(left[i], right) & RGB_MASK;
+			}
+			return;
+		}
+		if (op == OP.PLUS && right <= Integer.MAX_VALUE - 255 || op == OP.MINUS && right >= 255 - Integer.MAX_VALUE) {
+			for (int i = start; i < end; i++) {
+				dst[i] = binaryPackedPixelScalarOp(op, left[i], right) & RGB_MASK;
+			}
+			return;
+		}
+		// the remaining operations divide, or would overflow the saturating methods, so look the results up instead
+		PixelLUT.scalar(op, right).apply(left, dst, start, end);
+	}
 	
 	public static BufferedImage setAllPixels(BufferedImage image, int packed) {
-		for (int x = 0; x < image.getWidth(); x++)
-			for (int y = 0; y < image.getHeight(); y++) {
-				image.setRGB(x, y,  packed);
-			}
+		return fillRegion(image, 0, 0, image.getWidth(), image.getHeight(), packed);
+	}
+
+	/**
+	 * Sets the pixels of the rectangle with upper left corner (x,y), width w, and height h to the given pixel. 
+	 * The parts of the rectangle that are outside of the image are ignored.
+	 * 
+	 * @param image
+	 * @param x
+	 * @param y
+	 * @param w
+	 * @param h
+	 * @param packed
+	 * @return image
+	 */
+	public static BufferedImage fillRegion(BufferedImage image, int x, int y, int w, int h, int packed) {
+		int width = image.getWidth();
+		int x0 = Math.max(x, 0);
+		int y0 = Math.max(y, 0);
+		int x1 = (int) Math.min((long) x + w, width);
+		int y1 = (int) Math.min((long) y + h, image.getHeight());
+		if (x0 >= x1 || y0 >= y1) {
+			return image;
+		}
+		int[] pixels = intRaster(image);
+		if (pixels != null) {
+			int value = image.getType() == BufferedImage.TYPE_INT_RGB ? packed & RGB_MASK : packed;
+			ParallelOps.forEachRowBand(x1 - x0, y1 - y0, (startRow, endRow) -> {
+				for (int row = y0 + startRow; row < y0 + endRow; row++) {
+					Arrays.fill(pixels, row * width + x0, row * width + x1, value);
+				}
+			});
+			return image;
+		}
+		// setRGB stores the data elements the color model gives for the pixel, so fill one row with them and copy it 
+		WritableRaster raster = image.getRaster();
+		Object element = image.getColorModel().getDataElements(packed, null);
+		for (int col = x0; col < x1; col++) {
+			raster.setDataElements(col, y0, element);
+		}
+		Object row = raster.getDataElements(x0, y0, x1 - x0, 1, null);
+		for (int r = y0 + 1; r < y1; r++) {
+			raster.setDataElements(x0, r, x1 - x0, 1, row);
+		}
 		return image;
 	}
 
+	/**
+	 * Copies the rectangle of the source image with upper left corner (sx,sy), width w, and height h
+	 * to the rectangle of dest with upper left corner (dx,dy), as if by dest.setRGB(dx + i, dy + j, 
+	 * source.getRGB(sx + i, sy + j)) for each pixel. Pixels outside of either image are ignored. 
+	 * source and dest may be the same image, and the rectangles may overlap.
+	 * 
+	 * @param source
+	 * @param sx
+	 * @param sy
+	 * @param w
+	 * @param h
+	 * @param dest
+	 * @param dx
+	 * @param dy
+	 * @return dest
+	 */
+	public static BufferedImage copyRegion(BufferedImage source, int sx, int sy, int w, int h, BufferedImage dest,
+			int dx, int dy) {
+		// clip the rectangle against both images
+		long left = Math.max(0, Math.max(-(long) sx, -(long) dx));
+		long top = Math.max(0, Math.max(-(long) sy, -(long) dy));
+		long right = Math.min(w, Math.min(source.getWidth() - (long) sx, dest.getWidth() - (long) dx));
+		long bottom = Math.min(h, Math.min(source.getHeight() - (long) sy, dest.getHeight() - (long) dy));
+		if (left >= right || top >= bottom) {
+			return dest;
+		}
+		int srcX = (int) (sx + left);
+		int srcY = (int) (sy + top);
+		int dstX = (int) (dx + left);
+		int dstY = (int) (dy + top);
+		int cols = (int) (right - left);
+		int rows = (int) (bottom - top);
+		// when copying down within an image, copy the bottom row first so that source rows are read before they are overwritten
+		boolean reverse = source == dest && dstY > srcY;
+		int[] src = intRaster(source);
+		int[] dst = intRaster(dest);
+		if (src != null && dst != null) {
+			int swidth = source.getWidth();
+			int dwidth = dest.getWidth();
+			boolean toRGB = dest.getType() == BufferedImage.TYPE_INT_RGB;
+			boolean fromRGB = source.getType() == BufferedImage.TYPE_INT_RGB;
+			for (int j = 0; j < rows; j++) {
+				int row = reverse ? rows - 1 - j : j;
+				int from = (srcY + row) * swidth + srcX;
+				int to = (dstY + row) * dwidth + dstX;
+				if (toRGB == fromRGB) {
+					System.arraycopy(src, from, dst, to, cols);
+				} else if (toRGB) {
+					for (int i = 0; i < cols; i++) {
+						dst[to + i] = src[from + i] & RGB_MASK;
+					}
+				} else {
+					for (int i = 0; i < cols; i++) {
+						dst[to + i] = src[from + i] | PixelOps.SELECT_ALPHA;
+					}
+				}
+			}
+			return dest;
+		}
+		int[] row = new int[cols];
+		for (int j = 0; j < rows; j++) {
+			int r = reverse ? rows - 1 - j : j;
+			source.getRGB(srcX, srcY + r, cols, 1, row, 0, cols);
+			dest.setRGB(dstX, dstY + r, cols, 1, row, 0, cols);
+		}
+		return dest;
+	}
+
 	
 	/**
 	 * Creates an image of given size. 
@@ -253,6 +1198,99 @@ public class ImageOps {
 		return new BufferedImage(width, height,BufferedImage.TYPE_INT_RGB);
 	}
 	
+	/**
+	 * Returns image if it is a TYPE_INT_RGB image with an int raster, otherwise a new TYPE_INT_RGB image
+	 * holding the color components of its pixels, as returned by getRGB.
+	 * 
+	 * The conversion reads the raster directly, in a single pass, for int rasters, for interleaved 8 bit
+	 * sRGB rasters with or without alpha such as TYPE_3BYTE_BGR and TYPE_4BYTE_ABGR, and for single band
+	 * 8 bit rasters such as TYPE_BYTE_GRAY and TYPE_BYTE_INDEXED, whose 256 possible pixels are converted by
+	 * the color model of the image once. Other images are converted with a single call to getRGB.
+	 * 
+	 * @param image
+	 * @return TYPE_INT_RGB image with the same pixels
+	 */
+	public static BufferedImage toIntRGB(BufferedImage image) {
+		if (rgbRaster(image) != null) {
+			return image;
+		}
+		int width = image.getWidth();
+		int height = image.getHeight();
+		BufferedImage result = makeImage(width, height);
+		int[] dst = rgbRaster(result);
+		int[] src = intRaster(image);
+		if (src != null) {
+			ParallelOps.forEachRowBand(width, height, (startRow, endRow) -> {
+				for (int i = startRow * width; i < endRow * width; i++) {
+					dst[i] = src[i] & RGB_MASK;
+				}
+			});
+			return result;
+		}
+		WritableRaster raster = image.getRaster();
+		ColorModel model = image.getColorModel();
+		if (raster.getDataBuffer() instanceof DataBufferByte buffer
+				&& raster.getSampleModel() instanceof PixelInterleavedSampleModel sampleModel && buffer.getNumBanks() == 1
+				&& raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+				&& sampleModel.getScanlineStride() == width * sampleModel.getPixelStride()) {
+			byte[] data = buffer.getData();
+			int stride = sampleModel.getPixelStride();
+			int[] offsets = sampleModel.getBandOffsets();
+			int base = buffer.getOffset();
+			int bands = raster.getNumBands();
+			if (bands == 1 && sampleModel.getSampleSize(0) == 8) {
+				int[] table = new int[256];
+				byte[] sample = new byte[1];
+				for (int v = 0; v < 256; v++) {
+					sample[0] = (byte) v;
+					table[v] = model.getRGB(sample) & RGB_MASK;
+				}
+				int offset = base + offsets[0];
+				ParallelOps.forEachRowBand(width, height, (startRow, endRow) -> {
+					for (int i = startRow * width; i < endRow * width; i++) {
+						dst[i] = table[data[offset + i * stride] & 0xff];
+					}
+				});
+				return result;
+			}
+			if ((bands == 3 || bands == 4) && isPlainSRGB(model)) {
+				int r = base + offsets[0];
+				int g = base + offsets[1];
+				int b = base + offsets[2];
+				ParallelOps.forEachRowBand(width, height, (startRow, endRow) -> {
+					for (int i = startRow * width; i < endRow * width; i++) {
+						int j = i * stride;
+						dst[i] = ((data[r + j] & 0xff) << PixelOps.SHIFT_RED) | ((data[g + j] & 0xff) << PixelOps.SHIFT_GREEN)
+								| ((data[b + j] & 0xff) << PixelOps.SHIFT_BLUE);
+					}
+				});
+				return result;
+			}
+		}
+		image.getRGB(0, 0, width, height, dst, 0, width);
+		for (int i = 0; i < dst.length; i++) {
+			dst[i] &= RGB_MASK;
+		}
+		return result;
+	}
+
+	/**
+	 * @return true if model is a non-premultiplied sRGB ComponentColorModel with 8 bit components,
+	 *         whose samples are the values returned by getRGB
+	 */
+	private static boolean isPlainSRGB(ColorModel model) {
+		if (!(model instanceof ComponentColorModel) || !model.getColorSpace().isCS_sRGB() || model.isAlphaPremultiplied()
+				|| model.getTransferType() != DataBuffer.TYPE_BYTE) {
+			return false;
+		}
+		for (int size : model.getComponentSize()) {
+			if (size != 8) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Returns a new image that is copy of the given BufferedImage 
 	 * @param image
@@ -261,6 +1299,22 @@ public class ImageOps {
 	public static final BufferedImage cloneImage(BufferedImage image) {
 	    BufferedImage clone = new BufferedImage(image.getWidth(),
 	            image.getHeight(), image.getType());
+	    int[] src = intRaster(image);
+	    // drawImage composites TYPE_INT_ARGB pixels, so only TYPE_INT_RGB can be copied verbatim 
+	    if (src != null && image.getType() == BufferedImage.TYPE_INT_RGB) {
+	    	int[] dst = intRaster(clone);
+	    	int width = image.getWidth();
+	    	ParallelOps.forEachRowBand(width, image.getHeight(), (startRow, endRow) ->
+	    		System.arraycopy(src, startRow * width, dst, startRow * width, (endRow - startRow) * width));
+	    	return clone;
+	    }
+	    // likewise, other images can be copied sample by sample if they are opaque and have the same color model as the clone
+	    ColorModel model = image.getColorModel();
+	    if (model.getTransparency() == Transparency.OPAQUE && model.equals(clone.getColorModel())
+	    		&& image.getSampleModel().getClass() == clone.getSampleModel().getClass()) {
+	    	clone.getRaster().setDataElements(0, 0, image.getRaster());
+	    	return clone;
+	    }
 	    Graphics2D g2d = clone.createGraphics();
 	    g2d.drawImage(image, 0, 0, null);
 	    g2d.dispose();
@@ -275,14 +1329,18 @@ public class ImageOps {
 	 * @param destImage
 	 */
 	public static final void copyInto(BufferedImage sourceImage, BufferedImage destImage) {		
-        int w = sourceImage.getWidth();
-		int h = sourceImage.getHeight();
-		int maxX = destImage.getWidth();
-		int maxY = destImage.getHeight();
-		AffineTransform at = new AffineTransform();
-		at.scale(((float) maxX) / w, ((float) maxY) / h);
-		AffineTransformOp scaleOp = new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-		scaleOp.filter(sourceImage, destImage);
+		Resampler.resizeInto(sourceImage, destImage, Resampler.Mode.NEAREST);
+	}
+
+	/**
+	 * Like copyInto(sourceImage, destImage), using the given resampling mode.
+	 * 
+	 * @param sourceImage
+	 * @param destImage
+	 * @param mode
+	 */
+	public static final void copyInto(BufferedImage sourceImage, BufferedImage destImage, Resampler.Mode mode) {
+		Resampler.resizeInto(sourceImage, destImage, mode);
 	}
 	
 	/**
@@ -295,16 +1353,21 @@ public class ImageOps {
 	 */
 	public static BufferedImage copyAndResize(BufferedImage image, int maxX,
 			int maxY) {
-		int w = image.getWidth();
-		int h = image.getHeight();
-		AffineTransform at = new AffineTransform();
-		at.scale(((float) maxX) / w, ((float) maxY) / h);
-		AffineTransformOp scaleOp = new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-		BufferedImage newResizedImage = null;
-		newResizedImage = scaleOp.filter(image, newResizedImage);
-		return newResizedImage;
+		return Resampler.resize(image, maxX, maxY, Resampler.Mode.NEAREST);
+	}
+
+	/**
+	 * Like copyAndResize(image, maxX, maxY), using the given resampling mode.
+	 * 
+	 * @param image
+	 * @param maxX
+	 * @param maxY
+	 * @param mode
+	 * @return new image that is a resized version of the 'before' image
+	 */
+	public static BufferedImage copyAndResize(BufferedImage image, int maxX, int maxY, Resampler.Mode mode) {
+		return Resampler.resize(image, maxX, maxY, mode);
 	}
-	
 
 	/**
 	 * Returns an array of ints representing the packed pixels of the given image.
@@ -319,12 +1382,181 @@ public class ImageOps {
 		return result.getRGB(0,0,result.getWidth(), result.getHeight(), null,0,result.getWidth());
 	}
 	
+	/**
+	 * Returns true if getRGBPixels(image0) and getRGBPixels(image1) are equal. 
+	 * 
+	 * Images with the same size are compared one row at a time, reading int rasters in place, 
+	 * and the comparison stops at the first row that differs.
+	 * 
+	 * @param image0
+	 * @param image1
+	 * @return true if the images have the same packed pixels
+	 */
 	public static boolean equals(BufferedImage image0, BufferedImage image1) {
-		int[] pixels0 = getRGBPixels(image0);
-		int[] pixels1 = getRGBPixels(image1);
-		return Arrays.equals(pixels0, pixels1);
+		int width = image0.getWidth();
+		int height = image0.getHeight();
+		if (width != image1.getWidth() || height != image1.getHeight()) {
+			if ((long) width * height != (long) image1.getWidth() * image1.getHeight()) {
+				return false;
+			}
+			// images with different shapes but the same number of pixels can still have equal pixel arrays
+			return Arrays.equals(getRGBPixels(image0), getRGBPixels(image1));
+		}
+		int[] pixels0 = intRaster(image0);
+		int[] pixels1 = intRaster(image1);
+		if (pixels0 != null && pixels1 != null && image0.getType() == image1.getType()) {
+			// the raw values of int rasters of the same type differ exactly where their getRGB values differ
+			for (int y = 0; y < height; y++) {
+				int start = y * width;
+				if (!Arrays.equals(pixels0, start, start + width, pixels1, start, start + width)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		int[] row0 = new int[width];
+		int[] row1 = new int[width];
+		for (int y = 0; y < height; y++) {
+			getRGBRow(image0, y, row0);
+			getRGBRow(image1, y, row1);
+			if (!Arrays.equals(row0, row1)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a 64-bit hash of the size and the red, green, and blue components of the pixels 
+	 * of the given image. Like binaryPackedPixelBooleanOp, the hash ignores the alpha component, 
+	 * so images whose pixels are equal according to binaryPackedPixelBooleanOp have the same hash
+	 * regardless of their type. 
+	 * 
+	 * The value does not depend on ParallelOps settings, and is the same in every run, so it can be 
+	 * used as a key in persistent caches. It is not a cryptographic hash.
+	 * 
+	 * @param image
+	 * @return hash of the image's content
+	 */
+	public static long contentHash(BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		long[] rowHashes = new long[height];
+		int[] pixels = intRaster(image);
+		ParallelOps.RowKernel kernel = (startRow, endRow) -> {
+			int[] row = pixels != null ? pixels : new int[width];
+			for (int y = startRow; y < endRow; y++) {
+				int start = y * width;
+				if (pixels == null) {
+					getRGBRow(image, y, row);
+					start = 0;
+				}
+				rowHashes[y] = rowHash(row, start, width);
+			}
+		};
+		if (pixels != null) {
+			ParallelOps.forEachRowBand(width, height, kernel);
+		} else {
+			kernel.apply(0, height);
+		}
+		long hash = HASH_SEED ^ (((long) width << 32) | height);
+		for (long rowHash : rowHashes) {
+			hash = Long.rotateLeft(hash ^ rowHash, 27) * HASH_PRIME_1 + HASH_PRIME_2;
+		}
+		return finishHash(hash);
+	}
+
+	/* Constants of the xxHash64 algorithm, which contentHash follows loosely */
+	private static final long HASH_SEED = 0x27d4eb2f165667c5L;
+	private static final long HASH_PRIME_1 = 0x9e3779b185ebca87L;
+	private static final long HASH_PRIME_2 = 0xc2b2ae3d27d4eb4fL;
+
+	/** Hashes the color components of pixels[start..start+width), two pixels per step */
+	private static long rowHash(int[] pixels, int start, int width) {
+		long hash = HASH_SEED;
+		int end = start + width;
+		int i = start;
+		for (; i + 1 < end; i += 2) {
+			long lanes = (pixels[i] & RGB_MASK) | ((long) (pixels[i + 1] & RGB_MASK) << 32);
+			hash = Long.rotateLeft(hash ^ lanes * HASH_PRIME_2, 31) * HASH_PRIME_1;
+		}
+		if (i < end) {
+			hash = Long.rotateLeft(hash ^ (pixels[i] & RGB_MASK) * HASH_PRIME_2, 31) * HASH_PRIME_1;
+		}
+		return finishHash(hash);
+	}
+
+	/** Mixes the bits of a hash so that every input bit affects every output bit */
+	private static long finishHash(long hash) {
+		hash ^= hash >>> 33;
+		hash *= HASH_PRIME_2;
+		hash ^= hash >>> 29;
+		hash *= HASH_PRIME_1;
+		return hash ^ (hash >>> 32);
 	}
 	
+	/** Selects the color components of a packed pixel, as stored in a TYPE_INT_RGB raster */
+	static final int RGB_MASK = ~PixelOps.SELECT_ALPHA;
+
+	/**
+	 * Returns the int array backing the given image if it is a TYPE_INT_RGB or
+	 * TYPE_INT_ARGB image whose raster is a plain DataBufferInt holding exactly
+	 * width*height pixels in row-major order, otherwise returns null.
+	 * 
+	 * Elements of the array can be used as packed pixels by the PixelOps methods, which
+	 * ignore the alpha component. For TYPE_INT_RGB images, the alpha bits in the array
+	 * are zero and values written to it should have the alpha bits cleared.
+	 * 
+	 * Sub-images obtained with getSubimage do not qualify and return null.
+	 * 
+	 * @param image
+	 * @return backing array, or null
+	 */
+	static int[] intRaster(BufferedImage image) {
+		int type = image.getType();
+		if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) {
+			return null;
+		}
+		WritableRaster raster = image.getRaster();
+		SampleModel sampleModel = raster.getSampleModel();
+		if (!(raster.getDataBuffer() instanceof DataBufferInt buffer)
+				|| !(sampleModel instanceof SinglePixelPackedSampleModel packedModel)) {
+			return null;
+		}
+		if (buffer.getNumBanks() != 1 || buffer.getOffset() != 0
+				|| buffer.getSize() != raster.getWidth() * raster.getHeight() || raster.getSampleModelTranslateX() != 0
+				|| raster.getSampleModelTranslateY() != 0 || packedModel.getScanlineStride() != raster.getWidth()) {
+			return null;
+		}
+		return buffer.getData();
+	}
+
+	/**
+	 * Returns intRaster(image) if image is a TYPE_INT_RGB image, otherwise null. Results of the
+	 * kernels, which have the alpha bits cleared, can be stored directly in the returned array. 
+	 */
+	static int[] rgbRaster(BufferedImage image) {
+		return image.getType() == BufferedImage.TYPE_INT_RGB ? intRaster(image) : null;
+	}
+
+	/**
+	 * Reads row y of the image into row, as image.getRGB(0, y, width, 1, row, 0, width) would,
+	 * but reading channel planes directly from their byte arrays.
+	 */
+	static void getRGBRow(BufferedImage image, int y, int[] row) {
+		int width = image.getWidth();
+		byte[] plane = channelPlane(image);
+		if (plane != null) {
+			int shift = channelPlaneShift(image);
+			int offset = y * width;
+			for (int x = 0; x < width; x++) {
+				row[x] = PixelOps.SELECT_ALPHA | ((plane[offset + x] & 0xff) << shift);
+			}
+			return;
+		}
+		image.getRGB(0, y, width, 1, row, 0, width);
+	}
+
 	/**
 	 * If coordinates are out of bounds does nothing. 
 	 */
@@ -348,6 +1580,78 @@ public class ImageOps {
 		return PixelOps.pack(0, 0, 0);
 	}
 
+	/**
+	 * Like setRGB(image, x, y, pixel), but without the bounds check. The caller must ensure that (x,y) is
+	 * within the image, otherwise an ArrayIndexOutOfBoundsException may be thrown. Images with an int
+	 * raster are written directly, without going through the ColorModel.
+	 * 
+	 * This method looks up the raster on every call. Loops over the pixels of an image should get it once
+	 * with uncheckedRaster and use the overload that takes it, as the code generator does.
+	 */
+	public static void setRGBUnchecked(BufferedImage image, int x, int y, int pixel) {
+		int[] pixels = intRaster(image);
+		if (pixels == null) {
+			image.setRGB(x, y, pixel);
+		} else if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+			pixels[y * image.getWidth() + x] = pixel & RGB_MASK;
+		} else {
+			pixels[y * image.getWidth() + x] = pixel;
+		}
+	}
+
+	/**
+	 * Like getRGB(image, x, y), but without the bounds check. The caller must ensure that (x,y) is
+	 * within the image, otherwise an ArrayIndexOutOfBoundsException may be thrown. Images with an int
+	 * raster are read directly, without going through the ColorModel.
+	 * 
+	 * This method looks up the raster on every call. Loops over the pixels of an image should get it once
+	 * with uncheckedRaster and use the overload that takes it, as the code generator does.
+	 */
+	public static int getRGBUnchecked(BufferedImage image, int x, int y) {
+		int[] pixels = intRaster(image);
+		if (pixels == null) {
+			return image.getRGB(x, y);
+		}
+		int pixel = pixels[y * image.getWidth() + x];
+		return image.getType() == BufferedImage.TYPE_INT_RGB ? pixel | ~RGB_MASK : pixel;
+	}
+
+	/**
+	 * Returns the raster to pass to the getRGBUnchecked and setRGBUnchecked overloads that take one: the
+	 * backing array of a TYPE_INT_RGB image (see rgbRaster), or null for other images, which the overloads
+	 * access with getRGB and setRGB. The raster stays valid as long as the image exists.
+	 * 
+	 * @param image
+	 * @return backing array, or null
+	 */
+	public static int[] uncheckedRaster(BufferedImage image) {
+		return rgbRaster(image);
+	}
+
+	/**
+	 * Like setRGBUnchecked(image, x, y, pixel), with raster = uncheckedRaster(image) and width =
+	 * image.getWidth() looked up once by the caller.
+	 * 
+	 * The code generator uses this method only where it can prove that the coordinates are in bounds.
+	 */
+	public static void setRGBUnchecked(BufferedImage image, int[] raster, int width, int x, int y, int pixel) {
+		if (raster == null) {
+			image.setRGB(x, y, pixel);
+		} else {
+			raster[y * width + x] = pixel & RGB_MASK;
+		}
+	}
+
+	/**
+	 * Like getRGBUnchecked(image, x, y), with raster = uncheckedRaster(image) and width = image.getWidth()
+	 * looked up once by the caller.
+	 * 
+	 * The code generator uses this method only where it can prove that the coordinates are in bounds.
+	 */
+	public static int getRGBUnchecked(BufferedImage image, int[] raster, int width, int x, int y) {
+		return raster == null ? image.getRGB(x, y) : raster[y * width + x] | ~RGB_MASK;
+	}
+
 	public static int binaryPackedPixelIntOp(OP op, int leftPacked, int q) {
 		int lred = PixelOps.red(leftPacked);
 		int lgrn = PixelOps.green(leftPacked);
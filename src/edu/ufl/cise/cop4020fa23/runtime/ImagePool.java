@@ -0,0 +1,122 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * A pool of TYPE_INT_RGB images, keyed by size, for recycling images whose contents are no longer
+ * needed. Together with the destination-passing ImageOps methods, this avoids allocating a new
+ * large pixel array for every result in frame-by-frame workloads.
+ *
+ * Released images are kept until the total size of their pixel data would exceed BYTE_BUDGET, at which
+ * point the images that were released the longest time ago are evicted and left to the garbage collector.
+ *
+ * An image must not be used after it has been released. The contents of an acquired image are unspecified,
+ * so it should be used as the destination of an operation that writes every pixel.
+ *
+ * ImageExpr.materialize and the blur, sharpen, and edges builtins acquire their results from the pool, and
+ * the generated code releases the images that hold intermediate values of expressions once they have been used.
+ */
+public class ImagePool {
+
+	/** Maximum number of bytes of pixel data held by the pool */
+	public static long BYTE_BUDGET = 256L << 20;
+
+	private static final Map<Long, ArrayDeque<BufferedImage>> imagesBySize = new HashMap<>();
+
+	/**
+	 * All pooled images, least recently released first. BufferedImage does not override equals, so this
+	 * is an identity set, and checking whether an image is pooled or removing it takes constant time.
+	 */
+	private static final LinkedHashSet<BufferedImage> releaseOrder = new LinkedHashSet<>();
+
+	private static long pooledBytes = 0;
+
+	/**
+	 * Returns a pooled TYPE_INT_RGB image with the given size if there is one, otherwise a new image.
+	 *
+	 * @param width
+	 * @param height
+	 * @return image with unspecified contents
+	 */
+	public static synchronized BufferedImage acquire(int width, int height) {
+		ArrayDeque<BufferedImage> images = imagesBySize.get(key(width, height));
+		BufferedImage image = images == null ? null : images.pollLast();
+		if (image == null) {
+			return ImageOps.makeImage(width, height);
+		}
+		releaseOrder.remove(image);
+		pooledBytes -= bytes(image);
+		return image;
+	}
+
+	/**
+	 * Returns the image to the pool. Images other than plain TYPE_INT_RGB images, images that are already
+	 * in the pool, and images larger than BYTE_BUDGET are ignored.
+	 *
+	 * @param image
+	 */
+	public static synchronized void release(BufferedImage image) {
+		long size = bytes(image);
+		if (ImageOps.rgbRaster(image) == null || size > BYTE_BUDGET || releaseOrder.contains(image)) {
+			return;
+		}
+		while (pooledBytes + size > BYTE_BUDGET) {
+			evictOldest();
+		}
+		imagesBySize.computeIfAbsent(key(image.getWidth(), image.getHeight()), k -> new ArrayDeque<>()).addLast(image);
+		releaseOrder.add(image);
+		pooledBytes += size;
+	}
+
+	/**
+	 * Removes all images from the pool.
+	 */
+	public static synchronized void clear() {
+		imagesBySize.clear();
+		releaseOrder.clear();
+		pooledBytes = 0;
+	}
+
+	/**
+	 * @return number of bytes of pixel data currently held by the pool
+	 */
+	public static synchronized long pooledBytes() {
+		return pooledBytes;
+	}
+
+	private static void evictOldest() {
+		Iterator<BufferedImage> iterator = releaseOrder.iterator();
+		BufferedImage oldest = iterator.next();
+		iterator.remove();
+		Long key = key(oldest.getWidth(), oldest.getHeight());
+		ArrayDeque<BufferedImage> images = imagesBySize.get(key);
+		images.removeFirstOccurrence(oldest);
+		if (images.isEmpty()) {
+			imagesBySize.remove(key);
+		}
+		pooledBytes -= bytes(oldest);
+	}
+
+	private static Long key(int width, int height) {
+		return ((long) width << 32) | (height & 0xffffffffL);
+	}
+
+	private static long bytes(BufferedImage image) {
+		return (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+	}
+}
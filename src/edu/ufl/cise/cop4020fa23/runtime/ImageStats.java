@@ -0,0 +1,157 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Statistics of the color components of the pixels of an image: a histogram per component, and the
+ * minimum, maximum, sum, and mean of each component, all computed in a single pass over the image.
+ *
+ * The pass only builds the three histograms. For images with an int raster it runs in bands of rows
+ * with ParallelOps, each band counting into its own histograms, which are added together when the band
+ * is done. The other statistics are derived from the histograms. Counts are kept in longs, so that the
+ * pixel count and the histograms of images with more than 2^31 - 1 pixels do not overflow.
+ */
+public class ImageStats {
+
+	private final long pixelCount;
+
+	/** histograms of the red, green, and blue components, at offsets 0, 256, and 512 */
+	private final long[] histograms;
+
+	private ImageStats(long pixelCount, long[] histograms) {
+		this.pixelCount = pixelCount;
+		this.histograms = histograms;
+	}
+
+	public static ImageStats of(BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int[] pixels = ImageOps.intRaster(image);
+		long[] histograms = new long[3 * 256];
+		ParallelOps.RowKernel kernel = (startRow, endRow) -> {
+			long[] partial = new long[3 * 256];
+			int[] row = pixels != null ? pixels : new int[width];
+			for (int y = startRow; y < endRow; y++) {
+				int start = y * width;
+				if (pixels == null) {
+					ImageOps.getRGBRow(image, y, row);
+					start = 0;
+				}
+				for (int i = start; i < start + width; i++) {
+					int p = row[i];
+					partial[(p >> PixelOps.SHIFT_RED) & 0xff]++;
+					partial[256 + ((p >> PixelOps.SHIFT_GREEN) & 0xff)]++;
+					partial[512 + ((p >> PixelOps.SHIFT_BLUE) & 0xff)]++;
+				}
+			}
+			synchronized (histograms) {
+				for (int i = 0; i < histograms.length; i++) {
+					histograms[i] += partial[i];
+				}
+			}
+		};
+		if (pixels != null) {
+			ParallelOps.forEachRowBand(width, height, kernel);
+		} else {
+			kernel.apply(0, height);
+		}
+		return new ImageStats((long) width * height, histograms);
+	}
+
+	public long getPixelCount() {
+		return pixelCount;
+	}
+
+	/**
+	 * @return array whose element v is the number of pixels with red component v
+	 */
+	public long[] getRedHistogram() {
+		return histogram(0);
+	}
+
+	public long[] getGrnHistogram() {
+		return histogram(1);
+	}
+
+	public long[] getBluHistogram() {
+		return histogram(2);
+	}
+
+	public long getRedSum() {
+		return sum(0);
+	}
+
+	public long getGrnSum() {
+		return sum(1);
+	}
+
+	public long getBluSum() {
+		return sum(2);
+	}
+
+	/**
+	 * @return pixel whose components are the minimum values of the components of the pixels of the image
+	 */
+	public int getMin() {
+		return PixelOps.pack(min(0), min(1), min(2));
+	}
+
+	/**
+	 * @return pixel whose components are the maximum values of the components of the pixels of the image
+	 */
+	public int getMax() {
+		return PixelOps.pack(max(0), max(1), max(2));
+	}
+
+	/**
+	 * @return pixel whose components are the means of the components of the pixels of the image, rounded
+	 *         to the nearest integer
+	 */
+	public int getMean() {
+		return PixelOps.pack(mean(0), mean(1), mean(2));
+	}
+
+	private long[] histogram(int channel) {
+		long[] histogram = new long[256];
+		System.arraycopy(histograms, channel * 256, histogram, 0, 256);
+		return histogram;
+	}
+
+	private long sum(int channel) {
+		long sum = 0;
+		for (int v = 0; v < 256; v++) {
+			sum += v * histograms[channel * 256 + v];
+		}
+		return sum;
+	}
+
+	private int min(int channel) {
+		int v = 0;
+		while (histograms[channel * 256 + v] == 0) {
+			v++;
+		}
+		return v;
+	}
+
+	private int max(int channel) {
+		int v = 255;
+		while (histograms[channel * 256 + v] == 0) {
+			v--;
+		}
+		return v;
+	}
+
+	private int mean(int channel) {
+		return (int) ((2 * sum(channel) + pixelCount) / (2 * pixelCount));
+	}
+}
@@ -0,0 +1,237 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An image whose packed pixels are stored outside the Java heap, in direct buffers of at most
+ * CHUNK_BYTES bytes each holding a whole number of rows. The number of pixels is not limited 
+ * by the maximum array size, and the pixel data is not scanned or copied by the garbage collector.
+ *
+ * The ImageOps overloads taking OffHeapImage arguments give the same results as the corresponding
+ * BufferedImage methods. Use of(BufferedImage) and toBufferedImage() to convert where an image 
+ * crosses into ConsoleIO or ImageIO.
+ *
+ * An off-heap image can also be backed directly by the pixel data of a raw image file, see map.
+ *
+ * An off-heap image should be closed when it is no longer needed, e.g. with try-with-resources. 
+ * Closing drops the image's references to its buffers, so their memory can be reclaimed without
+ * waiting for the image itself to become unreachable, and any later use of the image throws a 
+ * PLCRuntimeException.
+ */
+public class OffHeapImage implements AutoCloseable {
+
+	/** Maximum size of each buffer holding rows of an off-heap image */
+	public static int CHUNK_BYTES = 1 << 30;
+
+	final int width;
+	final int height;
+	private final int rowsPerChunk;
+	private volatile IntBuffer[] chunks;
+
+	/**
+	 * Creates a black off-heap image of the given size.
+	 * 
+	 * @param width
+	 * @param height
+	 */
+	public OffHeapImage(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new PLCRuntimeException("Image size must be positive: " + width + "x" + height);
+		}
+		if (width > CHUNK_BYTES / Integer.BYTES) {
+			throw new PLCRuntimeException("Image width " + width + " exceeds the off-heap chunk size");
+		}
+		this.width = width;
+		this.height = height;
+		this.rowsPerChunk = Math.min(height, CHUNK_BYTES / Integer.BYTES / width);
+		int numChunks = (height + rowsPerChunk - 1) / rowsPerChunk;
+		chunks = new IntBuffer[numChunks];
+		for (int i = 0; i < numChunks; i++) {
+			int rows = Math.min(rowsPerChunk, height - i * rowsPerChunk);
+			chunks[i] = ByteBuffer.allocateDirect(rows * width * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+	}
+
+	private OffHeapImage(int width, int height, int rowsPerChunk, IntBuffer[] chunks) {
+		this.width = width;
+		this.height = height;
+		this.rowsPerChunk = rowsPerChunk;
+		this.chunks = chunks;
+	}
+
+	/**
+	 * Returns an off-heap image backed by the pixel data of a raw image file written by RawImageIO, which 
+	 * is mapped into memory instead of being read. If the file is writable, it is mapped copy-on-write, so 
+	 * the image can be modified without changing the file. Otherwise modifying the image throws a
+	 * PLCRuntimeException.
+	 * 
+	 * @param filename
+	 * @return off-heap image backed by the file
+	 */
+	public static OffHeapImage map(String filename) {
+		Path path = Path.of(filename);
+		boolean writable = Files.isWritable(path);
+		try (FileChannel channel = writable ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+				: FileChannel.open(path, StandardOpenOption.READ)) {
+			Dimension size = RawImageIO.readHeader(channel, filename);
+			int width = size.width;
+			int height = size.height;
+			if (width > CHUNK_BYTES / Integer.BYTES) {
+				throw new PLCRuntimeException("Image width " + width + " exceeds the off-heap chunk size");
+			}
+			int rowsPerChunk = Math.min(height, CHUNK_BYTES / Integer.BYTES / width);
+			IntBuffer[] chunks = new IntBuffer[(height + rowsPerChunk - 1) / rowsPerChunk];
+			for (int i = 0; i < chunks.length; i++) {
+				int rows = Math.min(rowsPerChunk, height - i * rowsPerChunk);
+				long offset = RawImageIO.HEADER_BYTES + (long) i * rowsPerChunk * width * Integer.BYTES;
+				chunks[i] = channel.map(writable ? MapMode.PRIVATE : MapMode.READ_ONLY, offset, (long) rows * width * Integer.BYTES)
+						.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			}
+			return new OffHeapImage(width, height, rowsPerChunk, chunks);
+		} catch (IOException e) {
+			throw new PLCRuntimeException(e.getMessage() + " " + filename);
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns an off-heap copy of the given image.
+	 * 
+	 * @param image
+	 * @return new off-heap image
+	 */
+	public static OffHeapImage of(BufferedImage image) {
+		OffHeapImage result = new OffHeapImage(image.getWidth(), image.getHeight());
+		int[] row = new int[result.width];
+		for (int y = 0; y < result.height; y++) {
+			ImageOps.getRGBRow(image, y, row);
+			result.setRow(y, row);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a new TYPE_INT_RGB image with the same pixels as this image. Throws a PLCRuntimeException
+	 * if the image has too many pixels to be held in a BufferedImage.
+	 * 
+	 * @return new image
+	 */
+	public BufferedImage toBufferedImage() {
+		if ((long) width * height > Integer.MAX_VALUE - 8) {
+			throw new PLCRuntimeException("Image of size " + width + "x" + height + " is too large for a BufferedImage");
+		}
+		BufferedImage image = ImageOps.makeImage(width, height);
+		int[] dst = ImageOps.rgbRaster(image);
+		ParallelOps.forEachRowBand(width, height, (startRow, endRow) -> {
+			IntBuffer[] buffers = buffers();
+			for (int y = startRow; y < endRow; y++) {
+				buffers[y / rowsPerChunk].get((y % rowsPerChunk) * width, dst, y * width, width);
+			}
+		});
+		return image;
+	}
+
+	/**
+	 * If coordinates are out of bounds it returns a black pixel. 
+	 */
+	public int getRGB(int x, int y) {
+		if (0 <= x && x < width && 0 <= y && y < height) {
+			return buffers()[y / rowsPerChunk].get((y % rowsPerChunk) * width + x) | PixelOps.SELECT_ALPHA;
+		}
+		return PixelOps.pack(0, 0, 0);
+	}
+
+	/**
+	 * If coordinates are out of bounds does nothing. 
+	 */
+	public void setRGB(int x, int y, int pixel) {
+		if (0 <= x && x < width && 0 <= y && y < height) {
+			try {
+				buffers()[y / rowsPerChunk].put((y % rowsPerChunk) * width + x, pixel & ImageOps.RGB_MASK);
+			} catch (ReadOnlyBufferException e) {
+				throw readOnly();
+			}
+		}
+	}
+
+	/**
+	 * Releases the pixel data of this image. Closing an image more than once has no effect.
+	 */
+	@Override
+	public void close() {
+		chunks = null;
+	}
+
+	public boolean isClosed() {
+		return chunks == null;
+	}
+
+	/**
+	 * Reads the packed pixels of row y into row[0..width). The alpha bits of the pixels are zero.
+	 */
+	void getRow(int y, int[] row) {
+		getRow(y, 0, width, row, 0);
+	}
+
+	/**
+	 * Reads the packed pixels of columns x..x+length of row y into dst[offset..offset+length). The alpha bits
+	 * of the pixels are zero.
+	 */
+	void getRow(int y, int x, int length, int[] dst, int offset) {
+		buffers()[y / rowsPerChunk].get((y % rowsPerChunk) * width + x, dst, offset, length);
+	}
+
+	/**
+	 * Writes row[0..width) to row y. The alpha bits of the elements of row are cleared in place.
+	 */
+	void setRow(int y, int[] row) {
+		for (int x = 0; x < width; x++) {
+			row[x] &= ImageOps.RGB_MASK;
+		}
+		try {
+			buffers()[y / rowsPerChunk].put((y % rowsPerChunk) * width, row, 0, width);
+		} catch (ReadOnlyBufferException e) {
+			throw readOnly();
+		}
+	}
+
+	private static PLCRuntimeException readOnly() {
+		return new PLCRuntimeException("Attempting to modify an off-heap image mapped from a read-only file");
+	}
+
+	private IntBuffer[] buffers() {
+		IntBuffer[] buffers = chunks;
+		if (buffers == null) {
+			throw new PLCRuntimeException("Attempting to use an off-heap image that has been closed");
+		}
+		return buffers;
+	}
+}
@@ -0,0 +1,153 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes images as binary PPM (P6) and PGM (P5) files, uncompressed formats that most
+ * image tools can read and that cost almost nothing to decode and encode. Whole images are read and
+ * written with a StripReader or StripWriter.
+ */
+public class PNMImageIO {
+
+	/** Longest header that is accepted, including comments */
+	private static final int MAX_HEADER_BYTES = 4096;
+
+	/**
+	 * The header of a PPM or PGM file. The pixel data starts at dataOffset.
+	 */
+	record Header(StreamOps.Format format, int width, int height, int maxValue, long dataOffset) {
+	}
+
+	/**
+	 * @return true if filename names a readable file that starts with the magic number of a binary PPM or PGM file
+	 */
+	public static boolean isPNMImage(String filename) {
+		Path path = Path.of(filename);
+		if (!Files.isRegularFile(path)) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(2);
+			return channel.read(magic, 0) == 2 && magic.get(0) == 'P' && (magic.get(1) == '5' || magic.get(1) == '6');
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads a binary PPM or PGM file into a new TYPE_INT_RGB image.
+	 */
+	public static BufferedImage read(String filename) {
+		try (StripReader reader = StripReader.open(filename)) {
+			BufferedImage image = ImageOps.makeImage(reader.getWidth(), reader.getHeight());
+			reader.read(ImageOps.rgbRaster(image), reader.getHeight());
+			return image;
+		}
+	}
+
+	/**
+	 * Writes image as a binary PPM file.
+	 */
+	public static void write(BufferedImage image, String filename) {
+		try (StripWriter writer = new StripWriter(filename, StreamOps.Format.PPM, image.getWidth(), image.getHeight())) {
+			writer.write(image);
+		}
+	}
+
+	/**
+	 * Writes image as a binary PPM file.
+	 */
+	public static void write(OffHeapImage image, String filename) {
+		try (StripWriter writer = new StripWriter(filename, StreamOps.Format.PPM, image.getWidth(), image.getHeight())) {
+			int[] row = new int[image.getWidth()];
+			for (int y = 0; y < image.getHeight(); y++) {
+				image.getRow(y, row);
+				writer.write(row, 1);
+			}
+		}
+	}
+
+	/**
+	 * Reads and validates the header of a binary PPM or PGM file: the magic number, then the width, height,
+	 * and maximum value as decimal numbers separated by whitespace or comments starting with '#', and a
+	 * single whitespace character.
+	 */
+	static Header readHeader(FileChannel channel, String filename) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate((int) Math.min(MAX_HEADER_BYTES, channel.size()));
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0) {
+				break;
+			}
+		}
+		header.flip();
+		if (header.remaining() < 2 || header.get() != 'P') {
+			throw new PLCRuntimeException(filename + " is not a PPM, PGM, or raw image file");
+		}
+		StreamOps.Format format = switch (header.get()) {
+		case '6' -> StreamOps.Format.PPM;
+		case '5' -> StreamOps.Format.PGM;
+		default -> throw new PLCRuntimeException(filename + " is not a binary PPM or PGM file");
+		};
+		int width = headerNumber(header, filename);
+		int height = headerNumber(header, filename);
+		int maxValue = headerNumber(header, filename);
+		if (!header.hasRemaining() || !Character.isWhitespace(header.get())) {
+			throw new PLCRuntimeException(filename + " has an invalid header");
+		}
+		int samples = format == StreamOps.Format.PPM ? 3 : 1;
+		long dataBytes = (long) width * height * samples * (maxValue > 255 ? 2 : 1);
+		if (width <= 0 || height <= 0 || maxValue <= 0 || maxValue > 65535
+				|| channel.size() < header.position() + dataBytes) {
+			throw new PLCRuntimeException(filename + " is truncated or has an invalid size " + width + "x" + height
+					+ " or maximum value " + maxValue);
+		}
+		return new Header(format, width, height, maxValue, header.position());
+	}
+
+	private static int headerNumber(ByteBuffer header, String filename) {
+		while (header.hasRemaining()) {
+			byte b = header.get(header.position());
+			if (b == '#') {
+				skipComment(header);
+			} else if (Character.isWhitespace(b)) {
+				header.get();
+			} else {
+				break;
+			}
+		}
+		long value = 0;
+		int digits = 0;
+		while (header.hasRemaining() && Character.isDigit(header.get(header.position())) && value <= Integer.MAX_VALUE) {
+			value = value * 10 + header.get() - '0';
+			digits++;
+		}
+		if (digits == 0 || value > Integer.MAX_VALUE) {
+			throw new PLCRuntimeException(filename + " has an invalid header");
+		}
+		return (int) value;
+	}
+
+	private static void skipComment(ByteBuffer header) {
+		while (header.hasRemaining()) {
+			if (header.get() == '\n') {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Controls the parallel execution mode of the ImageOps kernels.
+ *
+ * When PARALLEL is true, kernels working on images with at least PARALLEL_THRESHOLD pixels
+ * split the image into bands of rows that are processed on a ForkJoinPool. Each band
+ * writes a disjoint range of rows of the result, and every pixel is computed exactly as in the
+ * sequential path, so results are identical whichever mode is used.
+ *
+ * Only the int raster fast paths of ImageOps run in parallel; images using the getRGB/setRGB
+ * path are always processed on the calling thread.
+ */
+public class ParallelOps {
+
+	/** Enables parallel execution of ImageOps kernels.  */
+	public static volatile boolean PARALLEL = false;
+
+	/** Images with fewer pixels than this are processed sequentially even if PARALLEL is true. */
+	public static volatile int PARALLEL_THRESHOLD = 1 << 16;
+
+	/** Number of bands each worker thread gets, so that uneven bands can be balanced by work-stealing */
+	private static final int BANDS_PER_THREAD = 4;
+
+	private static volatile ForkJoinPool pool;
+
+	/**
+	 * Sets the number of worker threads used by parallel kernels. Kernels that are already running, or
+	 * that obtained the previous pool just before the change, finish on the previous pool. It is not shut
+	 * down, since that would reject their tasks; its worker threads terminate once they have been idle for
+	 * a while, and the pool is then garbage collected.
+	 *
+	 * @param parallelism
+	 */
+	public static synchronized void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		}
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * @return number of worker threads used by parallel kernels
+	 */
+	public static int getParallelism() {
+		return getPool().getParallelism();
+	}
+
+	static ForkJoinPool getPool() {
+		ForkJoinPool p = pool;
+		if (p == null) {
+			synchronized (ParallelOps.class) {
+				if (pool == null) {
+					pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+				}
+				p = pool;
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * A kernel that processes rows startRow (inclusive) to endRow (exclusive) of an image.
+	 */
+	@FunctionalInterface
+	interface RowKernel {
+		void apply(int startRow, int endRow);
+	}
+
+	/**
+	 * @return true if a kernel over an image of the given size would be run in parallel
+	 */
+	static boolean isParallel(int width, int height) {
+		return PARALLEL && height > 1 && (long) width * height >= PARALLEL_THRESHOLD;
+	}
+
+	/**
+	 * Applies the kernel to all rows of an image with the given size, either directly on the
+	 * calling thread, or split into bands of rows on the fork/join pool.
+	 *
+	 * @param width
+	 * @param height
+	 * @param kernel
+	 */
+	static void forEachRowBand(int width, int height, RowKernel kernel) {
+		if (!isParallel(width, height)) {
+			kernel.apply(0, height);
+			return;
+		}
+		ForkJoinPool p = getPool();
+		int bands = p.getParallelism() * BANDS_PER_THREAD;
+		int bandRows = Math.max(1, (height + bands - 1) / bands);
+		p.invoke(new RowBandTask(kernel, 0, height, bandRows));
+	}
+
+	@SuppressWarnings("serial")
+	private static class RowBandTask extends RecursiveAction {
+		private final RowKernel kernel;
+		private final int startRow;
+		private final int endRow;
+		private final int bandRows;
+
+		RowBandTask(RowKernel kernel, int startRow, int endRow, int bandRows) {
+			this.kernel = kernel;
+			this.startRow = startRow;
+			this.endRow = endRow;
+			this.bandRows = bandRows;
+		}
+
+		@Override
+		protected void compute() {
+			if (endRow - startRow <= bandRows) {
+				kernel.apply(startRow, endRow);
+				return;
+			}
+			int mid = (startRow + endRow) >>> 1;
+			invokeAll(new RowBandTask(kernel, startRow, mid, bandRows), new RowBandTask(kernel, mid, endRow, bandRows));
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+
+/**
+ * A per-channel lookup table mapping each of the 256 values of the red, green, and blue components 
+ * of a pixel to a new value. Applying a table costs three table loads per pixel whatever operation 
+ * it represents.
+ *
+ * Tables for an operation with a constant right operand give the same results as the 
+ * corresponding PixelOps arithmetic, and then(next) composes two tables, so a chain of such 
+ * operations can be applied to an image as one table. ImageOps.applyLUT applies a table to an image.
+ */
+public final class PixelLUT {
+
+	/* Each entry holds the result component already shifted into its position in a packed pixel */
+	private final int[] red;
+	private final int[] grn;
+	private final int[] blu;
+
+	private PixelLUT(int[] red, int[] grn, int[] blu) {
+		this.red = red;
+		this.grn = grn;
+		this.blu = blu;
+	}
+
+	/**
+	 * @return table that leaves every pixel unchanged
+	 */
+	public static PixelLUT identity() {
+		return new PixelLUT(channel(OP.PLUS, 0, PixelOps.SHIFT_RED), channel(OP.PLUS, 0, PixelOps.SHIFT_GREEN),
+				channel(OP.PLUS, 0, PixelOps.SHIFT_BLUE));
+	}
+
+	/**
+	 * Returns the table applying op with the given right operand to each component, as 
+	 * ImageOps.binaryPackedPixelScalarOp(op, pixel, right) does. Throws an ArithmeticException
+	 * for DIV and MOD with a zero right operand.
+	 * 
+	 * @param op
+	 * @param right
+	 * @return table
+	 */
+	public static PixelLUT scalar(OP op, int right) {
+		return new PixelLUT(channel(op, right, PixelOps.SHIFT_RED), channel(op, right, PixelOps.SHIFT_GREEN),
+				channel(op, right, PixelOps.SHIFT_BLUE));
+	}
+
+	/**
+	 * Returns the table applying op with each component of the given pixel to the same component, as 
+	 * ImageOps.binaryPackedPixelPixelOp(op, p, pixel) does. 
+	 * 
+	 * DIV and MOD are not supported, since binaryPackedPixelPixelOp divides the green component of p 
+	 * by itself for them, which cannot be expressed by a table that may be applied to zero. 
+	 * 
+	 * @param op
+	 * @param pixel
+	 * @return table
+	 */
+	public static PixelLUT pixel(OP op, int pixel) {
+		if (op == OP.DIV || op == OP.MOD) {
+			throw new IllegalArgumentException("Compiler/runtime error no pixel table for " + op);
+		}
+		return new PixelLUT(channel(op, PixelOps.red(pixel), PixelOps.SHIFT_RED),
+				channel(op, PixelOps.green(pixel), PixelOps.SHIFT_GREEN), channel(op, PixelOps.blue(pixel), PixelOps.SHIFT_BLUE));
+	}
+
+	/**
+	 * @return table equivalent to applying this table and then next
+	 */
+	public PixelLUT then(PixelLUT next) {
+		int[] r = new int[256];
+		int[] g = new int[256];
+		int[] b = new int[256];
+		for (int v = 0; v < 256; v++) {
+			r[v] = next.red[red[v] >>> PixelOps.SHIFT_RED];
+			g[v] = next.grn[grn[v] >>> PixelOps.SHIFT_GREEN];
+			b[v] = next.blu[blu[v] >>> PixelOps.SHIFT_BLUE];
+		}
+		return new PixelLUT(r, g, b);
+	}
+
+	/**
+	 * @param pixel
+	 * @return packed pixel obtained by looking up each component of pixel
+	 */
+	public int apply(int pixel) {
+		return PixelOps.SELECT_ALPHA | lookup(pixel);
+	}
+
+	/**
+	 * Sets dst[i] to the result of looking up src[i], with the alpha bits cleared, for i in [start, end). 
+	 * dst may be src.
+	 */
+	void apply(int[] src, int[] dst, int start, int end) {
+		for (int i = start; i < end; i++) {
+			dst[i] = lookup(src[i]);
+		}
+	}
+
+	private int lookup(int pixel) {
+		return red[(pixel >>> PixelOps.SHIFT_RED) & 0xff] | grn[(pixel >>> PixelOps.SHIFT_GREEN) & 0xff]
+				| blu[(pixel >>> PixelOps.SHIFT_BLUE) & 0xff];
+	}
+
+	private static int[] channel(OP op, int right, int shift) {
+		int[] table = new int[256];
+		for (int v = 0; v < 256; v++) {
+			int result = switch (op) {
+			case PLUS -> v + right;
+			case MINUS -> v - right;
+			case TIMES -> v * right;
+			case DIV -> v / right;
+			case MOD -> v % right;
+			default -> throw new IllegalArgumentException("Compiler/runtime error Unexpected value: " + op);
+			};
+			table[v] = PixelOps.truncate(result) << shift;
+		}
+		return table;
+	}
+}
@@ -47,15 +47,15 @@ public class PixelOps {
 	}
 
 	public static int setRed(int pixel, int val) {
-		return pack(val, green(pixel), blue(pixel));
+		return (pixel & (SELECT_GREEN | SELECT_BLUE)) | SELECT_ALPHA | (truncate(val) << SHIFT_RED);
 	}
 
 	public static int setGreen(int pixel, int val) {
-		return pack(red(pixel), val, blue(pixel));
+		return (pixel & (SELECT_RED | SELECT_BLUE)) | SELECT_ALPHA | (truncate(val) << SHIFT_GREEN);
 	}
 	
 	public static int setBlue(int pixel, int val) {
-		return pack(red(pixel), green(pixel), val);
+		return (pixel & (SELECT_RED | SELECT_GREEN)) | SELECT_ALPHA | (truncate(val) << SHIFT_BLUE);
 	}
 	
 	public enum Colors {red, green, blue};
@@ -69,14 +69,86 @@ public class PixelOps {
 		};
 	}
 	
+	/*
+	 * The following methods operate on all three color channels of packed pixels at once
+	 * (SIMD within a register), saturating each channel to [0,255] without branches. 
+	 * Like pack, they return pixels with alpha 0xff.
+	 */
+
+	/**
+	 * Adds the color components of the given pixels. Components greater than 255 are truncated.
+	 * 
+	 * @param pixel0
+	 * @param pixel1
+	 * @return pixel with components min(c0 + c1, 255)
+	 */
+	public static int addSaturated(int pixel0, int pixel1) {
+		int x = pixel0 & ~SELECT_ALPHA;
+		int y = pixel1 & ~SELECT_ALPHA;
+		// add the low 7 bits of each channel, which cannot carry into the next channel, then fix up the high bits
+		int sum = ((x & LOW_BITS) + (y & LOW_BITS)) ^ ((x ^ y) & HIGH_BITS);
+		int carry = ((x & y) | ((x | y) & ~sum)) & HIGH_BITS;
+		return sum | ((carry >>> 7) * 0xff) | SELECT_ALPHA;
+	}
+
+	/**
+	 * Subtracts the color components of pixel1 from those of pixel0. Components less than 0 are truncated.
+	 * 
+	 * @param pixel0
+	 * @param pixel1
+	 * @return pixel with components max(c0 - c1, 0)
+	 */
+	public static int subtractSaturated(int pixel0, int pixel1) {
+		// 255 - min((255 - c0) + c1, 255) == max(c0 - c1, 0)
+		return ~addSaturated(~pixel0, pixel1) | SELECT_ALPHA;
+	}
+
+	/**
+	 * Adds val to each color component of the pixel and truncates the results to [0,255].
+	 * 
+	 * @param pixel
+	 * @param val
+	 * @return pixel with components c + val, truncated
+	 */
+	public static int addScalarSaturated(int pixel, int val) {
+		// adding more than 255 saturates every component anyway
+		int clamped = Math.max(-255, Math.min(val, 255));
+		int broadcast = Math.abs(clamped) * 0x010101;
+		return clamped >= 0 ? addSaturated(pixel, broadcast) : subtractSaturated(pixel, broadcast);
+	}
+
+	/**
+	 * Multiplies each color component of the pixel by factor and truncates the results to [0,255].
+	 * 
+	 * @param pixel
+	 * @param factor
+	 * @return pixel with components c * factor, truncated
+	 */
+	public static int scaleSaturated(int pixel, int factor) {
+		// any factor above 256 saturates every nonzero component, and 255 * 256 fits in a 16 bit lane
+		long f = Math.max(0, Math.min(factor, 256));
+		long product = spread(pixel) * f;
+		long high = (product >>> 8) & LANE_LOW_BYTES;
+		long overflow = ((high + LANE_LOW_BYTES) >>> 8) & LANE_LOW_BITS;
+		long lanes = (product | (overflow * 0xff)) & LANE_LOW_BYTES;
+		return (int) ((lanes >>> 16) & SELECT_RED) | (int) ((lanes >>> 8) & SELECT_GREEN) | (int) (lanes & SELECT_BLUE)
+				| SELECT_ALPHA;
+	}
+
+	/** Moves the color components of a pixel into separate 16 bit lanes of a long */
+	private static long spread(int pixel) {
+		return ((long) (pixel & SELECT_RED) << 16) | ((long) (pixel & SELECT_GREEN) << 8) | (pixel & SELECT_BLUE);
+	}
+
 	/**
 	 * truncates an int to value in range of [0,256)
 	 * 
 	 * @param z
 	 * @return value in [0,256)
 	 */
-	private static int truncate(int z) {
-		return z < 0 ? 0 : (z > 255 ? 255 : z);
+	static int truncate(int z) {
+		int nonNegative = z & ~(z >> 31);
+		return (nonNegative | ((255 - nonNegative) >> 31)) & 0xff;
 	}
 	
 	
@@ -90,5 +162,11 @@ public class PixelOps {
 	public static final int SHIFT_GREEN = 8;
 	public static final int SHIFT_BLUE = 0;
 
+	/** Constants used by the SIMD within a register methods */
+	private static final int LOW_BITS = 0x007f7f7f;
+	private static final int HIGH_BITS = 0x00808080;
+	private static final long LANE_LOW_BYTES = 0x000000ff00ff00ffL;
+	private static final long LANE_LOW_BITS = 0x0000000100010001L;
+
 
 }
@@ -0,0 +1,238 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+
+/**
+ * An image stored as three separate planes of 8-bit red, green, and blue values, each holding
+ * width*height values in row-major order.
+ *
+ * Channel arithmetic on planar images works on one plane at a time without any shifting or
+ * masking, and channel selection just copies a plane. The ImageOps overloads taking PlanarImage 
+ * arguments give the same results as the corresponding BufferedImage methods.
+ *
+ * Use of(BufferedImage) and toBufferedImage() to convert at the I/O boundary; ConsoleIO and 
+ * FileURLIO accept and produce planar images directly.
+ */
+public class PlanarImage {
+
+	final int width;
+	final int height;
+	final byte[] red;
+	final byte[] grn;
+	final byte[] blu;
+
+	/**
+	 * Creates a black planar image of the given size.
+	 * 
+	 * @param width
+	 * @param height
+	 */
+	public PlanarImage(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new PLCRuntimeException("Image size must be positive: " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		int size = Math.multiplyExact(width, height);
+		this.red = new byte[size];
+		this.grn = new byte[size];
+		this.blu = new byte[size];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns a planar copy of the given image.
+	 * 
+	 * @param image
+	 * @return new planar image
+	 */
+	public static PlanarImage of(BufferedImage image) {
+		int width = image.getWidth();
+		PlanarImage planar = new PlanarImage(width, image.getHeight());
+		int[] src = ImageOps.intRaster(image);
+		ParallelOps.RowKernel kernel = (startRow, endRow) -> {
+			int[] row = src != null ? null : new int[width];
+			for (int y = startRow; y < endRow; y++) {
+				int offset = y * width;
+				if (src != null) {
+					planar.setRow(offset, src, offset);
+				} else {
+					ImageOps.getRGBRow(image, y, row);
+					planar.setRow(offset, row, 0);
+				}
+			}
+		};
+		if (src != null) {
+			ParallelOps.forEachRowBand(width, planar.height, kernel);
+		} else {
+			kernel.apply(0, planar.height);
+		}
+		return planar;
+	}
+
+	/**
+	 * Returns a new TYPE_INT_RGB image with the same pixels as this image.
+	 * 
+	 * @return new image
+	 */
+	public BufferedImage toBufferedImage() {
+		BufferedImage image = ImageOps.makeImage(width, height);
+		int[] dst = ImageOps.rgbRaster(image);
+		ParallelOps.forEachRowBand(width, height, (startRow, endRow) -> {
+			for (int i = startRow * width; i < endRow * width; i++) {
+				dst[i] = packed(i) & ImageOps.RGB_MASK;
+			}
+		});
+		return image;
+	}
+
+	/**
+	 * If coordinates are out of bounds it returns a black pixel. 
+	 */
+	public int getRGB(int x, int y) {
+		if (0 <= x && x < width && 0 <= y && y < height) {
+			return packed(y * width + x);
+		}
+		return PixelOps.pack(0, 0, 0);
+	}
+
+	/**
+	 * If coordinates are out of bounds does nothing. 
+	 */
+	public void setRGB(int x, int y, int pixel) {
+		if (0 <= x && x < width && 0 <= y && y < height) {
+			int i = y * width + x;
+			red[i] = (byte) (pixel >>> PixelOps.SHIFT_RED);
+			grn[i] = (byte) (pixel >>> PixelOps.SHIFT_GREEN);
+			blu[i] = (byte) (pixel >>> PixelOps.SHIFT_BLUE);
+		}
+	}
+
+	/**
+	 * Sets every pixel of this image to the given pixel.
+	 * 
+	 * @param pixel
+	 * @return this image
+	 */
+	public PlanarImage setAllPixels(int pixel) {
+		Arrays.fill(red, (byte) (pixel >>> PixelOps.SHIFT_RED));
+		Arrays.fill(grn, (byte) (pixel >>> PixelOps.SHIFT_GREEN));
+		Arrays.fill(blu, (byte) (pixel >>> PixelOps.SHIFT_BLUE));
+		return this;
+	}
+
+	/**
+	 * @return new planar image that is a copy of this image
+	 */
+	public PlanarImage copy() {
+		PlanarImage copy = new PlanarImage(width, height);
+		System.arraycopy(red, 0, copy.red, 0, red.length);
+		System.arraycopy(grn, 0, copy.grn, 0, grn.length);
+		System.arraycopy(blu, 0, copy.blu, 0, blu.length);
+		return copy;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof PlanarImage other && width == other.width && height == other.height
+				&& Arrays.equals(red, other.red) && Arrays.equals(grn, other.grn) && Arrays.equals(blu, other.blu);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * Arrays.hashCode(red) + Arrays.hashCode(grn)) + Arrays.hashCode(blu);
+	}
+
+	private int packed(int i) {
+		return PixelOps.SELECT_ALPHA | ((red[i] & 0xff) << PixelOps.SHIFT_RED) | ((grn[i] & 0xff) << PixelOps.SHIFT_GREEN)
+				| ((blu[i] & 0xff) << PixelOps.SHIFT_BLUE);
+	}
+
+	private void setRow(int offset, int[] pixels, int start) {
+		for (int x = 0; x < width; x++) {
+			int pixel = pixels[start + x];
+			red[offset + x] = (byte) (pixel >>> PixelOps.SHIFT_RED);
+			grn[offset + x] = (byte) (pixel >>> PixelOps.SHIFT_GREEN);
+			blu[offset + x] = (byte) (pixel >>> PixelOps.SHIFT_BLUE);
+		}
+	}
+
+	/**
+	 * Sets dst[i] to the truncated value of left[i] op right[i] for i in [start, end).
+	 * dst may alias left or right.
+	 */
+	static void channelChannelOp(OP op, byte[] left, byte[] right, byte[] dst, int start, int end) {
+		switch (op) {
+		case PLUS -> {
+			for (int i = start; i < end; i++) {
+				dst[i] = (byte) Math.min((left[i] & 0xff) + (right[i] & 0xff), 255);
+			}
+		}
+		case MINUS -> {
+			for (int i = start; i < end; i++) {
+				dst[i] = (byte) Math.max((left[i] & 0xff) - (right[i] & 0xff), 0);
+			}
+		}
+		case TIMES -> {
+			for (int i = start; i < end; i++) {
+				dst[i] = (byte) Math.min((left[i] & 0xff) * (right[i] & 0xff), 255);
+			}
+		}
+		case DIV -> {
+			for (int i = start; i < end; i++) {
+				dst[i] = (byte) ((left[i] & 0xff) / (right[i] & 0xff));
+			}
+		}
+		case MOD -> {
+			for (int i = start; i < end; i++) {
+				dst[i] = (byte) ((left[i] & 0xff) % (right[i] & 0xff));
+			}
+		}
+		default -> throw new IllegalArgumentException("Compiler/runtime error Unexpected value: " + op);
+		}
+	}
+
+	/**
+	 * Sets dst[i] to the truncated value of left[i] op right for i in [start, end), using a table
+	 * of the 256 possible results. dst may alias left.
+	 */
+	static void channelScalarOp(OP op, byte[] left, int right, byte[] dst, int start, int end) {
+		if ((op == OP.DIV || op == OP.MOD) && right == 0) {
+			throw new ArithmeticException("/ by zero");
+		}
+		byte[] table = new byte[256];
+		for (int v = 0; v < 256; v++) {
+			table[v] = (byte) PixelOps.truncate(switch (op) {
+			case PLUS -> v + right;
+			case MINUS -> v - right;
+			case TIMES -> v * right;
+			case DIV -> v / right;
+			case MOD -> v % right;
+			default -> throw new IllegalArgumentException("Compiler/runtime error Unexpected value: " + op);
+			});
+		}
+		for (int i = start; i < end; i++) {
+			dst[i] = table[left[i] & 0xff];
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes images in a raw format that needs no decoding, for intermediate images that
+ * a pipeline writes and later reads back.
+ *
+ * A raw image file consists of a 16 byte header holding the ints MAGIC, VERSION, width, and height,
+ * followed by the width * height packed pixels of the image in row-major order, with the alpha bits
+ * cleared. All ints are little-endian. The pixel data has the same layout as the rows of an OffHeapImage,
+ * so OffHeapImage.map can use the mapped file as the image directly.
+ */
+public class RawImageIO {
+
+	/** The bytes "PLCR" read as a little-endian int */
+	static final int MAGIC = 0x52434c50;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_BYTES = 16;
+
+	/** Size of the buffer used to write the pixel data */
+	private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+	/**
+	 * @return true if filename names a readable file that starts with the raw image header
+	 */
+	public static boolean isRawImage(String filename) {
+		Path path = Path.of(filename);
+		if (!Files.isRegularFile(path)) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			return channel.read(magic, 0) == Integer.BYTES && magic.getInt(0) == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads a raw image file into a new TYPE_INT_RGB image. The pixel data is copied from the mapped
+	 * file into the raster of the image.
+	 */
+	public static BufferedImage read(String filename) {
+		try (OffHeapImage image = OffHeapImage.map(filename)) {
+			return image.toBufferedImage();
+		}
+	}
+
+	public static void write(BufferedImage image, String filename) {
+		write(filename, image.getWidth(), image.getHeight(), (y, row) -> ImageOps.getRGBRow(image, y, row));
+	}
+
+	public static void write(OffHeapImage image, String filename) {
+		write(filename, image.getWidth(), image.getHeight(), image::getRow);
+	}
+
+	/**
+	 * Reads and validates the header of a raw image file.
+	 *
+	 * @return size of the image
+	 */
+	static Dimension readHeader(FileChannel channel, String filename) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0) {
+				break;
+			}
+		}
+		if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+			throw new PLCRuntimeException(filename + " is not a raw image file");
+		}
+		if (header.getInt(4) != VERSION) {
+			throw new PLCRuntimeException(filename + " has unsupported raw image version " + header.getInt(4));
+		}
+		int width = header.getInt(8);
+		int height = header.getInt(12);
+		if (width <= 0 || height <= 0 || channel.size() < HEADER_BYTES + (long) width * height * Integer.BYTES) {
+			throw new PLCRuntimeException(filename + " is truncated or has an invalid size " + width + "x" + height);
+		}
+		return new Dimension(width, height);
+	}
+
+	/**
+	 * Supplies the pixels of row y of an image that is being written.
+	 */
+	@FunctionalInterface
+	interface RowReader {
+		void read(int y, int[] row);
+	}
+
+	private static void write(String filename, int width, int height, RowReader rows) {
+		try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).flip();
+			writeFully(channel, header);
+			int rowBytes = width * Integer.BYTES;
+			ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(rowBytes, WRITE_BUFFER_BYTES / rowBytes * rowBytes))
+					.order(ByteOrder.LITTLE_ENDIAN);
+			IntBuffer ints = buffer.asIntBuffer();
+			int[] row = new int[width];
+			for (int y = 0; y < height; y++) {
+				rows.read(y, row);
+				for (int x = 0; x < width; x++) {
+					row[x] &= ImageOps.RGB_MASK;
+				}
+				ints.put(row);
+				if (!ints.hasRemaining() || y == height - 1) {
+					buffer.limit(ints.position() * Integer.BYTES).position(0);
+					writeFully(channel, buffer);
+					buffer.clear();
+					ints.clear();
+				}
+			}
+		} catch (IOException e) {
+			throw new PLCRuntimeException(e.getMessage() + " " + filename);
+		}
+	}
+
+	static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
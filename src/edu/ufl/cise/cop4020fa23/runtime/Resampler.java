@@ -0,0 +1,360 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resizing engine used by ImageOps.copyAndResize and ImageOps.copyInto.
+ *
+ * NEAREST gives exactly the same result as the AffineTransformOp with nearest neighbor interpolation 
+ * used by the original implementation, including the size of the result of copyAndResize, which can be
+ * one pixel larger than requested. For images with an int raster, the source pixel of each destination
+ * row and column is looked up in tables that are cached per size, and pixels are copied directly 
+ * between the rasters. Other images still go through AffineTransformOp.
+ *
+ * BILINEAR and AREA produce TYPE_INT_RGB images of exactly the requested size. BILINEAR interpolates 
+ * between the four source pixels nearest to the center of each destination pixel. AREA averages the 
+ * source pixels covered by each destination pixel, weighted by the covered area, which avoids the 
+ * aliasing of the other modes when an image is reduced.
+ *
+ * All modes process rows in bands with ParallelOps.
+ */
+public class Resampler {
+
+	public enum Mode {
+		NEAREST, BILINEAR, AREA
+	}
+
+	/**
+	 * Returns a new image that is a resized version of the given image.
+	 * 
+	 * @param image
+	 * @param maxX
+	 * @param maxY
+	 * @param mode
+	 * @return new image
+	 */
+	public static BufferedImage resize(BufferedImage image, int maxX, int maxY, Mode mode) {
+		int w = image.getWidth();
+		int h = image.getHeight();
+		if (mode != Mode.NEAREST) {
+			BufferedImage result = ImageOps.makeImage(maxX, maxY);
+			resample(image, result, mode);
+			return result;
+		}
+		AffineTransformOp scaleOp = scaleOp(w, h, maxX, maxY);
+		int[] src = ImageOps.intRaster(image);
+		if (src == null || !hasTables(w, h)) {
+			return scaleOp.filter(image, null);
+		}
+		BufferedImage result = scaleOp.createCompatibleDestImage(image, null);
+		int[] dst = ImageOps.intRaster(result);
+		if (dst == null) {
+			return scaleOp.filter(image, result);
+		}
+		gather(src, w, h, dst, result.getWidth(), result.getHeight(), maxX, maxY);
+		return result;
+	}
+
+	/**
+	 * Copies source into dest, resizing it to fit the size of dest. source and dest may be the same image or
+	 * share their storage.
+	 * 
+	 * @param source
+	 * @param dest
+	 * @param mode
+	 */
+	public static void resizeInto(BufferedImage source, BufferedImage dest, Mode mode) {
+		source = unaliased(source, dest);
+		if (mode != Mode.NEAREST) {
+			resample(source, dest, mode);
+			return;
+		}
+		int w = source.getWidth();
+		int h = source.getHeight();
+		int maxX = dest.getWidth();
+		int maxY = dest.getHeight();
+		int[] src = ImageOps.intRaster(source);
+		int[] dst = ImageOps.intRaster(dest);
+		// AffineTransformOp converts between color models, so only pixels of the same type are copied directly
+		if (src == null || dst == null || source.getType() != dest.getType() || !hasTables(w, h)) {
+			scaleOp(w, h, maxX, maxY).filter(source, dest);
+			return;
+		}
+		gather(src, w, h, dst, maxX, maxY, maxX, maxY);
+	}
+
+	/**
+	 * Returns source, or a copy of it if dest shares its storage, for example because one is a subimage of
+	 * the other. The rows of dest are written while the rows of source they overlap may still be read.
+	 */
+	private static BufferedImage unaliased(BufferedImage source, BufferedImage dest) {
+		if (source.getRaster().getDataBuffer() != dest.getRaster().getDataBuffer()) {
+			return source;
+		}
+		return new BufferedImage(source.getColorModel(), source.copyData(null), source.isAlphaPremultiplied(), null);
+	}
+
+	/**
+	 * Returns the AffineTransformOp used by the original implementation to resize a w x h image to maxX x maxY.
+	 */
+	static AffineTransformOp scaleOp(int w, int h, int maxX, int maxY) {
+		AffineTransform at = new AffineTransform();
+		at.scale(((float) maxX) / w, ((float) maxY) / h);
+		return new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
+	}
+
+	/**
+	 * Returns the size of the image created by scaleOp(w, h, maxX, maxY).createCompatibleDestImage,
+	 * computed as in AffineTransformOp.getBounds2D.
+	 */
+	static Dimension nearestNeighborSize(int w, int h, int maxX, int maxY) {
+		float[] corners = { 0, 0, w, h };
+		scaleOp(w, h, maxX, maxY).getTransform().transform(corners, 0, corners, 0, 2);
+		Rectangle bounds = new Rectangle2D.Float(corners[0], corners[1], corners[2] - corners[0], corners[3] - corners[1])
+				.getBounds();
+		return new Dimension(bounds.x + bounds.width, bounds.y + bounds.height);
+	}
+
+	/** Largest image dimension for which nearestNeighborTable can encode source indices in a pixel */
+	private static final int NEAREST_NEIGHBOR_MAX_SIZE = 1 << 24;
+
+	/**
+	 * @return true if nearestNeighborTable supports a w x h source image
+	 */
+	static boolean hasTables(int w, int h) {
+		return w < NEAREST_NEIGHBOR_MAX_SIZE && h < NEAREST_NEIGHBOR_MAX_SIZE;
+	}
+
+	/**
+	 * Copies the pixels of a w x h source raster into the rw x rh destination raster as scaleOp(w, h, maxX, maxY)
+	 * would. Destination pixels that scaleOp leaves unchanged are not written.
+	 */
+	private static void gather(int[] src, int w, int h, int[] dst, int rw, int rh, int maxX, int maxY) {
+		int[] xTable = nearestNeighborTable(w, h, maxX, maxY, rw, true);
+		int[] yTable = nearestNeighborTable(w, h, maxX, maxY, rh, false);
+		ParallelOps.forEachRowBand(rw, rh, (startRow, endRow) -> {
+			for (int y = startRow; y < endRow; y++) {
+				int sy = yTable[y];
+				if (sy < 0) {
+					continue;
+				}
+				int srcRow = sy * w;
+				int dstRow = y * rw;
+				for (int x = 0; x < rw; x++) {
+					int sx = xTable[x];
+					if (sx >= 0) {
+						dst[dstRow + x] = src[srcRow + sx];
+					}
+				}
+			}
+		});
+	}
+
+	/** Maximum number of nearest neighbor tables kept in tableCache */
+	private static final int TABLE_CACHE_SIZE = 32;
+
+	@SuppressWarnings("serial")
+	private static final Map<List<Integer>, int[]> tableCache = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<Integer>, int[]> eldest) {
+			return size() > TABLE_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Returns, for each of the length destination columns (or rows) of scaleOp(width, height, maxX, maxY), the 
+	 * source column (row) sampled by its nearest neighbor interpolation, or -1 if the destination pixel is left 
+	 * unchanged. The returned array is shared and must not be modified.
+	 * 
+	 * Java2D computes the sample positions in fixed point, so rather than approximate its rounding,
+	 * the table is obtained by applying scaleOp to a probe image whose pixels hold their own column (row)
+	 * index, and reading back the first destination row (column). The probe only needs to be tall (wide) 
+	 * enough to contain the source row (column) sampled for it. Scaling is separable, so the result 
+	 * applies to every row (column) of the full image.  
+	 */
+	static int[] nearestNeighborTable(int width, int height, int maxX, int maxY, int length, boolean columns) {
+		List<Integer> key = Arrays.asList(width, height, maxX, maxY, length, columns ? 1 : 0);
+		synchronized (tableCache) {
+			int[] table = tableCache.get(key);
+			if (table != null) {
+				return table;
+			}
+		}
+		AffineTransformOp scaleOp = scaleOp(width, height, maxX, maxY);
+		int size = columns ? width : height;
+		double scale = columns ? scaleOp.getTransform().getScaleY() : scaleOp.getTransform().getScaleX();
+		int depth = (int) Math.min(columns ? height : width, Math.floor(0.5 / scale) + 2);
+		BufferedImage probe = columns ? ImageOps.makeImage(size, depth) : ImageOps.makeImage(depth, size);
+		int[] indices = ImageOps.intRaster(probe);
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < depth; j++) {
+				indices[columns ? j * size + i : i * depth + j] = i + 1;
+			}
+		}
+		BufferedImage sampled = columns ? ImageOps.makeImage(length, 1) : ImageOps.makeImage(1, length);
+		scaleOp.filter(probe, sampled);
+		int[] table = ImageOps.intRaster(sampled);
+		for (int i = 0; i < length; i++) {
+			table[i] = (table[i] & ImageOps.RGB_MASK) - 1;
+		}
+		synchronized (tableCache) {
+			tableCache.put(key, table);
+		}
+		return table;
+	}
+
+	/** Weights are fixed point numbers with WEIGHT_BITS fraction bits, and the weights of each tap list sum to 1 */
+	private static final int WEIGHT_BITS = 10;
+	private static final int WEIGHT_ONE = 1 << WEIGHT_BITS;
+
+	/**
+	 * For each destination index i along one axis, the source indices first[i] .. first[i] + count[i] - 1
+	 * contributing to it, with weights weights[i * stride + k].
+	 */
+	private static class Taps {
+		final int[] first;
+		final int[] count;
+		final int[] weights;
+		final int stride;
+
+		Taps(int length, int stride) {
+			this.first = new int[length];
+			this.count = new int[length];
+			this.weights = new int[length * stride];
+			this.stride = stride;
+		}
+
+		/**
+		 * Sets the taps of index i from weights given as fractions summing to 1, rounding their running
+		 * sums so that the fixed point weights sum to exactly WEIGHT_ONE.
+		 */
+		void set(int i, int first, double[] fractions, int count) {
+			this.first[i] = first;
+			this.count[i] = count;
+			double sum = 0;
+			int previous = 0;
+			for (int k = 0; k < count; k++) {
+				sum += fractions[k];
+				int rounded = k == count - 1 ? WEIGHT_ONE : (int) Math.round(sum * WEIGHT_ONE);
+				weights[i * stride + k] = rounded - previous;
+				previous = rounded;
+			}
+		}
+	}
+
+	private static Taps bilinearTaps(int size, int length) {
+		Taps taps = new Taps(length, 2);
+		double scale = (double) size / length;
+		double[] fractions = new double[2];
+		for (int i = 0; i < length; i++) {
+			double center = Math.min(Math.max((i + 0.5) * scale - 0.5, 0), size - 1);
+			int first = (int) center;
+			if (first == size - 1) {
+				fractions[0] = 1;
+				taps.set(i, first, fractions, 1);
+			} else {
+				fractions[1] = center - first;
+				fractions[0] = 1 - fractions[1];
+				taps.set(i, first, fractions, 2);
+			}
+		}
+		return taps;
+	}
+
+	private static Taps areaTaps(int size, int length) {
+		double scale = (double) size / length;
+		int stride = (int) Math.ceil(scale) + 1;
+		Taps taps = new Taps(length, stride);
+		double[] fractions = new double[stride];
+		for (int i = 0; i < length; i++) {
+			double start = i * scale;
+			double end = Math.min((i + 1) * scale, size);
+			int first = (int) start;
+			int count = Math.min(stride, Math.max(1, (int) Math.ceil(end) - first));
+			for (int k = 0; k < count; k++) {
+				double covered = Math.min(end, first + k + 1) - Math.max(start, first + k);
+				fractions[k] = Math.max(covered, 0) / (end - start);
+			}
+			taps.set(i, first, fractions, count);
+		}
+		return taps;
+	}
+
+	/**
+	 * Resizes source into dest with the BILINEAR or AREA mode.
+	 */
+	private static void resample(BufferedImage source, BufferedImage dest, Mode mode) {
+		int w = source.getWidth();
+		int h = source.getHeight();
+		int rw = dest.getWidth();
+		int rh = dest.getHeight();
+		Taps xTaps = mode == Mode.BILINEAR ? bilinearTaps(w, rw) : areaTaps(w, rw);
+		Taps yTaps = mode == Mode.BILINEAR ? bilinearTaps(h, rh) : areaTaps(h, rh);
+		int[] pixels = ImageOps.intRaster(source);
+		int[] src = pixels != null ? pixels : ImageOps.getRGBPixels(source);
+		int[] dst = ImageOps.rgbRaster(dest);
+		ParallelOps.RowKernel kernel = (startRow, endRow) -> {
+			int[] acc = new int[3 * rw];
+			int[] row = new int[rw];
+			int round = 1 << (2 * WEIGHT_BITS - 1);
+			for (int y = startRow; y < endRow; y++) {
+				Arrays.fill(acc, 0);
+				for (int ky = 0; ky < yTaps.count[y]; ky++) {
+					int srcRow = (yTaps.first[y] + ky) * w;
+					int wy = yTaps.weights[y * yTaps.stride + ky];
+					for (int x = 0; x < rw; x++) {
+						int r = 0, g = 0, b = 0;
+						int sx = srcRow + xTaps.first[x];
+						int base = x * xTaps.stride;
+						for (int kx = 0; kx < xTaps.count[x]; kx++) {
+							int pixel = src[sx + kx];
+							int wx = xTaps.weights[base + kx];
+							r += wx * ((pixel >>> PixelOps.SHIFT_RED) & 0xff);
+							g += wx * ((pixel >>> PixelOps.SHIFT_GREEN) & 0xff);
+							b += wx * ((pixel >>> PixelOps.SHIFT_BLUE) & 0xff);
+						}
+						acc[3 * x] += wy * r;
+						acc[3 * x + 1] += wy * g;
+						acc[3 * x + 2] += wy * b;
+					}
+				}
+				for (int x = 0; x < rw; x++) {
+					row[x] = PixelOps.SELECT_ALPHA | ((acc[3 * x] + round) >> (2 * WEIGHT_BITS) << PixelOps.SHIFT_RED)
+							| ((acc[3 * x + 1] + round) >> (2 * WEIGHT_BITS) << PixelOps.SHIFT_GREEN)
+							| ((acc[3 * x + 2] + round) >> (2 * WEIGHT_BITS) << PixelOps.SHIFT_BLUE);
+				}
+				if (dst != null) {
+					for (int x = 0; x < rw; x++) {
+						dst[y * rw + x] = row[x] & ImageOps.RGB_MASK;
+					}
+				} else {
+					dest.setRGB(0, y, rw, 1, row, 0, rw);
+				}
+			}
+		};
+		if (dst != null) {
+			ParallelOps.forEachRowBand(rw, rh, kernel);
+		} else {
+			kernel.apply(0, rh);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+
+/**
+ * Processes image files that may be larger than the heap as a sequence of strips of rows, so that only
+ * one strip of the input and one of the output are in memory at a time.
+ *
+ * Streaming is supported for the uncompressed formats whose rows can be decoded and encoded one after
+ * another: binary PPM and PGM, and the raw format of RawImageIO. StripReader and StripWriter read and write
+ * the strips, and transform connects them with an operation on each strip.
+ */
+public class StreamOps {
+
+	/** Number of rows in the strips used by transform */
+	public static int STRIP_ROWS = 64;
+
+	/**
+	 * The formats that can be streamed.
+	 */
+	public enum Format {
+		/** binary PPM (P6) */
+		PPM,
+		/** binary PGM (P5). Pixels are written as their luma, and gray values are read as pixels with equal components. */
+		PGM,
+		/** the format of RawImageIO */
+		RAW;
+
+		/**
+		 * @return the format given by the extension of filename, or null if it cannot be streamed
+		 */
+		public static Format of(String filename) {
+			int dot = filename.lastIndexOf('.');
+			return switch (dot < 0 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT)) {
+			case "ppm" -> PPM;
+			case "pgm" -> PGM;
+			case "raw" -> RAW;
+			default -> null;
+			};
+		}
+	}
+
+	/**
+	 * Applies op to the image in the file source strip by strip, and writes the results to the file dest, in the
+	 * format given by its extension. The source format is recognized from the file contents.
+	 *
+	 * Each strip is a TYPE_INT_RGB image as wide as the source image and STRIP_ROWS rows high, except possibly
+	 * the last one. op must return an image of the same size as its argument, and may return the argument itself
+	 * after modifying it. The result only equals applying op to the whole image if op computes each pixel from the
+	 * pixel at the same position, as the pixel, scalar, and LUT operations of ImageOps do. The strips are reused,
+	 * so op must not retain them.
+	 *
+	 * @param source
+	 * @param dest
+	 * @param op
+	 */
+	public static void transform(String source, String dest, UnaryOperator<BufferedImage> op) {
+		try (StripReader in = StripReader.open(source);
+				StripWriter out = StripWriter.open(dest, in.getWidth(), in.getHeight())) {
+			BufferedImage strip = null;
+			while (in.getRow() < in.getHeight()) {
+				int rows = Math.min(Math.max(1, STRIP_ROWS), in.getHeight() - in.getRow());
+				if (strip == null || strip.getHeight() != rows) {
+					strip = ImageOps.makeImage(in.getWidth(), rows);
+				}
+				in.read(ImageOps.rgbRaster(strip), rows);
+				BufferedImage result = op.apply(strip);
+				if (result.getWidth() != strip.getWidth() || result.getHeight() != rows) {
+					throw new PLCRuntimeException("Strip operation changed the size of a " + strip.getWidth() + "x" + rows
+							+ " strip to " + result.getWidth() + "x" + result.getHeight());
+				}
+				out.write(result);
+			}
+		}
+	}
+}
@@ -0,0 +1,217 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the rows of a binary PPM, binary PGM, or raw image file from top to bottom, a strip of rows at a time,
+ * without holding more than a buffer of the file in memory.
+ *
+ * PPM and PGM files with a maximum value other than 255 are scaled to 8 bit components. Gray values of
+ * PGM files become pixels with three equal components.
+ */
+public class StripReader implements AutoCloseable {
+
+	/** Size of the buffer the file is read into */
+	private static final int READ_BUFFER_BYTES = 1 << 20;
+
+	private final String filename;
+	private final FileChannel channel;
+	private final StreamOps.Format format;
+	private final int width;
+	private final int height;
+	private final int maxValue;
+	private final int bytesPerRow;
+	private final ByteBuffer buffer;
+	private int row = 0;
+
+	private StripReader(String filename, FileChannel channel, StreamOps.Format format, int width, int height,
+			int maxValue, long dataOffset) throws IOException {
+		this.filename = filename;
+		this.channel = channel;
+		this.format = format;
+		this.width = width;
+		this.height = height;
+		this.maxValue = maxValue;
+		int bytesPerSample = maxValue > 255 ? 2 : 1;
+		this.bytesPerRow = switch (format) {
+		case PPM -> width * 3 * bytesPerSample;
+		case PGM -> width * bytesPerSample;
+		case RAW -> width * Integer.BYTES;
+		};
+		ByteOrder order = format == StreamOps.Format.RAW ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		this.buffer = ByteBuffer.allocateDirect(Math.max(bytesPerRow, READ_BUFFER_BYTES / bytesPerRow * bytesPerRow))
+				.order(order);
+		buffer.flip();
+		channel.position(dataOffset);
+	}
+
+	/**
+	 * Opens the named file and reads its header. The format is recognized from the contents of the file.
+	 *
+	 * Throws a PLCRuntimeException if the file cannot be read or is not in one of the supported formats.
+	 */
+	public static StripReader open(String filename) {
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ);
+			StripReader reader;
+			if (RawImageIO.isRawImage(filename)) {
+				Dimension size = RawImageIO.readHeader(channel, filename);
+				reader = new StripReader(filename, channel, StreamOps.Format.RAW, size.width, size.height, 255,
+						RawImageIO.HEADER_BYTES);
+			} else {
+				PNMImageIO.Header header = PNMImageIO.readHeader(channel, filename);
+				reader = new StripReader(filename, channel, header.format(), header.width(), header.height(),
+						header.maxValue(), header.dataOffset());
+			}
+			return reader;
+		} catch (IOException | RuntimeException e) {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+			}
+			if (e instanceof PLCRuntimeException p) {
+				throw p;
+			}
+			throw new PLCRuntimeException(e.getMessage() + " " + filename);
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return index of the next row to be read, which is the height of the image once all rows have been read
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * Reads the next rows of the image into pixels, which must have room for rows * getWidth() pixels.
+	 *
+	 * @param rows number of rows to read, at most getHeight() - getRow()
+	 */
+	public void read(int[] pixels, int rows) {
+		if (rows < 0 || rows > height - row || pixels.length < rows * width) {
+			throw new PLCRuntimeException("Cannot read " + rows + " rows at row " + row + " of " + filename);
+		}
+		try {
+			for (int r = 0; r < rows; r++) {
+				fill();
+				decodeRow(pixels, r * width);
+				row++;
+			}
+		} catch (IOException e) {
+			throw new PLCRuntimeException(e.getMessage() + " " + filename);
+		}
+	}
+
+	/**
+	 * Skips the next rows of the image without decoding them.
+	 *
+	 * @param rows number of rows to skip, at most getHeight() - getRow()
+	 */
+	public void skip(int rows) {
+		if (rows < 0 || rows > height - row) {
+			throw new PLCRuntimeException("Cannot skip " + rows + " rows at row " + row + " of " + filename);
+		}
+		long bytes = (long) rows * bytesPerRow;
+		try {
+			if (bytes <= buffer.remaining()) {
+				buffer.position(buffer.position() + (int) bytes);
+			} else {
+				channel.position(channel.position() + bytes - buffer.remaining());
+				buffer.position(buffer.limit());
+			}
+		} catch (IOException e) {
+			throw new PLCRuntimeException(e.getMessage() + " " + filename);
+		}
+		row += rows;
+	}
+
+	/**
+	 * Makes sure the buffer holds at least a complete row.
+	 */
+	private void fill() throws IOException {
+		if (buffer.remaining() >= bytesPerRow) {
+			return;
+		}
+		buffer.compact();
+		while (buffer.position() < bytesPerRow) {
+			if (channel.read(buffer) < 0) {
+				throw new PLCRuntimeException(filename + " is truncated at row " + row);
+			}
+		}
+		buffer.flip();
+	}
+
+	private void decodeRow(int[] pixels, int start) {
+		int end = start + width;
+		switch (format) {
+		case RAW -> {
+			for (int i = start; i < end; i++) {
+				pixels[i] = buffer.getInt() & ImageOps.RGB_MASK;
+			}
+		}
+		case PPM -> {
+			for (int i = start; i < end; i++) {
+				int red = sample();
+				int grn = sample();
+				int blu = sample();
+				pixels[i] = PixelOps.pack(red, grn, blu) & ImageOps.RGB_MASK;
+			}
+		}
+		case PGM -> {
+			for (int i = start; i < end; i++) {
+				int v = sample();
+				pixels[i] = v * 0x010101;
+			}
+		}
+		}
+	}
+
+	/**
+	 * @return the next sample of a PPM or PGM file, scaled to 0..255
+	 */
+	private int sample() {
+		if (maxValue == 255) {
+			return buffer.get() & 0xff;
+		}
+		int v = maxValue > 255 ? buffer.getShort() & 0xffff : buffer.get() & 0xff;
+		return Math.min(255, (v * 255 + maxValue / 2) / maxValue);
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new PLCRuntimeException(e.getMessage() + " " + filename);
+		}
+	}
+}
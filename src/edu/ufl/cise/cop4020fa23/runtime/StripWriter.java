@@ -0,0 +1,201 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes an image of a size given in advance to a binary PPM, binary PGM, or raw image file, a strip of rows
+ * at a time from top to bottom. The rows are encoded into a direct buffer that is written to a FileChannel
+ * whenever it is full.
+ *
+ * PGM files hold the luma 0.299 red + 0.587 green + 0.114 blue of each pixel.
+ */
+public class StripWriter implements AutoCloseable {
+
+	/** Size of the buffer used to write the pixel data */
+	private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+	private final String filename;
+	private final FileChannel channel;
+	private final StreamOps.Format format;
+	private final int width;
+	private final int height;
+	private final int bytesPerRow;
+	private final ByteBuffer buffer;
+	private final int[] row;
+	private int rowsWritten = 0;
+
+	StripWriter(String filename, StreamOps.Format format, int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new PLCRuntimeException("Invalid image size " + width + "x" + height + " for " + filename);
+		}
+		this.filename = filename;
+		this.format = format;
+		this.width = width;
+		this.height = height;
+		this.bytesPerRow = switch (format) {
+		case PPM -> width * 3;
+		case PGM -> width;
+		case RAW -> width * Integer.BYTES;
+		};
+		ByteOrder order = format == StreamOps.Format.RAW ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		this.buffer = ByteBuffer.allocateDirect(Math.max(bytesPerRow, WRITE_BUFFER_BYTES / bytesPerRow * bytesPerRow))
+				.order(order);
+		this.row = new int[width];
+		try {
+			this.channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		} catch (IOException e) {
+			throw new PLCRuntimeException(e.getMessage() + " " + filename);
+		}
+		if (format == StreamOps.Format.RAW) {
+			buffer.putInt(RawImageIO.MAGIC).putInt(RawImageIO.VERSION).putInt(width).putInt(height);
+		} else {
+			String magic = format == StreamOps.Format.PPM ? "P6" : "P5";
+			buffer.put((magic + "\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+		}
+	}
+
+	/**
+	 * Creates the named file, in the format given by its extension, for a width x height image.
+	 *
+	 * Throws a PLCRuntimeException if the extension is not .ppm, .pgm, or .raw, or the file cannot be created.
+	 */
+	public static StripWriter open(String filename, int width, int height) {
+		StreamOps.Format format = StreamOps.Format.of(filename);
+		if (format == null) {
+			throw new PLCRuntimeException("Images can only be streamed to .ppm, .pgm, and .raw files: " + filename);
+		}
+		return new StripWriter(filename, format, width, height);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return number of rows written so far
+	 */
+	public int getRow() {
+		return rowsWritten;
+	}
+
+	/**
+	 * Writes the given rows of pixels, which hold rows * getWidth() pixels, as the next rows of the image.
+	 */
+	public void write(int[] pixels, int rows) {
+		checkRows(rows);
+		for (int r = 0; r < rows; r++) {
+			encodeRow(pixels, r * width);
+		}
+	}
+
+	/**
+	 * Writes the rows of strip, which must be as wide as the image, as the next rows of the image.
+	 */
+	public void write(BufferedImage strip) {
+		if (strip.getWidth() != width) {
+			throw new PLCRuntimeException("Strip of width " + strip.getWidth() + " written to " + filename
+					+ " of width " + width);
+		}
+		int rows = strip.getHeight();
+		int[] pixels = ImageOps.intRaster(strip);
+		if (pixels != null) {
+			write(pixels, rows);
+			return;
+		}
+		checkRows(rows);
+		for (int y = 0; y < rows; y++) {
+			ImageOps.getRGBRow(strip, y, row);
+			encodeRow(row, 0);
+		}
+	}
+
+	private void checkRows(int rows) {
+		if (rows < 0 || rows > height - rowsWritten) {
+			throw new PLCRuntimeException("Cannot write " + rows + " rows after row " + rowsWritten + " of " + filename
+					+ " of height " + height);
+		}
+	}
+
+	private void encodeRow(int[] pixels, int start) {
+		if (buffer.remaining() < bytesPerRow) {
+			flush();
+		}
+		int end = start + width;
+		switch (format) {
+		case RAW -> {
+			for (int i = start; i < end; i++) {
+				buffer.putInt(pixels[i] & ImageOps.RGB_MASK);
+			}
+		}
+		case PPM -> {
+			for (int i = start; i < end; i++) {
+				int p = pixels[i];
+				buffer.put((byte) (p >> PixelOps.SHIFT_RED));
+				buffer.put((byte) (p >> PixelOps.SHIFT_GREEN));
+				buffer.put((byte) (p >> PixelOps.SHIFT_BLUE));
+			}
+		}
+		case PGM -> {
+			for (int i = start; i < end; i++) {
+				int p = pixels[i];
+				int luma = 77 * ((p >> PixelOps.SHIFT_RED) & 0xff) + 150 * ((p >> PixelOps.SHIFT_GREEN) & 0xff)
+						+ 29 * ((p >> PixelOps.SHIFT_BLUE) & 0xff);
+				buffer.put((byte) ((luma + 128) >> 8));
+			}
+		}
+		}
+		rowsWritten++;
+	}
+
+	private void flush() {
+		buffer.flip();
+		try {
+			RawImageIO.writeFully(channel, buffer);
+		} catch (IOException e) {
+			throw new PLCRuntimeException(e.getMessage() + " " + filename);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes the buffered rows and closes the file. Throws a PLCRuntimeException if fewer rows than the
+	 * height of the image have been written.
+	 */
+	@Override
+	public void close() {
+		try {
+			flush();
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				throw new PLCRuntimeException(e.getMessage() + " " + filename);
+			}
+		}
+		if (rowsWritten < height) {
+			throw new PLCRuntimeException("Only " + rowsWritten + " of " + height + " rows were written to " + filename);
+		}
+	}
+}
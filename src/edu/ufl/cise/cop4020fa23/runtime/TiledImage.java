@@ -0,0 +1,458 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An image divided into square tiles of tileSize x tileSize pixels (smaller at the right and bottom 
+ * edges) that are only materialized when they are used.
+ *
+ * The pixels of a tile that has not been written are computed by the image's TileSource when the tile
+ * is first needed. The ImageOps overloads taking TiledImage arguments return images whose sources apply
+ * the operation to the corresponding regions of the operands, so a whole pipeline of operations is
+ * evaluated one tile at a time, when the tiles of the final result are read.
+ *
+ * Materialized tiles of all tiled images share a cache of at most CACHE_BYTES bytes. When it is full, the
+ * least recently used tiles are evicted. Tiles that can be computed again, or whose pixels are already in 
+ * the spill file, are simply dropped, while tiles that have been written with setRGB or computed before
+ * materialize() released the source are first spilled to a temporary file, from which they are read back
+ * when they are used again. Memory use is therefore bounded by CACHE_BYTES regardless of the size of the 
+ * images, except that tiles of images that are in use by another thread at that moment are evicted later.
+ *
+ * A tiled image computed from other images reads them when its tiles are computed, so the operands must not
+ * be modified while it still depends on them. materialize() computes all remaining tiles and releases the 
+ * operands. close() releases the tiles and the spill file of an image that is no longer needed.
+ *
+ * Tiles are computed and accessed while holding the lock of their image, so different images can be used
+ * by different threads at the same time. Computing a tile locks the operands it reads, which never depend 
+ * on the image being computed. The cache has its own lock, which is only held while it is updated; 
+ * evicting a tile only tries to lock the image it belongs to, and skips the tile if that fails.
+ *
+ * Each image remembers the tile it accessed last, and only moves a tile to the most recently used end of 
+ * the cache when it accesses a different tile than the last one. Successive getRGB and setRGB calls on the 
+ * same tile therefore only take the lock of the image, not the lock of the cache. Copying regions with 
+ * toBufferedImage is still much faster than reading the image pixel by pixel.
+ */
+public class TiledImage implements AutoCloseable {
+
+	/** Maximum number of bytes of pixel data held by materialized tiles of all tiled images */
+	public static long CACHE_BYTES = 256L << 20;
+
+	/** Tile size used by the constructors that do not specify one */
+	public static int DEFAULT_TILE_SIZE = 512;
+
+	/**
+	 * Computes the pixels of a region of an image.
+	 */
+	@FunctionalInterface
+	public interface TileSource {
+		/**
+		 * Writes the packed pixels of the region with upper left corner (x,y), width w, and height h 
+		 * to pixels[0..w*h) in row-major order. Alpha bits of the pixels are ignored.
+		 */
+		void compute(int x, int y, int w, int h, int[] pixels);
+	}
+
+	final int width;
+	final int height;
+	final int tileSize;
+	private final int tilesX;
+	private final int tilesY;
+	private TileSource source;
+	private final Tile[] resident;
+	private final boolean[] spilled;
+	private RandomAccessFile spillFile;
+	private File spillPath;
+	private boolean closed;
+	private final ReentrantLock lock = new ReentrantLock();
+	/** The tile returned by the last call of tile(), which is not moved in the cache again while it is reused */
+	private Tile lastTile;
+
+	/**
+	 * Creates a tiled image whose tiles are computed by source.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param tileSize
+	 * @param source source of the pixels of tiles that have not been written, or null for black tiles
+	 */
+	public TiledImage(int width, int height, int tileSize, TileSource source) {
+		if (width <= 0 || height <= 0 || tileSize <= 0) {
+			throw new PLCRuntimeException("Image and tile sizes must be positive: " + width + "x" + height + ", " + tileSize);
+		}
+		this.width = width;
+		this.height = height;
+		this.tileSize = tileSize;
+		this.tilesX = (width + tileSize - 1) / tileSize;
+		this.tilesY = (height + tileSize - 1) / tileSize;
+		this.source = source;
+		int tiles = Math.multiplyExact(tilesX, tilesY);
+		this.resident = new Tile[tiles];
+		this.spilled = new boolean[tiles];
+	}
+
+	/**
+	 * Creates a black tiled image with the default tile size.
+	 */
+	public TiledImage(int width, int height) {
+		this(width, height, DEFAULT_TILE_SIZE, null);
+	}
+
+	/**
+	 * Returns a tiled image whose tiles are read from the given image when they are needed. 
+	 * The image must not be modified while the tiled image depends on it.
+	 */
+	public static TiledImage of(BufferedImage image) {
+		return new TiledImage(image.getWidth(), image.getHeight(), DEFAULT_TILE_SIZE,
+				(x, y, w, h, pixels) -> image.getRGB(x, y, w, h, pixels, 0, w));
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Returns a new TYPE_INT_RGB image with the same pixels as this image.
+	 */
+	public BufferedImage toBufferedImage() {
+		BufferedImage image = ImageOps.makeImage(width, height);
+		int[] dst = ImageOps.rgbRaster(image);
+		lock.lock();
+		try {
+			for (int ty = 0; ty < tilesY; ty++) {
+				for (int tx = 0; tx < tilesX; tx++) {
+					Tile tile = tile(tx, ty);
+					int x0 = tx * tileSize;
+					int y0 = ty * tileSize;
+					for (int row = 0; row < tile.h; row++) {
+						System.arraycopy(tile.pixels, row * tile.w, dst, (y0 + row) * width + x0, tile.w);
+					}
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		return image;
+	}
+
+	/**
+	 * Like toBufferedImage(), but if this image is wider than maxWidth or higher than maxHeight, returns
+	 * it scaled down with nearest neighbor sampling to the largest size with the same aspect ratio that fits. 
+	 * Only one row of this image is copied to the heap at a time.
+	 */
+	public BufferedImage toBufferedImage(int maxWidth, int maxHeight) {
+		double scale = Math.min((double) maxWidth / width, (double) maxHeight / height);
+		if (scale >= 1) {
+			return toBufferedImage();
+		}
+		int w = Math.max(1, (int) (width * scale));
+		int h = Math.max(1, (int) (height * scale));
+		BufferedImage image = ImageOps.makeImage(w, h);
+		int[] dst = ImageOps.rgbRaster(image);
+		int[] row = new int[width];
+		for (int y = 0; y < h; y++) {
+			read(0, (int) ((long) y * height / h), width, 1, row);
+			for (int x = 0; x < w; x++) {
+				dst[y * w + x] = row[(int) ((long) x * width / w)];
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * If coordinates are out of bounds it returns a black pixel. 
+	 */
+	public int getRGB(int x, int y) {
+		if (0 <= x && x < width && 0 <= y && y < height) {
+			lock.lock();
+			try {
+				Tile tile = tile(x / tileSize, y / tileSize);
+				return tile.pixels[(y % tileSize) * tile.w + x % tileSize] | PixelOps.SELECT_ALPHA;
+			} finally {
+				lock.unlock();
+			}
+		}
+		return PixelOps.pack(0, 0, 0);
+	}
+
+	/**
+	 * If coordinates are out of bounds does nothing. 
+	 */
+	public void setRGB(int x, int y, int pixel) {
+		if (0 <= x && x < width && 0 <= y && y < height) {
+			lock.lock();
+			try {
+				Tile tile = tile(x / tileSize, y / tileSize);
+				tile.pixels[(y % tileSize) * tile.w + x % tileSize] = pixel & ImageOps.RGB_MASK;
+				tile.dirty = true;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Computes all tiles that have not been computed yet, so that the image no longer depends
+	 * on its source. Tiles that do not fit in the cache are spilled. Tiles that are already in the
+	 * spill file are neither read back nor written again.
+	 * 
+	 * @return this image
+	 */
+	public TiledImage materialize() {
+		lock.lock();
+		try {
+			if (source == null) {
+				return this;
+			}
+			for (int index = 0; index < resident.length; index++) {
+				if (resident[index] == null && spilled[index]) {
+					continue;
+				}
+				Tile tile = tile(index % tilesX, index / tilesX);
+				// without the source, the tile can only be restored from the spill file
+				if (!spilled[index]) {
+					tile.dirty = true;
+				}
+			}
+			source = null;
+		} finally {
+			lock.unlock();
+		}
+		return this;
+	}
+
+	/**
+	 * Releases the tiles and the spill file of this image. Any later use of the image throws a 
+	 * PLCRuntimeException. Closing an image more than once has no effect.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			synchronized (cache) {
+				for (Tile tile : resident) {
+					if (tile != null) {
+						cache.remove(tile);
+						cachedBytes -= tile.bytes();
+					}
+				}
+			}
+			closed = true;
+			source = null;
+			lastTile = null;
+			if (spillFile != null) {
+				try {
+					spillFile.close();
+				} catch (IOException e) {
+					throw new PLCRuntimeException(e.getMessage());
+				} finally {
+					spillPath.delete();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Copies the packed pixels, with alpha bits cleared, of the region with upper left corner (x,y), width w, 
+	 * and height h, which must be within the image, to pixels[0..w*h) in row-major order.
+	 */
+	void read(int x, int y, int w, int h, int[] pixels) {
+		lock.lock();
+		try {
+			for (int ty = y / tileSize; ty <= (y + h - 1) / tileSize; ty++) {
+				for (int tx = x / tileSize; tx <= (x + w - 1) / tileSize; tx++) {
+					Tile tile = tile(tx, ty);
+					int x0 = Math.max(x, tx * tileSize);
+					int x1 = Math.min(x + w, tx * tileSize + tile.w);
+					int y0 = Math.max(y, ty * tileSize);
+					int y1 = Math.min(y + h, ty * tileSize + tile.h);
+					for (int row = y0; row < y1; row++) {
+						System.arraycopy(tile.pixels, (row - ty * tileSize) * tile.w + x0 - tx * tileSize, pixels,
+								(row - y) * w + x0 - x, x1 - x0);
+					}
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/*
+	 * The tile cache. Tiles are kept in least recently used order, and cachedBytes is the size of their pixel data.
+	 * Both are guarded by the lock of cache.
+	 */
+
+	private static final LinkedHashMap<Tile, Tile> cache = new LinkedHashMap<>(16, 0.75f, true);
+	private static long cachedBytes = 0;
+
+	private static class Tile {
+		final TiledImage image;
+		final int index;
+		final int w;
+		final int h;
+		final int[] pixels;
+		/** The pixels cannot be computed again or read back from the spill file */
+		boolean dirty;
+
+		Tile(TiledImage image, int index, int w, int h) {
+			this.image = image;
+			this.index = index;
+			this.w = w;
+			this.h = h;
+			this.pixels = new int[w * h];
+		}
+
+		long bytes() {
+			return (long) pixels.length * Integer.BYTES;
+		}
+	}
+
+	/**
+	 * Returns tile (tx,ty), materializing it if necessary. Must be called while holding the lock of this image.
+	 * 
+	 * The tile is moved to the most recently used end of the cache unless it is lastTile. Evicting lastTile
+	 * sets its entry in resident to null, so an evicted tile is never returned as lastTile.
+	 */
+	private Tile tile(int tx, int ty) {
+		if (closed) {
+			throw new PLCRuntimeException("Attempting to use a tiled image that has been closed");
+		}
+		int index = ty * tilesX + tx;
+		Tile tile = resident[index];
+		if (tile != null) {
+			if (tile != lastTile) {
+				synchronized (cache) {
+					cache.get(tile);
+				}
+				lastTile = tile;
+			}
+			return tile;
+		}
+		int x0 = tx * tileSize;
+		int y0 = ty * tileSize;
+		tile = new Tile(this, index, Math.min(tileSize, width - x0), Math.min(tileSize, height - y0));
+		if (spilled[index]) {
+			unspill(tile);
+		} else if (source != null) {
+			source.compute(x0, y0, tile.w, tile.h, tile.pixels);
+			for (int i = 0; i < tile.pixels.length; i++) {
+				tile.pixels[i] &= ImageOps.RGB_MASK;
+			}
+		}
+		resident[index] = tile;
+		lastTile = tile;
+		evict(tile);
+		return tile;
+	}
+
+	/**
+	 * Adds keep to the cache and evicts least recently used tiles other than keep until the cache fits in
+	 * CACHE_BYTES. Tiles of images whose lock is held by another thread are skipped, since waiting for it
+	 * could deadlock with that thread evicting tiles of the images locked by this one. The evicted tiles
+	 * are spilled after the cache lock is released, while still holding the lock of their image.
+	 */
+	private static void evict(Tile keep) {
+		List<Tile> evicted = new ArrayList<>();
+		synchronized (cache) {
+			cache.put(keep, keep);
+			cachedBytes += keep.bytes();
+			Iterator<Tile> tiles = cache.keySet().iterator();
+			while (cachedBytes > CACHE_BYTES && tiles.hasNext()) {
+				Tile eldest = tiles.next();
+				if (eldest == keep || !eldest.image.lock.tryLock()) {
+					continue;
+				}
+				tiles.remove();
+				cachedBytes -= eldest.bytes();
+				eldest.image.resident[eldest.index] = null;
+				evicted.add(eldest);
+			}
+		}
+		PLCRuntimeException failure = null;
+		for (Tile tile : evicted) {
+			try {
+				// tiles of a black image that were never written need not be kept either
+				if (tile.dirty) {
+					tile.image.spill(tile);
+				}
+			} catch (PLCRuntimeException e) {
+				failure = e;
+			} finally {
+				tile.image.lock.unlock();
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private long spillOffset(int index) {
+		return (long) index * tileSize * tileSize * Integer.BYTES;
+	}
+
+	private void spill(Tile tile) {
+		try {
+			if (spillFile == null) {
+				spillPath = File.createTempFile("plc-tiles", ".bin");
+				spillPath.deleteOnExit();
+				spillFile = new RandomAccessFile(spillPath, "rw");
+			}
+			ByteBuffer bytes = ByteBuffer.allocate(tile.pixels.length * Integer.BYTES).order(ByteOrder.nativeOrder());
+			bytes.asIntBuffer().put(tile.pixels);
+			spillFile.getChannel().write(bytes, spillOffset(tile.index));
+			spilled[tile.index] = true;
+		} catch (IOException e) {
+			throw new PLCRuntimeException("Unable to spill image tile: " + e.getMessage());
+		}
+	}
+
+	private void unspill(Tile tile) {
+		try {
+			ByteBuffer bytes = ByteBuffer.allocate(tile.pixels.length * Integer.BYTES).order(ByteOrder.nativeOrder());
+			long offset = spillOffset(tile.index);
+			while (bytes.hasRemaining()) {
+				if (spillFile.getChannel().read(bytes, offset + bytes.position()) < 0) {
+					throw new IOException("unexpected end of spill file");
+				}
+			}
+			bytes.flip();
+			IntBuffer ints = bytes.asIntBuffer();
+			ints.get(tile.pixels);
+		} catch (IOException e) {
+			throw new PLCRuntimeException("Unable to read spilled image tile: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vectorized versions of the per-pixel arithmetic in ImageOps. Each kernel reads packed pixels from 
+ * index start (inclusive) to end (exclusive) of its input arrays and writes the packed results, with 
+ * the alpha bits cleared, to the same positions of dst.
+ *
+ * The color channels of a vector of pixels are unpacked into three vectors of ints, combined with the
+ * same int arithmetic as the scalar code, clamped to [0,255] and packed again. The number of pixels
+ * processed per step is the length of the preferred species of the platform (8 for AVX2, 16 for AVX-512).
+ *
+ * This class must only be used if VectorOps.isAvailable() returns true. Compiling it also requires
+ * --add-modules jdk.incubator.vector.
+ */
+final class VectorKernels {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	private VectorKernels() {
+	}
+
+	static void pixelPixelOp(OP op, int[] left, int[] right, int[] dst, int start, int end) {
+		int i = start;
+		for (int bound = start + SPECIES.loopBound(end - start); i < bound; i += SPECIES.length()) {
+			IntVector l = IntVector.fromArray(SPECIES, left, i);
+			IntVector r = IntVector.fromArray(SPECIES, right, i);
+			IntVector red = apply(op, channel(l, PixelOps.SHIFT_RED), channel(r, PixelOps.SHIFT_RED));
+			IntVector grn = apply(op, channel(l, PixelOps.SHIFT_GREEN), channel(r, PixelOps.SHIFT_GREEN));
+			IntVector blu = apply(op, channel(l, PixelOps.SHIFT_BLUE), channel(r, PixelOps.SHIFT_BLUE));
+			pack(red, grn, blu).intoArray(dst, i);
+		}
+		for (; i < end; i++) {
+			dst[i] = ImageOps.binaryPackedPixelPixelOp(op, left[i], right[i]) & ImageOps.RGB_MASK;
+		}
+	}
+
+	static void pixelConstantOp(OP op, int[] left, int right, int[] dst, int start, int end) {
+		IntVector rred = IntVector.broadcast(SPECIES, PixelOps.red(right));
+		IntVector rgrn = IntVector.broadcast(SPECIES, PixelOps.green(right));
+		IntVector rblu = IntVector.broadcast(SPECIES, PixelOps.blue(right));
+		int i = start;
+		for (int bound = start + SPECIES.loopBound(end - start); i < bound; i += SPECIES.length()) {
+			IntVector l = IntVector.fromArray(SPECIES, left, i);
+			IntVector red = apply(op, channel(l, PixelOps.SHIFT_RED), rred);
+			IntVector grn = apply(op, channel(l, PixelOps.SHIFT_GREEN), rgrn);
+			IntVector blu = apply(op, channel(l, PixelOps.SHIFT_BLUE), rblu);
+			pack(red, grn, blu).intoArray(dst, i);
+		}
+		for (; i < end; i++) {
+			dst[i] = ImageOps.binaryPackedPixelPixelOp(op, left[i], right) & ImageOps.RGB_MASK;
+		}
+	}
+
+	static void pixelScalarOp(OP op, int[] left, int right, int[] dst, int start, int end) {
+		IntVector r = IntVector.broadcast(SPECIES, right);
+		int i = start;
+		for (int bound = start + SPECIES.loopBound(end - start); i < bound; i += SPECIES.length()) {
+			IntVector l = IntVector.fromArray(SPECIES, left, i);
+			IntVector red = apply(op, channel(l, PixelOps.SHIFT_RED), r);
+			IntVector grn = apply(op, channel(l, PixelOps.SHIFT_GREEN), r);
+			IntVector blu = apply(op, channel(l, PixelOps.SHIFT_BLUE), r);
+			pack(red, grn, blu).intoArray(dst, i);
+		}
+		for (; i < end; i++) {
+			dst[i] = ImageOps.binaryPackedPixelScalarOp(op, left[i], right) & ImageOps.RGB_MASK;
+		}
+	}
+
+	private static IntVector channel(IntVector pixels, int shift) {
+		return pixels.lanewise(VectorOperators.LSHR, shift).and(0xff);
+	}
+
+	/**
+	 * Applies op to the channel values, with the same int arithmetic as the scalar code, and clamps to [0,255].
+	 * VectorOps only selects these kernels for PLUS, MINUS and TIMES.
+	 */
+	private static IntVector apply(OP op, IntVector left, IntVector right) {
+		IntVector result = switch (op) {
+		case PLUS -> left.add(right);
+		case MINUS -> left.sub(right);
+		case TIMES -> left.mul(right);
+		default -> throw new IllegalArgumentException("Compiler/runtime error Unexpected value: " + op);
+		};
+		return result.max(0).min(255);
+	}
+
+	private static IntVector pack(IntVector red, IntVector grn, IntVector blu) {
+		return red.lanewise(VectorOperators.LSHL, PixelOps.SHIFT_RED)
+				.or(grn.lanewise(VectorOperators.LSHL, PixelOps.SHIFT_GREEN))
+				.or(blu);
+	}
+}
@@ -0,0 +1,96 @@
+/*Copyright 2023 by Beverly A Sanders
+ *
+ * This code is provided for solely for use of students in COP4020 Programming Language Concepts at the
+ * University of Florida during the fall semester 2023 as part of the course project.
+ *
+ * No other use is authorized.
+ *
+ * This code may not be posted on a public web site either during or after the course.
+ */
+
+package edu.ufl.cise.cop4020fa23.runtime;
+
+import edu.ufl.cise.cop4020fa23.runtime.ImageOps.OP;
+
+/**
+ * Selects the vectorized pixel kernels in VectorKernels, which use the incubating Java Vector API
+ * (module jdk.incubator.vector) to process many packed pixels per instruction.
+ *
+ * The module is only resolved if the JVM is started with --add-modules jdk.incubator.vector.
+ * If it is not present, if VectorKernels cannot be linked against it, or if VECTORIZE is false, ImageOps 
+ * uses its scalar loops, so programs run unchanged without the option, just without the vectorized
+ * kernels. Vectorized and scalar kernels compute identical results.
+ *
+ * This class does not refer to the Vector API itself, so it can always be loaded.
+ */
+public class VectorOps {
+
+	/** Enables the vectorized kernels when the Vector API is available */
+	public static boolean VECTORIZE = true;
+
+	private static final boolean AVAILABLE = linkKernels();
+
+	/**
+	 * Loads and initializes VectorKernels if the Vector API module is present.
+	 * 
+	 * @return true if it succeeded
+	 */
+	private static boolean linkKernels() {
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			return false;
+		}
+		try {
+			Class.forName(VectorOps.class.getPackageName() + ".VectorKernels", true, VectorOps.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return true if the Vector API module is present in this JVM and the vectorized kernels can use it
+	 */
+	public static boolean isAvailable() {
+		return AVAILABLE;
+	}
+
+	/**
+	 * @return true if ImageOps should use the vectorized kernels
+	 */
+	public static boolean isEnabled() {
+		return VECTORIZE && AVAILABLE;
+	}
+
+	/**
+	 * The pixel-pixel kernels handle PLUS, MINUS and TIMES. DIV and MOD keep the scalar path, which 
+	 * throws when a channel of the divisor is zero.
+	 * 
+	 * @return true if binaryImageImageOp and binaryImagePixelOp should use VectorKernels for op
+	 */
+	static boolean usePixelKernel(OP op) {
+		return isEnabled() && (op == OP.PLUS || op == OP.MINUS || op == OP.TIMES);
+	}
+
+	/**
+	 * Like the pixel-pixel kernels, the scalar kernels handle PLUS, MINUS and TIMES. DIV and MOD are left 
+	 * to the scalar path, which looks the results up in a PixelLUT instead of dividing every channel of 
+	 * every pixel.
+	 * 
+	 * @return true if binaryImageScalarOp should use VectorKernels for op
+	 */
+	static boolean useScalarKernel(OP op) {
+		return isEnabled() && op != OP.DIV && op != OP.MOD;
+	}
+
+	static void pixelPixelOp(OP op, int[] left, int[] right, int[] dst, int start, int end) {
+		VectorKernels.pixelPixelOp(op, left, right, dst, start, end);
+	}
+
+	static void pixelConstantOp(OP op, int[] left, int right, int[] dst, int start, int end) {
+		VectorKernels.pixelConstantOp(op, left, right, dst, start, end);
+	}
+
+	static void pixelScalarOp(OP op, int[] left, int right, int[] dst, int start, int end) {
+		VectorKernels.pixelScalarOp(op, left, right, dst, start, end);
+	}
+}